@@ -4,8 +4,11 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 
 import org.freehep.graphicsio.ImageConstants;
+import org.freehep.graphicsio.emf.EMFBatchConverter;
 import org.freehep.graphicsio.emf.EMFConverter;
 
 
@@ -21,28 +24,37 @@ public class Emf2SvgOSrc extends EMFConverter{
 		          
 		html.write("<html>\n<head><meta http-equiv=\"x-ua-compatible\" content=\"IE=edge,chrome=1\"></head><body>\n");
 		
-		for (File f :  new File(inDir).listFiles(new FilenameFilter() {
+		File[] files = new File(inDir).listFiles(new FilenameFilter() {
 			@Override
 			public boolean accept(File dir, String name) {
 				return name.endsWith(".emf") || name.endsWith(".wmf");
 			}
-		})) {
-			System.out.println("Processing..."+f.getName());
-			try {
-				String outFile= inDir+tag+f.getName()+".svg";
-				File of= new File(outFile);
-				of.delete();
-				export(ImageConstants.SVG, inDir+f.getName(), outFile);
-			} catch (Throwable t) {
-				t.printStackTrace();
+		});
+		
+		File outDir = new File(inDir+tag);
+		EMFBatchConverter converter = new EMFBatchConverter(ImageConstants.SVG);
+		List<EMFBatchConverter.Result> results;
+		try {
+			results = converter.convert(Arrays.asList(files), outDir);
+		} finally {
+			converter.shutdown();
+		}
+		
+		for (EMFBatchConverter.Result result : results) {
+			System.out.println(result);
+			if (!result.isSuccess()) {
+				result.getFailure().printStackTrace();
 			}
-			html.write("\t<div>\n\t\t\n\t\t<br>\n\t\t<hr><p align=center>.SVG figure: "+ f.getName() + 
-					"</p>\n\t\t<hr>\n\t\t<br>\n\t\t<br>\n\t\t<img src=\""+f.getName()+".svg\" width=\"100%\" />\n\t</div>\n");
+			String name = new File(result.getSource()).getName();
+			html.write("\t<div>\n\t\t\n\t\t<br>\n\t\t<hr><p align=center>.SVG figure: "+ name + 
+					"</p>\n\t\t<hr>\n\t\t<br>\n\t\t<br>\n\t\t<img src=\""+name+".svg\" width=\"100%\" />\n\t</div>\n");
 		}
 		html.write("</body>\n</html>");
 		html.close();
 		} catch (IOException e) {
 			e.printStackTrace();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
 		}
 	}		
 }
@@ -1134,12 +1134,13 @@ public abstract class AbstractGraphics2D extends Graphics2D implements Cloneable
      * one operation.  Refer to the
      * <code>RenderingHints</code> class for definitions of some common
      * keys and values.
-     * @return a reference to an instance of <code>RenderingHints</code>
+     * @return a copy of the <code>RenderingHints</code>
      * that contains the current preferences.
      * @see RenderingHints
      */
     public RenderingHints getRenderingHints(){
-        return gc.getRenderingHints();
+        // a copy, so the hints are only changed by the set methods
+        return (RenderingHints)gc.getRenderingHints().clone();
     }
 
     /**
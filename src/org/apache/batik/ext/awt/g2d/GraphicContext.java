@@ -52,6 +52,23 @@ import java.util.ArrayList;
  * @version $Id: GraphicContext.java 479564 2006-11-27 09:56:57Z dvholten $
  */
 public class GraphicContext implements Cloneable{
+    /**
+     * Attributes whose modifications are counted.
+     * @see #getModificationCount(int)
+     */
+    public static final int PAINT = 0;
+    public static final int STROKE = 1;
+    public static final int COMPOSITE = 2;
+    public static final int CLIP = 3;
+    public static final int HINTS = 4;
+    public static final int FONT = 5;
+    public static final int TRANSFORM = 6;
+
+    /**
+     * Number of attributes whose modifications are counted
+     */
+    public static final int ATTRIBUTE_COUNT = 7;
+
     /**
      * Default Transform to be used for creating FontRenderContext.
      */
@@ -121,6 +138,16 @@ public class GraphicContext implements Cloneable{
      */
     protected Color foreground = Color.black;
 
+    /**
+     * Number of modifications of each attribute
+     */
+    protected int[] modificationCounts = new int[ATTRIBUTE_COUNT];
+
+    /**
+     * Number of modifications of all attributes
+     */
+    protected int modificationCount;
+
     /**
      * Default constructor
      */
@@ -240,8 +267,10 @@ public class GraphicContext implements Cloneable{
      * @see     java.awt.Graphics#getFont
      */
     public void setFont(Font font){
-        if(font != null)
+        if(font != null) {
             this.font = font;
+            modified(FONT);
+        }
     }
 
     /**
@@ -359,6 +388,7 @@ public class GraphicContext implements Cloneable{
             this.clip = transform.createTransformedShape(clip);
         else
             this.clip = null;
+        modified(CLIP);
     }
 
     /**
@@ -387,7 +417,12 @@ public class GraphicContext implements Cloneable{
      * @see java.awt.AlphaComposite
      */
     public void setComposite(Composite comp){
+        // setting an equal value again is no modification
+        boolean changed = (comp == null) ? composite != null
+                                         : !comp.equals(composite);
         this.composite = comp;
+        if (changed)
+            modified(COMPOSITE);
     }
 
 
@@ -407,9 +442,12 @@ public class GraphicContext implements Cloneable{
         if(paint == null)
             return;
 
+        boolean changed = !paint.equals(this.paint);
         this.paint = paint;
         if(paint instanceof Color)
             foreground = (Color)paint;
+        if (changed)
+            modified(PAINT);
     }
 
 
@@ -420,7 +458,10 @@ public class GraphicContext implements Cloneable{
      * @see BasicStroke
      */
     public void setStroke(Stroke s){
+        boolean changed = (s == null) ? stroke != null : !s.equals(stroke);
         stroke = s;
+        if (changed)
+            modified(STROKE);
     }
 
     /**
@@ -436,6 +477,7 @@ public class GraphicContext implements Cloneable{
      */
     public void setRenderingHint(RenderingHints.Key hintKey, Object hintValue){
         hints.put(hintKey, hintValue);
+        modified(HINTS);
     }
 
 
@@ -471,6 +513,7 @@ public class GraphicContext implements Cloneable{
      */
     public void setRenderingHints(Map hints){
         this.hints = new RenderingHints(hints);
+        modified(HINTS);
     }
 
 
@@ -490,6 +533,7 @@ public class GraphicContext implements Cloneable{
      */
     public void addRenderingHints(Map hints){
         this.hints.putAll(hints);
+        modified(HINTS);
     }
 
 
@@ -502,7 +546,8 @@ public class GraphicContext implements Cloneable{
      * <code>RenderingHints</code> class for definitions of some common
      * keys and values.
      * @return a reference to an instance of <code>RenderingHints</code>
-     * that contains the current preferences.
+     * that contains the current preferences. It must not be modified,
+     * changes are only tracked by the set methods.
      * @see RenderingHints
      */
     public RenderingHints getRenderingHints(){
@@ -524,6 +569,7 @@ public class GraphicContext implements Cloneable{
         if(x!=0 || y!=0){
             transform.translate(x, y);
             transformStack.add(TransformStackElement.createTranslateElement(x, y));
+            modified(TRANSFORM);
         }
     }
 
@@ -547,6 +593,7 @@ public class GraphicContext implements Cloneable{
     public void translate(double tx, double ty){
         transform.translate(tx, ty);
         transformStack.add(TransformStackElement.createTranslateElement(tx, ty));
+        modified(TRANSFORM);
     }
 
     /**
@@ -568,6 +615,7 @@ public class GraphicContext implements Cloneable{
     public void rotate(double theta){
         transform.rotate(theta);
         transformStack.add(TransformStackElement.createRotateElement(theta));
+        modified(TRANSFORM);
     }
 
     /**
@@ -594,6 +642,7 @@ public class GraphicContext implements Cloneable{
         transformStack.add(TransformStackElement.createTranslateElement(x, y));
         transformStack.add(TransformStackElement.createRotateElement(theta));
         transformStack.add(TransformStackElement.createTranslateElement(-x, -y));
+        modified(TRANSFORM);
     }
 
     /**
@@ -618,6 +667,7 @@ public class GraphicContext implements Cloneable{
     public void scale(double sx, double sy){
         transform.scale(sx, sy);
         transformStack.add(TransformStackElement.createScaleElement(sx, sy));
+        modified(TRANSFORM);
     }
 
     /**
@@ -641,6 +691,7 @@ public class GraphicContext implements Cloneable{
     public void shear(double shx, double shy){
         transform.shear(shx, shy);
         transformStack.add(TransformStackElement.createShearElement(shx, shy));
+        modified(TRANSFORM);
     }
 
     /**
@@ -663,6 +714,7 @@ public class GraphicContext implements Cloneable{
     public void transform(AffineTransform Tx){
         transform.concatenate(Tx);
         transformStack.add(TransformStackElement.createGeneralTransformElement(Tx));
+        modified(TRANSFORM);
     }
 
     /**
@@ -678,6 +730,7 @@ public class GraphicContext implements Cloneable{
         invalidateTransformStack();
         if(!Tx.isIdentity())
             transformStack.add(TransformStackElement.createGeneralTransformElement(Tx));
+        modified(TRANSFORM);
     }
 
     /**
@@ -830,6 +883,38 @@ public class GraphicContext implements Cloneable{
         } else {
             clip = s;
         }
+        modified(CLIP);
+    }
+
+    /**
+     * Counts a modification of an attribute.
+     * @param attribute one of PAINT, STROKE, COMPOSITE, CLIP, HINTS,
+     *        FONT or TRANSFORM
+     */
+    protected void modified(int attribute){
+        modificationCounts[attribute]++;
+        modificationCount++;
+    }
+
+    /**
+     * Returns the number of modifications of an attribute. Clients
+     * converting the state of this context can keep their result as
+     * long as the counts of the attributes they depend on do not change.
+     * Setting a paint, stroke or composite equal to the current one is
+     * not counted.
+     * @param attribute one of PAINT, STROKE, COMPOSITE, CLIP, HINTS,
+     *        FONT or TRANSFORM
+     */
+    public int getModificationCount(int attribute){
+        return modificationCounts[attribute];
+    }
+
+    /**
+     * Returns the number of modifications of all attributes. The
+     * background color is not counted.
+     */
+    public int getModificationCount(){
+        return modificationCount;
     }
 
     /**
@@ -81,4 +81,11 @@ public abstract class AbstractSVGConverter implements SVGConverter, ErrorConstan
     public final String doubleString(double value) {
         return generatorContext.doubleString(value);
     }
+
+    /**
+     * Utility method for subclasses.
+     */
+    public final StringBuilder appendDouble(StringBuilder sb, double value) {
+        return generatorContext.appendDouble(sb, value);
+    }
 }
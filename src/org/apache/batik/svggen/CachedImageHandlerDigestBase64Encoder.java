@@ -0,0 +1,294 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.svggen;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.batik.ext.awt.image.spi.ImageWriter;
+import org.apache.batik.ext.awt.image.spi.ImageWriterRegistry;
+import org.w3c.dom.Element;
+
+/**
+ * Cached Base64 image handler which identifies images by a SHA-256
+ * digest of their pixels instead of their encoded bytes. An image which
+ * was drawn before is neither PNG nor Base64 encoded again, the new
+ * &lt;use&gt; element refers to the &lt;image&gt; in the definitions
+ * created for the first one. The definitions hold the PNG bytes as
+ * {@link DeferredImageData}, Base64 encoded while the document is written
+ * if the generator context defers image data.
+ *
+ * The number of reused images, the encoded bytes and the encoding time
+ * they saved are counted.
+ *
+ * @version $Id$
+ */
+public class CachedImageHandlerDigestBase64Encoder
+    extends CachedImageHandlerBase64Encoder {
+
+    /**
+     * Digest of the pixels of an image
+     */
+    private static class Key {
+        private byte[] digest;
+
+        private int hashCode;
+
+        Key(byte[] digest) {
+            this.digest = digest;
+            this.hashCode = Arrays.hashCode(digest);
+        }
+
+        public int hashCode() {
+            return hashCode;
+        }
+
+        public boolean equals(Object o) {
+            return (o instanceof Key) && Arrays.equals(digest, ((Key) o).digest);
+        }
+    }
+
+    /**
+     * Image already added to the definitions
+     */
+    private static class Entry {
+        String href;
+
+        /**
+         * size of the Base64 encoded PNG
+         */
+        int size;
+
+        /**
+         * nanoseconds used to encode the image
+         */
+        long encodeTime;
+
+        Entry(String href, int size, long encodeTime) {
+            this.href = href;
+            this.size = size;
+            this.encodeTime = encodeTime;
+        }
+    }
+
+    private Map entries = new HashMap();
+
+    private MessageDigest messageDigest;
+
+    /**
+     * Buffer for the pixels of one row
+     */
+    private byte[] row = new byte[4];
+
+    private DOMTreeManager domTreeManager;
+
+    private int imageCount;
+
+    private int reusedCount;
+
+    private long bytesSaved;
+
+    private long encodeTimeSaved;
+
+    /**
+     * Build a <code>CachedImageHandlerDigestBase64Encoder</code> instance.
+     */
+    public CachedImageHandlerDigestBase64Encoder() {
+        super();
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform has to support SHA-256
+            throw new SVGGraphics2DRuntimeException(ERR_UNEXPECTED);
+        }
+    }
+
+    public void setDOMTreeManager(DOMTreeManager domTreeManager) {
+        // the cached images are definitions of the tree
+        if (this.domTreeManager != domTreeManager) {
+            this.domTreeManager = domTreeManager;
+            entries.clear();
+        }
+        super.setDOMTreeManager(domTreeManager);
+    }
+
+    protected void cacheBufferedImage(Element imageElement,
+                                      BufferedImage buf,
+                                      SVGGeneratorContext generatorContext)
+        throws SVGGraphics2DIOException {
+
+        if (generatorContext == null)
+            throw new SVGGraphics2DRuntimeException(ERR_CONTEXT_NULL);
+
+        imageCount++;
+        Key key = new Key(digest(buf));
+        Entry entry = (Entry) entries.get(key);
+        if (entry != null) {
+            reusedCount++;
+            bytesSaved += entry.size;
+            encodeTimeSaved += entry.encodeTime;
+        } else {
+            long start = System.nanoTime();
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            try {
+                // only PNG, Base64 is encoded while the document is written
+                ImageWriter writer = ImageWriterRegistry.getInstance()
+                    .getWriterFor("image/png");
+                writer.writeImage(buf, os);
+                os.close();
+            } catch (IOException e) {
+                // should not happen since we do in-memory processing
+                throw new SVGGraphics2DIOException(ERR_UNEXPECTED, e);
+            }
+            long encodeTime = System.nanoTime() - start;
+
+            DeferredImageData imageData =
+                new DeferredImageData(DATA_PROTOCOL_PNG_PREFIX, os);
+            String id = generatorContext.idGenerator.generateID(ID_PREFIX_IMAGE);
+            addToTree(id, imageData, buf.getWidth(), buf.getHeight(),
+                      generatorContext);
+            entry = new Entry(getRefPrefix() + SIGN_POUND + id,
+                              imageData.getBase64Length(), encodeTime);
+            entries.put(key, entry);
+        }
+
+        // set the URL
+        imageElement.setAttributeNS(XLINK_NAMESPACE_URI,
+                                    XLINK_HREF_QNAME,
+                                    entry.href);
+    }
+
+    /**
+     * Adds a new image element to the definitions.
+     */
+    private void addToTree(String id, DeferredImageData imageData,
+                           int width, int height,
+                           SVGGeneratorContext generatorContext) {
+        Element imageElement = domTreeManager.getDOMFactory().createElementNS(
+            SVG_NAMESPACE_URI, SVG_IMAGE_TAG);
+        imageElement.setAttributeNS(null, SVG_ID_ATTRIBUTE, id);
+        imageElement.setAttributeNS(null, SVG_WIDTH_ATTRIBUTE,
+                                    Integer.toString(width));
+        imageElement.setAttributeNS(null, SVG_HEIGHT_ATTRIBUTE,
+                                    Integer.toString(height));
+        imageData.setHREF(imageElement, generatorContext);
+        domTreeManager.addOtherDef(imageElement);
+    }
+
+    /**
+     * @return SHA-256 digest of the size and the pixels of buf
+     */
+    private byte[] digest(BufferedImage buf) {
+        int width = buf.getWidth();
+        int height = buf.getHeight();
+        if (row.length < 4 * width) {
+            row = new byte[4 * width];
+        }
+
+        messageDigest.reset();
+        updateInt(width);
+        updateInt(height);
+
+        Raster raster = buf.getRaster();
+        if (buf.getType() == getBufferedImageType()
+            && raster.getDataBuffer() instanceof DataBufferInt
+            && raster.getSampleModel() instanceof SinglePixelPackedSampleModel) {
+            // read the packed pixels without conversion
+            DataBufferInt dataBuffer = (DataBufferInt) raster.getDataBuffer();
+            int[] data = dataBuffer.getData();
+            int stride = ((SinglePixelPackedSampleModel)
+                          raster.getSampleModel()).getScanlineStride();
+            int offset = dataBuffer.getOffset()
+                - raster.getSampleModelTranslateY() * stride
+                - raster.getSampleModelTranslateX();
+            for (int y = 0; y < height; y++) {
+                updateRow(data, offset + y * stride, width);
+            }
+        } else {
+            int[] pixels = new int[width];
+            for (int y = 0; y < height; y++) {
+                buf.getRGB(0, y, width, 1, pixels, 0, width);
+                updateRow(pixels, 0, width);
+            }
+        }
+        return messageDigest.digest();
+    }
+
+    private void updateInt(int value) {
+        row[0] = (byte) (value >>> 24);
+        row[1] = (byte) (value >>> 16);
+        row[2] = (byte) (value >>> 8);
+        row[3] = (byte) value;
+        messageDigest.update(row, 0, 4);
+    }
+
+    private void updateRow(int[] pixels, int offset, int width) {
+        for (int i = 0, j = 0; i < width; i++) {
+            int pixel = pixels[offset + i];
+            row[j++] = (byte) (pixel >>> 24);
+            row[j++] = (byte) (pixel >>> 16);
+            row[j++] = (byte) (pixel >>> 8);
+            row[j++] = (byte) pixel;
+        }
+        messageDigest.update(row, 0, 4 * width);
+    }
+
+    /**
+     * @return number of images handled
+     */
+    public int getImageCount() {
+        return imageCount;
+    }
+
+    /**
+     * @return number of images which referred to an image drawn before
+     */
+    public int getReusedCount() {
+        return reusedCount;
+    }
+
+    /**
+     * @return number of Base64 characters which were not embedded again
+     */
+    public long getBytesSaved() {
+        return bytesSaved;
+    }
+
+    /**
+     * @return milliseconds of image encoding which were saved
+     */
+    public long getEncodeTimeSaved() {
+        return encodeTimeSaved / 1000000;
+    }
+
+    public String toString() {
+        return imageCount + " images, " + reusedCount + " reused, "
+            + bytesSaved + " bytes and " + getEncodeTimeSaved()
+            + " ms encoding saved";
+    }
+}
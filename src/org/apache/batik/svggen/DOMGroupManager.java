@@ -85,6 +85,28 @@ public class DOMGroupManager implements SVGSyntax, ErrorConstants {
      */
     protected Element currentGroup;
 
+    /**
+     * Difference between gc and groupGC computed for the last element
+     * added to an existing group, before it was trimmed for the element
+     */
+    private SVGGraphicContext lastDeltaGC;
+
+    /**
+     * Group lastDeltaGC was computed for
+     */
+    private Element lastDeltaGroup;
+
+    /**
+     * Modification count of gc when lastDeltaGC was computed
+     */
+    private int lastDeltaModificationCount;
+
+    /**
+     * New character count of the font converter when lastDeltaGC was
+     * computed, embedded fonts need the glyphs of characters drawn since
+     */
+    private int lastDeltaNewCharCount;
+
     /**
      * Constructor
      * @param gc graphic context whose state will be reflected in the
@@ -227,9 +249,23 @@ public class DOMGroupManager implements SVGSyntax, ErrorConstants {
                 // out delta between current gc and group
                 // context
                 //
-                SVGGraphicContext elementGC =
-                    domTreeManager.gcConverter.toSVG(gc);
-                SVGGraphicContext deltaGC = processDeltaGC(elementGC, groupGC);
+                SVGGraphicContext deltaGC;
+                SVGFont fontConverter =
+                    domTreeManager.gcConverter.getFontConverter();
+                if (lastDeltaGroup == currentGroup &&
+                    lastDeltaModificationCount == gc.getModificationCount() &&
+                    lastDeltaNewCharCount == fontConverter.getNewCharCount()) {
+                    // nothing changed since the last element
+                    deltaGC = copy(lastDeltaGC);
+                } else {
+                    SVGGraphicContext elementGC =
+                        domTreeManager.gcConverter.toSVG(gc);
+                    deltaGC = processDeltaGC(elementGC, groupGC);
+                    lastDeltaGC = copy(deltaGC);
+                    lastDeltaGroup = currentGroup;
+                    lastDeltaModificationCount = gc.getModificationCount();
+                    lastDeltaNewCharCount = fontConverter.getNewCharCount();
+                }
 
                 // If there are less than the maximum number
                 // of differences, then add the node to the current
@@ -310,6 +346,28 @@ public class DOMGroupManager implements SVGSyntax, ErrorConstants {
         }
     }
 
+    /**
+     * @param element element added by this manager
+     * @return true if element is the last element of the current group
+     *         and the group has not been completed yet, i.e. element can
+     *         still be changed in place
+     */
+    public boolean isLastElement(Element element) {
+        return element.getParentNode() == currentGroup
+            && element.getNextSibling() == null
+            && currentGroup.getParentNode() != null
+            && currentGroup.getNextSibling() == null;
+    }
+
+    /**
+     * @return a copy of svgGC whose attribute maps can be modified
+     */
+    private static SVGGraphicContext copy(SVGGraphicContext svgGC) {
+        return new SVGGraphicContext(new HashMap(svgGC.getGroupContext()),
+                                     new HashMap(svgGC.getGraphicElementContext()),
+                                     svgGC.getTransformStack());
+    }
+
     /**
      * Analyses the Map to define how many attributes constitute
      * overrides. Only differences in the group context are considered
@@ -116,6 +116,17 @@ public class DOMTreeManager implements SVGSyntax, ErrorConstants {
      */
     protected List otherDefs;
 
+    /**
+     * Writes completed groups while drawing, null if the document is
+     * kept in memory
+     */
+    protected DOMTreeWriter treeWriter;
+
+    /**
+     * Root of the streamed document
+     */
+    protected Element streamRoot;
+
     /**
      * Constructor
      * @param gc default graphic context state
@@ -172,6 +183,10 @@ public class DOMTreeManager implements SVGSyntax, ErrorConstants {
      * @param groupManager DOMTreeManager that produced the group.
      */
     public void appendGroup(Element group, DOMGroupManager groupManager){
+        // all groups appended before are complete
+        if (treeWriter != null)
+            treeWriter.writeChildren(topLevelGroup);
+
         topLevelGroup.appendChild(group);
         synchronized( groupManagers ){
             // we want to prevent that the groupManagers-list changes while
@@ -252,6 +267,17 @@ public class DOMTreeManager implements SVGSyntax, ErrorConstants {
      * the topLevelGroup.
      */
     public Element getRoot(Element svgElement){
+        Element svg = getRootElement(svgElement);
+        svg.appendChild(getTopLevelGroup());
+
+        return svg;
+    }
+
+    /**
+     * Returns the root element with the generic definitions but
+     * without the topLevelGroup.
+     */
+    public Element getRootElement(Element svgElement){
         Element svg = svgElement;
 
         if (svg == null) {
@@ -275,11 +301,60 @@ public class DOMTreeManager implements SVGSyntax, ErrorConstants {
         applyDefaultRenderingStyle(svg);
 
         svg.appendChild(getGenericDefinitions());
-        svg.appendChild(getTopLevelGroup());
 
         return svg;
     }
 
+    /**
+     * Starts writing the document while it is built. The start of the
+     * document is written immediately, so the attributes of svgRoot
+     * have to be complete. Completed groups are written and removed
+     * from the topLevelGroup.
+     *
+     * @param svgRoot root element as returned by getRootElement
+     * @param treeWriter output
+     */
+    public void startStream(Element svgRoot, DOMTreeWriter treeWriter)
+        throws SVGGraphics2DIOException {
+        treeWriter.writeStart(svgRoot, topLevelGroup);
+        this.streamRoot = svgRoot;
+        this.treeWriter = treeWriter;
+    }
+
+    /**
+     * Writes the remaining groups and the definition set and closes
+     * the document started by startStream.
+     */
+    public void endStream() throws SVGGraphics2DIOException {
+        if (treeWriter == null)
+            return;
+
+        DOMTreeWriter treeWriter = this.treeWriter;
+        this.treeWriter = null;
+
+        // the definitions are only complete now, so they follow the groups
+        Element topLevelGroup = getTopLevelGroup(false);
+        List defSet = getDefinitionSet();
+        if(defSet.size() > 0){
+            Element defElement =
+                generatorContext.domFactory.
+                createElementNS(SVG_NAMESPACE_URI,
+                                SVG_DEFS_TAG);
+            defElement.
+                setAttributeNS(null, SVG_ID_ATTRIBUTE,
+                               generatorContext.idGenerator.
+                               generateID(ID_PREFIX_DEFS));
+
+            Iterator iter = defSet.iterator();
+            while(iter.hasNext())
+                defElement.appendChild((Element)iter.next());
+            topLevelGroup.appendChild(defElement);
+        }
+
+        treeWriter.writeEnd(streamRoot, topLevelGroup);
+        streamRoot = null;
+    }
+
     public void applyDefaultRenderingStyle(Element element) {
         Map groupDefaults = defaultGC.getGroupContext();
         generatorContext.styleHandler.setStyle(element, groupDefaults, generatorContext);
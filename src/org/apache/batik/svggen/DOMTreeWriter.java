@@ -0,0 +1,147 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.svggen;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Writes the document of a <code>DOMTreeManager</code> while it is
+ * built. Every time a group is appended to the top level group, the
+ * groups before it are complete: they are written with
+ * <code>XmlWriter</code> and removed from the DOM tree. Only the current
+ * groups and the definitions stay in memory.
+ *
+ * The elements are written exactly as <code>XmlWriter</code> writes the
+ * complete document, except that the definitions of the top level group
+ * are written after the groups instead of before them.
+ *
+ * @see DOMTreeManager#startStream
+ * @version $Id$
+ */
+public class DOMTreeWriter {
+
+    /**
+     * Output
+     */
+    protected Writer writer;
+
+    /**
+     * Defines whether the styling attributes are converted to CSS
+     */
+    protected boolean useCss;
+
+    /**
+     * Defines if characters above 0x7F are escaped
+     */
+    protected boolean escaped;
+
+    /**
+     * First error, later output is skipped
+     */
+    protected SVGGraphics2DIOException failure;
+
+    /**
+     * @param writer output
+     * @param useCss defines whether the output SVG should use CSS style
+     *        properties as opposed to plain attributes.
+     * @param escaped defines if the characters will be escaped
+     */
+    public DOMTreeWriter(Writer writer, boolean useCss, boolean escaped) {
+        if (writer == null)
+            throw new SVGGraphics2DRuntimeException(ErrorConstants.ERR_PROXY);
+
+        this.writer = writer;
+        this.useCss = useCss;
+        this.escaped = escaped;
+    }
+
+    /**
+     * Writes the document header, the start tag of svgRoot with its
+     * current children and the start tag of topLevelGroup.
+     */
+    public void writeStart(Element svgRoot, Element topLevelGroup)
+        throws SVGGraphics2DIOException {
+        if (useCss) {
+            SVGCSSStyler.style(svgRoot);
+        }
+
+        XmlWriter.writeDocumentHeader(writer);
+        XmlWriter.writeStartTag(svgRoot, writer, escaped);
+        Node child = svgRoot.getFirstChild();
+        while (child != null) {
+            XmlWriter.writeXml(child, writer, escaped);
+            child = child.getNextSibling();
+        }
+
+        if (useCss) {
+            SVGCSSStyler.style(topLevelGroup);
+        }
+        XmlWriter.writeStartTag(topLevelGroup, writer, escaped);
+    }
+
+    /**
+     * Writes and removes all children of topLevelGroup. Errors are kept
+     * until <code>writeEnd</code>, as groups are appended while drawing.
+     */
+    public void writeChildren(Element topLevelGroup) {
+        Node child = topLevelGroup.getFirstChild();
+        while (child != null) {
+            if (failure == null) {
+                try {
+                    if (useCss) {
+                        SVGCSSStyler.style(child);
+                    }
+                    XmlWriter.writeXml(child, writer, escaped);
+                } catch (SVGGraphics2DIOException e) {
+                    failure = e;
+                }
+            }
+            topLevelGroup.removeChild(child);
+            child = topLevelGroup.getFirstChild();
+        }
+    }
+
+    /**
+     * Writes the remaining children of topLevelGroup and closes the
+     * document.
+     *
+     * @throws SVGGraphics2DIOException the first error which occurred
+     *         while writing
+     */
+    public void writeEnd(Element svgRoot, Element topLevelGroup)
+        throws SVGGraphics2DIOException {
+        writeChildren(topLevelGroup);
+        if (failure != null) {
+            throw failure;
+        }
+
+        XmlWriter.writeEndTag(topLevelGroup, writer);
+        XmlWriter.writeEndTag(svgRoot, writer);
+        try {
+            writer.write(XmlWriter.EOL);
+            writer.flush();
+        } catch (IOException io) {
+            throw new SVGGraphics2DIOException(io);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.svggen;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import org.apache.batik.util.Base64EncoderStream;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+
+/**
+ * Encoded image which is embedded into an xlink:href attribute using
+ * the data protocol. Only the encoded bytes are kept. If
+ * {@link SVGGeneratorContext#isDeferredImageData()} is set, the
+ * attribute value in the DOM tree is the protocol prefix and the Base64
+ * data is written by <code>XmlWriter</code> directly to its output, so
+ * no String holding the complete attribute value is ever built.
+ * Otherwise the attribute holds the complete value.
+ *
+ * The data is attached to the attribute node as user data, see
+ * {@link #get(Attr)}.
+ *
+ * @see ImageHandlerBase64Encoder
+ * @version $Id$
+ */
+public class DeferredImageData implements SVGSyntax {
+
+    /**
+     * User data key of the attribute node
+     */
+    public static final String USER_DATA_KEY =
+        "org.apache.batik.svggen.DeferredImageData";
+
+    /**
+     * Data protocol prefix, e.g. {@link #DATA_PROTOCOL_PNG_PREFIX}
+     */
+    private String prefix;
+
+    /**
+     * Encoded image
+     */
+    private ByteArrayOutputStream data;
+
+    /**
+     * @param prefix data protocol prefix of the attribute value
+     * @param data encoded image, it must not be changed afterwards
+     */
+    public DeferredImageData(String prefix, ByteArrayOutputStream data) {
+        this.prefix = prefix;
+        this.data = data;
+    }
+
+    /**
+     * @return the image data of attr or null if its value is a plain
+     *         String
+     */
+    public static DeferredImageData get(Attr attr) {
+        Object data = attr.getUserData(USER_DATA_KEY);
+        return (data instanceof DeferredImageData)
+            ? (DeferredImageData) data : null;
+    }
+
+    /**
+     * Sets the xlink:href attribute of imageElement to this image.
+     *
+     * @param generatorContext decides if the attribute value is deferred
+     *        until the document is written
+     */
+    public void setHREF(Element imageElement,
+                        SVGGeneratorContext generatorContext) {
+        if (!generatorContext.isDeferredImageData()) {
+            imageElement.setAttributeNS(XLINK_NAMESPACE_URI,
+                                        XLINK_HREF_QNAME,
+                                        toString());
+            return;
+        }
+        imageElement.setAttributeNS(XLINK_NAMESPACE_URI,
+                                    XLINK_HREF_QNAME,
+                                    prefix);
+        Attr href = imageElement.getAttributeNodeNS(
+            XLINK_NAMESPACE_URI, XLINK_HREF_ATTRIBUTE);
+        href.setUserData(USER_DATA_KEY, this, null);
+    }
+
+    /**
+     * @return number of encoded bytes
+     */
+    public int getSize() {
+        return data.size();
+    }
+
+    /**
+     * @return number of Base64 characters without line breaks
+     */
+    public int getBase64Length() {
+        return 4 * ((data.size() + 2) / 3);
+    }
+
+    /**
+     * Writes the complete attribute value, the Base64 characters are
+     * encoded while writing.
+     */
+    public void write(Writer writer) throws IOException {
+        writer.write(prefix);
+        WriterOutputStream out = new WriterOutputStream(writer);
+        Base64EncoderStream b64Encoder = new Base64EncoderStream(out, false);
+        data.writeTo(b64Encoder);
+        b64Encoder.close();
+
+        // the PrintStream of the encoder does not pass errors on
+        if (out.failure != null) {
+            throw out.failure;
+        }
+    }
+
+    /**
+     * @return the complete attribute value
+     */
+    public String toString() {
+        StringWriter writer = new StringWriter(prefix.length() + getBase64Length());
+        try {
+            write(writer);
+        } catch (IOException e) {
+            // in-memory processing
+            throw new SVGGraphics2DRuntimeException(ErrorConstants.ERR_UNEXPECTED);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Passes the ASCII output of the Base64 encoder to a Writer
+     */
+    private static class WriterOutputStream extends OutputStream {
+        private Writer writer;
+
+        private char[] buffer = new char[256];
+
+        /**
+         * First error of the writer
+         */
+        IOException failure;
+
+        WriterOutputStream(Writer writer) {
+            this.writer = writer;
+        }
+
+        public void write(int b) throws IOException {
+            try {
+                writer.write(b & 0xFF);
+            } catch (IOException e) {
+                throw fail(e);
+            }
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException {
+            try {
+                while (len > 0) {
+                    int n = Math.min(len, buffer.length);
+                    for (int i = 0; i < n; i++) {
+                        buffer[i] = (char) (b[off + i] & 0xFF);
+                    }
+                    writer.write(buffer, 0, n);
+                    off += n;
+                    len -= n;
+                }
+            } catch (IOException e) {
+                throw fail(e);
+            }
+        }
+
+        public void flush() throws IOException {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                throw fail(e);
+            }
+        }
+
+        private IOException fail(IOException e) {
+            if (failure == null) {
+                failure = e;
+            }
+            return e;
+        }
+    }
+}
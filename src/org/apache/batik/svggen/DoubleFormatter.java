@@ -0,0 +1,307 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.svggen;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Formats double values like a <code>DecimalFormat</code> with the
+ * pattern "#.##..." and a given number of fraction digits, without
+ * creating intermediate objects. The digits are those of the shortest
+ * decimal which reads back as the same double, rounded half-even to the
+ * number of fraction digits.
+ *
+ * The digits are computed with integer arithmetic on the binary
+ * representation of the value. For the rare values whose shortest
+ * decimal ends with a 5 exactly behind the last fraction digit, the
+ * rounding of <code>DecimalFormat</code> depends on details of the JDK,
+ * so these values are formatted by a <code>DecimalFormat</code>.
+ *
+ * Instances are not thread safe.
+ *
+ * @version $Id$
+ */
+public class DoubleFormatter {
+
+    /**
+     * Powers of 5 up to 5^13
+     */
+    private static final long[] POW5 = new long[14];
+
+    /**
+     * Powers of 10 up to 10^17
+     */
+    private static final long[] POW10 = new long[18];
+
+    static {
+        POW5[0] = 1;
+        for (int i = 1; i < POW5.length; i++) {
+            POW5[i] = 5 * POW5[i - 1];
+        }
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = 10 * POW10[i - 1];
+        }
+    }
+
+    /**
+     * Number of fraction digits, 0 to 12
+     */
+    protected int precision;
+
+    /**
+     * Used for ties, created on demand
+     */
+    protected DecimalFormat decimalFormat;
+
+    /**
+     * Result of the last call to digits()
+     */
+    private long digits;
+
+    /**
+     * Value of the last appended number as it is read back
+     */
+    private double lastValue;
+
+    /**
+     * true if the last call to digits() found a decimal which reads
+     * back as the value
+     */
+    private boolean roundTrip;
+
+    /**
+     * @param precision number of fraction digits, clipped to the [0,12]
+     *        range
+     */
+    public DoubleFormatter(int precision) {
+        this.precision = Math.max(0, Math.min(12, precision));
+    }
+
+    /**
+     * @return number of fraction digits
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * @return the value as string
+     */
+    public String format(double value) {
+        return append(new StringBuilder(24), value).toString();
+    }
+
+    /**
+     * Appends the value to sb. Integer values and values above 10e7 are
+     * written without decimals.
+     *
+     * @return sb
+     */
+    public StringBuilder append(StringBuilder sb, double value) {
+        // above 10e7 we do not output decimals as anyway
+        // in scientific notation they were not available
+        if (Math.abs(value) >= 10e7 || (int)value == value) {
+            lastValue = (int)value;
+            return sb.append((int)value);
+        }
+        if (value != value) {
+            // NaN
+            lastValue = value;
+            return sb.append(getDecimalFormat().format(value));
+        }
+
+        long bits = Double.doubleToRawLongBits(value);
+        int exponent = (int)((bits >>> 52) & 0x7FF);
+        long m = bits & 0xFFFFFFFFFFFFFL;
+        int k;
+        if (exponent == 0) {
+            k = 1074;
+        } else {
+            m |= 1L << 52;
+            k = 1075 - exponent;
+        }
+        // |value| = m / 2^k, k > 0 as value is no integer
+        boolean lowerCloser = (m == (1L << 52)) && (exponent > 1);
+
+        // the shortest decimal with up to precision fraction digits
+        for (int q = 0; q <= precision; q++) {
+            digits(m, k, q, lowerCloser);
+            if (roundTrip) {
+                lastValue = value;
+                return append(sb, value < 0, digits, q);
+            }
+        }
+        long rounded = digits;
+
+        // the shortest decimal has more fraction digits, a 5 right behind
+        // the last digit is rounded depending on the JDK
+        digits(m, k, precision + 1, lowerCloser);
+        if (roundTrip && (digits % 10 == 5)) {
+            String result = getDecimalFormat().format(value);
+            lastValue = Double.parseDouble(result);
+            return sb.append(result);
+        }
+        lastValue = (value < 0 ? -rounded : rounded) / (double)POW10[precision];
+        return append(sb, value < 0, rounded, precision);
+    }
+
+    /**
+     * @return the value of the number last written by append, as it is
+     *         read back from the text
+     */
+    public double getLastValue() {
+        return lastValue;
+    }
+
+    /**
+     * Appends digits / 10^q without trailing zeros.
+     */
+    private static StringBuilder append(StringBuilder sb, boolean negative,
+                                        long digits, int q) {
+        while (q > 0 && digits % 10 == 0) {
+            digits /= 10;
+            q--;
+        }
+
+        if (negative) {
+            sb.append('-');
+        }
+        sb.append(digits / POW10[q]);
+        if (q > 0) {
+            long fraction = digits % POW10[q];
+            sb.append('.');
+            for (int i = q - 1; i > 0 && fraction < POW10[i]; i--) {
+                sb.append('0');
+            }
+            sb.append(fraction);
+        }
+        return sb;
+    }
+
+    /**
+     * Rounds m / 2^k half-even to q fraction digits. Sets digits, the
+     * value times 10^q, and roundTrip.
+     */
+    private void digits(long m, int k, int q, boolean lowerCloser) {
+        long f = POW5[q];
+
+        // p = m * 5^q as unsigned 128 bit value, m * 10^q / 2^k = p / 2^s
+        long a = (m & 0xFFFFFFFFL) * f;
+        long b = (m >>> 32) * f;
+        long pLo = a + (b << 32);
+        long pHi = (b >>> 32) + (lessUnsigned(pLo, a) ? 1 : 0);
+        int s = k - q;
+
+        if (s <= 0) {
+            // the decimal is exact, happens only for s == 0 as all
+            // shorter decimals are exact too
+            digits = pLo << -s;
+            roundTrip = true;
+            return;
+        }
+
+        // n = p >>> s, r = p & (2^s - 1), half = 2^(s - 1)
+        long n, rHi, rLo, hHi, hLo;
+        if (s >= 128) {
+            n = 0;
+            rHi = pHi;
+            rLo = pLo;
+        } else if (s >= 64) {
+            n = pHi >>> (s - 64);
+            rHi = (s == 64) ? 0 : pHi & ((1L << (s - 64)) - 1);
+            rLo = pLo;
+        } else {
+            n = (pHi << (64 - s)) | (pLo >>> s);
+            rHi = 0;
+            rLo = pLo & ((1L << s) - 1);
+        }
+        if (s - 1 >= 128) {
+            hHi = Long.MAX_VALUE;
+            hLo = -1;
+        } else if (s - 1 >= 64) {
+            hHi = 1L << (s - 65);
+            hLo = 0;
+        } else {
+            hHi = 0;
+            hLo = 1L << (s - 1);
+        }
+
+        int cmp = compareUnsigned(rHi, rLo, hHi, hLo);
+        boolean up = (cmp > 0) || (cmp == 0 && (n & 1) != 0);
+
+        // distance between decimal and value in units of 1 / (2^k 5^q)
+        long dHi, dLo;
+        if (up) {
+            n++;
+            // 2^s - r
+            long tHi = (s >= 64) ? 1L << (s - 64) : 0;
+            long tLo = (s >= 64) ? 0 : 1L << s;
+            dLo = tLo - rLo;
+            dHi = tHi - rHi - (lessUnsigned(tLo, rLo) ? 1 : 0);
+        } else {
+            dHi = rHi;
+            dLo = rLo;
+        }
+        digits = n;
+
+        // the decimal reads back as the value if it is closer than half
+        // the distance to the neighbour, ties go to the even m
+        if (dHi != 0 || dLo < 0 || dLo > f) {
+            roundTrip = false;
+        } else {
+            long limit = (!up && lowerCloser) ? 4 * dLo : 2 * dLo;
+            roundTrip = (limit < f) || (limit == f && (m & 1) == 0);
+        }
+    }
+
+    private static boolean lessUnsigned(long x, long y) {
+        return (x + Long.MIN_VALUE) < (y + Long.MIN_VALUE);
+    }
+
+    private static int compareUnsigned(long xHi, long xLo, long yHi, long yLo) {
+        if (xHi != yHi) {
+            return lessUnsigned(xHi, yHi) ? -1 : 1;
+        }
+        if (xLo == yLo) {
+            return 0;
+        }
+        return lessUnsigned(xLo, yLo) ? -1 : 1;
+    }
+
+    /**
+     * @return the DecimalFormat used for ties
+     */
+    protected DecimalFormat getDecimalFormat() {
+        if (decimalFormat == null) {
+            StringBuilder pattern = new StringBuilder("#");
+            if (precision > 0) {
+                pattern.append('.');
+                for (int i = 0; i < precision; i++) {
+                    pattern.append('#');
+                }
+            }
+            decimalFormat = new DecimalFormat(pattern.toString(),
+                new DecimalFormatSymbols(Locale.US));
+        }
+        return decimalFormat;
+    }
+}
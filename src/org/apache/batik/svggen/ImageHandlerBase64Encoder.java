@@ -30,7 +30,6 @@ import java.io.OutputStream;
 
 import org.apache.batik.ext.awt.image.spi.ImageWriter;
 import org.apache.batik.ext.awt.image.spi.ImageWriterRegistry;
-import org.apache.batik.util.Base64EncoderStream;
 import org.w3c.dom.Element;
 
 /**
@@ -113,39 +112,26 @@ public class ImageHandlerBase64Encoder extends DefaultImageHandler {
 
     /**
      * This version of handleHREF encodes the input image into a
-     * PNG image whose bytes are then encoded with Base64. The
-     * resulting encoded data is used to set the url on the
-     * input imageElement, using the data: protocol.
+     * PNG image, then encodes the PNG image using Base64 and sets the
+     * result as the url using the data: protocol. If the generator
+     * context defers image data, the Base64 encoding happens while the
+     * document is written, see {@link DeferredImageData}.
      */
     public void handleHREF(RenderedImage image, Element imageElement,
                               SVGGeneratorContext generatorContext)
         throws SVGGraphics2DIOException {
 
         //
-        // Setup Base64Encoder stream to byte array.
+        // Encode the input image to PNG in memory
         //
         ByteArrayOutputStream os = new ByteArrayOutputStream();
-        Base64EncoderStream b64Encoder = new Base64EncoderStream(os);
-        try {
-            //
-            // Now, encode the input image to the base 64 stream.
-            //
-            encodeImage(image, b64Encoder);
-
-            // Close the b64 encoder stream (terminates the b64 streams).
-            b64Encoder.close();
-        } catch (IOException e) {
-            // Should not happen because we are doing in-memory processing
-            throw new SVGGraphics2DIOException(ERR_UNEXPECTED, e);
-        }
+        encodeImage(image, os);
 
         //
-        // Finally, write out url
+        // Finally, set the url
         //
-        imageElement.setAttributeNS(XLINK_NAMESPACE_URI,
-                                    XLINK_HREF_QNAME,
-                                    DATA_PROTOCOL_PNG_PREFIX +
-                                    os.toString());
+        new DeferredImageData(DATA_PROTOCOL_PNG_PREFIX, os)
+            .setHREF(imageElement, generatorContext);
 
     }
 
@@ -19,8 +19,10 @@
 package org.apache.batik.svggen;
 
 import java.awt.Shape;
-import java.awt.geom.GeneralPath;
 import java.awt.geom.Line2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
 
 import org.apache.batik.ext.awt.g2d.GraphicContext;
 import org.w3c.dom.Element;
@@ -73,11 +75,8 @@ public class SVGClip extends AbstractSVGConverter {
         if (clip != null) {
             StringBuffer clipPathAttrBuf = new StringBuffer(URL_PREFIX);
 
-            // First, convert to a GeneralPath so that the
-            GeneralPath clipPath = new GeneralPath(clip);
-
             // Check if this object is already in the Map
-            ClipKey clipKey = new ClipKey(clipPath, generatorContext);
+            ClipKey clipKey = new ClipKey(clip);
             clipDesc = (SVGClipDescriptor)descMap.get(clipKey);
 
             if (clipDesc == null) {
@@ -142,20 +141,136 @@ public class SVGClip extends AbstractSVGConverter {
  * This is needed because we need to test equality
  * on the value of GeneralPath and GeneralPath's equal
  * method does not implement that behavior.
+ *
+ * The key holds the segment types and coordinates of the path.
+ * Axis aligned rectangles, the most frequent clips, are only kept as
+ * their bounds.
  */
 class ClipKey {
     /**
-     * This clip hash code. Based on the serialized path
-     * data
+     * Types of a rectangle clip
+     */
+    private static final byte[] RECTANGLE = { -1 };
+
+    /**
+     * Winding rule followed by the segment types
+     */
+    private byte[] types;
+
+    /**
+     * Coordinates of all segments, in double precision so clips that
+     * differ by less than a float ulp get their own definitions
+     */
+    private double[] coords;
+
+    /**
+     * This clip hash code. Based on the path data
      */
     int hashCodeValue = 0;
 
     /**
-     * @param proxiedPath path used as an index in the Map
+     * @param clip clip used as an index in the Map
+     */
+    public ClipKey(Shape clip) {
+        if (clip instanceof Rectangle2D) {
+            Rectangle2D r = (Rectangle2D)clip;
+            setRectangle(r.getMinX(), r.getMinY(),
+                         r.getMaxX(), r.getMaxY());
+        } else {
+            PathIterator pi = clip.getPathIterator(null);
+            byte[] types = new byte[16];
+            double[] coords = new double[32];
+            double[] seg = new double[6];
+            int nTypes = 1;
+            int nCoords = 0;
+            types[0] = (byte)pi.getWindingRule();
+            while (!pi.isDone()) {
+                int type = pi.currentSegment(seg);
+                int n = segmentCoords(type);
+                if (nTypes == types.length)
+                    types = copyOf(types, 2 * nTypes);
+                if (nCoords + n > coords.length)
+                    coords = copyOf(coords, 2 * coords.length);
+                types[nTypes++] = (byte)type;
+                System.arraycopy(seg, 0, coords, nCoords, n);
+                nCoords += n;
+                pi.next();
+            }
+
+            if (!isRectangle(types, nTypes, coords, nCoords)) {
+                this.types = copyOf(types, nTypes);
+                this.coords = copyOf(coords, nCoords);
+            }
+        }
+        hashCodeValue = 31 * Arrays.hashCode(types) + Arrays.hashCode(coords);
+    }
+
+    private void setRectangle(double x1, double y1, double x2, double y2) {
+        types = RECTANGLE;
+        coords = new double[] { Math.min(x1, x2), Math.min(y1, y2),
+                               Math.max(x1, x2), Math.max(y1, y2) };
+    }
+
+    /**
+     * Checks for a single closed figure with four axis aligned edges
+     * and sets the key to its bounds.
      */
-    public ClipKey(GeneralPath proxiedPath, SVGGeneratorContext gc){
-        String pathData = SVGPath.toSVGPathData(proxiedPath, gc);
-        hashCodeValue = pathData.hashCode();
+    private boolean isRectangle(byte[] types, int nTypes,
+                                double[] coords, int nCoords) {
+        // winding rule, moveto, three or four linetos, close
+        if (nTypes < 6 || nTypes > 7
+            || types[1] != PathIterator.SEG_MOVETO
+            || types[nTypes - 1] != PathIterator.SEG_CLOSE)
+            return false;
+        for (int i = 2; i < nTypes - 1; i++) {
+            if (types[i] != PathIterator.SEG_LINETO)
+                return false;
+        }
+        // a fourth lineto has to return to the start
+        if (nTypes == 7 && (coords[8] != coords[0] || coords[9] != coords[1]))
+            return false;
+
+        // edges alternate between horizontal and vertical
+        boolean horizontal = coords[1] == coords[3];
+        for (int i = 0; i < 8; i += 2) {
+            int j = (i + 2) % 8;
+            boolean h = coords[i + 1] == coords[j + 1];
+            boolean v = coords[i] == coords[j];
+            if (horizontal ? !h : !v)
+                return false;
+            horizontal = !horizontal;
+        }
+        setRectangle(coords[0], coords[1], coords[4], coords[5]);
+        return true;
+    }
+
+    /**
+     * @return number of coordinates of a segment type
+     */
+    private static int segmentCoords(int type) {
+        switch (type) {
+        case PathIterator.SEG_MOVETO:
+        case PathIterator.SEG_LINETO:
+            return 2;
+        case PathIterator.SEG_QUADTO:
+            return 4;
+        case PathIterator.SEG_CUBICTO:
+            return 6;
+        default:
+            return 0;
+        }
+    }
+
+    private static byte[] copyOf(byte[] a, int length) {
+        byte[] copy = new byte[length];
+        System.arraycopy(a, 0, copy, 0, Math.min(a.length, length));
+        return copy;
+    }
+
+    private static double[] copyOf(double[] a, int length) {
+        double[] copy = new double[length];
+        System.arraycopy(a, 0, copy, 0, Math.min(a.length, length));
+        return copy;
     }
 
     /**
@@ -170,7 +285,11 @@ class ClipKey {
      * @return true if equal, false otherwise
      */
     public boolean equals(Object clipKey) {
-        return clipKey instanceof ClipKey
-            && hashCodeValue == ((ClipKey) clipKey).hashCodeValue;
+        if (!(clipKey instanceof ClipKey))
+            return false;
+        ClipKey key = (ClipKey) clipKey;
+        return hashCodeValue == key.hashCodeValue
+            && Arrays.equals(types, key.types)
+            && Arrays.equals(coords, key.coords);
     }
 }
@@ -0,0 +1,304 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.svggen;
+
+import java.awt.Shape;
+import java.awt.geom.PathIterator;
+
+/**
+ * Converts a Shape into short SVG path data. For every segment the
+ * shorter of the absolute and the relative command is used, repeated
+ * command letters are omitted, separators are only written where they
+ * are needed, leading zeros are dropped and axis aligned lines are
+ * written as horizontal or vertical lines.
+ *
+ * Relative coordinates are computed from the current point as it is
+ * read back from the written numbers, so rounding errors do not add up
+ * along the path.
+ *
+ * @see SVGGeneratorContext#setCompactPathData
+ * @version $Id$
+ */
+public class SVGCompactPathData {
+
+    /**
+     * Numbers of a command argument list
+     */
+    private static class Numbers {
+        /**
+         * Numbers with separators, the first one without
+         */
+        final StringBuilder text = new StringBuilder(64);
+
+        /**
+         * Numbers as read back from text
+         */
+        final double[] values = new double[6];
+
+        int count;
+
+        /**
+         * true if the last number contains a '.'
+         */
+        boolean lastDot;
+
+        void reset() {
+            text.setLength(0);
+            count = 0;
+            lastDot = false;
+        }
+    }
+
+    private SVGGeneratorContext gc;
+
+    private DoubleFormatter formatter;
+
+    /**
+     * 10^precision of the context
+     */
+    private double scale;
+
+    private StringBuilder d;
+
+    private Numbers abs = new Numbers();
+
+    private Numbers rel = new Numbers();
+
+    /**
+     * Command which applies to numbers written without command letter,
+     * 0 if there is none
+     */
+    private char implicitCommand;
+
+    /**
+     * true if the last number written to d contains a '.'
+     */
+    private boolean lastDot;
+
+    /**
+     * Current point and start of the current subpath as read back
+     */
+    private double x, y, startX, startY;
+
+    /**
+     * @param gc context defining the precision
+     */
+    public SVGCompactPathData(SVGGeneratorContext gc) {
+        this.gc = gc;
+    }
+
+    /**
+     * @param path the Shape to convert
+     * @return the value of the corresponding d attribute
+     */
+    public String toSVGPathData(Shape path) {
+        formatter = gc.doubleFormatter;
+        scale = Math.pow(10, gc.getPrecision());
+        d = new StringBuilder(40);
+        implicitCommand = 0;
+        lastDot = false;
+        x = y = startX = startY = 0;
+
+        PathIterator pi = path.getPathIterator(null);
+        float[] seg = new float[6];
+        while (!pi.isDone()) {
+            int segType = pi.currentSegment(seg);
+            switch(segType) {
+            case PathIterator.SEG_MOVETO:
+                appendSegment('M', 'm', seg, 1);
+                startX = x;
+                startY = y;
+                break;
+            case PathIterator.SEG_LINETO:
+                appendLine(seg[0], seg[1]);
+                break;
+            case PathIterator.SEG_CLOSE:
+                d.append('Z');
+                implicitCommand = 0;
+                lastDot = false;
+                x = startX;
+                y = startY;
+                break;
+            case PathIterator.SEG_QUADTO:
+                appendSegment('Q', 'q', seg, 2);
+                break;
+            case PathIterator.SEG_CUBICTO:
+                appendSegment('C', 'c', seg, 3);
+                break;
+            default:
+                throw new Error("invalid segmentType:" + segType );
+            }
+            pi.next();
+        }
+        return d.toString();
+    }
+
+    /**
+     * Appends a segment with n points, the last point becomes the
+     * current point.
+     */
+    private void appendSegment(char absCommand, char relCommand,
+                               float[] seg, int n) {
+        abs.reset();
+        rel.reset();
+        for (int i = 0; i < 2 * n; i += 2) {
+            appendNumber(abs, seg[i]);
+            appendNumber(abs, seg[i + 1]);
+            appendNumber(rel, seg[i] - x);
+            appendNumber(rel, seg[i + 1] - y);
+        }
+
+        if (cost(relCommand, rel) < cost(absCommand, abs)) {
+            write(relCommand, rel);
+            x = add(x, rel.values[2 * n - 2]);
+            y = add(y, rel.values[2 * n - 1]);
+        } else {
+            write(absCommand, abs);
+            x = abs.values[2 * n - 2];
+            y = abs.values[2 * n - 1];
+        }
+    }
+
+    /**
+     * Appends a line, horizontal and vertical ones with a single
+     * coordinate.
+     */
+    private void appendLine(float px, float py) {
+        abs.reset();
+        appendNumber(abs, px);
+        appendNumber(abs, py);
+        boolean horizontal = (abs.values[1] == y) && (abs.values[0] != x);
+        boolean vertical = (abs.values[0] == x) && (abs.values[1] != y);
+
+        if (horizontal) {
+            abs.reset();
+            rel.reset();
+            appendNumber(abs, px);
+            appendNumber(rel, px - x);
+            if (cost('h', rel) < cost('H', abs)) {
+                write('h', rel);
+                x = add(x, rel.values[0]);
+            } else {
+                write('H', abs);
+                x = abs.values[0];
+            }
+        } else if (vertical) {
+            abs.reset();
+            rel.reset();
+            appendNumber(abs, py);
+            appendNumber(rel, py - y);
+            if (cost('v', rel) < cost('V', abs)) {
+                write('v', rel);
+                y = add(y, rel.values[0]);
+            } else {
+                write('V', abs);
+                y = abs.values[0];
+            }
+        } else {
+            appendSegment('L', 'l', new float[] {px, py}, 1);
+        }
+    }
+
+    /**
+     * @return the sum of a coordinate and a relative value, rounded to
+     *         the precision so that it compares equal to the same
+     *         coordinate written absolute
+     */
+    private double add(double coordinate, double delta) {
+        double sum = coordinate + delta;
+        if (Math.abs(sum) * scale >= Long.MAX_VALUE) {
+            return sum;
+        }
+        return Math.round(sum * scale) / scale;
+    }
+
+    /**
+     * Appends a number to the argument list, with a separator if it is
+     * needed.
+     */
+    private void appendNumber(Numbers numbers, double value) {
+        StringBuilder text = numbers.text;
+        int separator = text.length();
+        text.append(' ');
+        int start = separator + 1;
+        formatter.append(text, value);
+        numbers.values[numbers.count++] = formatter.getLastValue();
+
+        // "-0" is written as "0", "0.5" as ".5" and "-0.5" as "-.5"
+        int zero = (text.charAt(start) == '-') ? start + 1 : start;
+        if (text.charAt(zero) == '0') {
+            if (zero + 1 == text.length()) {
+                if (zero > start) {
+                    text.deleteCharAt(start);
+                }
+            } else if (text.charAt(zero + 1) == '.') {
+                text.deleteCharAt(zero);
+            }
+        }
+
+        boolean dot = false;
+        for (int i = start; i < text.length() && !dot; i++) {
+            dot = text.charAt(i) == '.';
+        }
+
+        char first = text.charAt(start);
+        if (separator == 0 || first == '-' || (first == '.' && numbers.lastDot)) {
+            text.deleteCharAt(separator);
+        }
+        numbers.lastDot = dot;
+    }
+
+    /**
+     * @return true if a separator is needed between the last number
+     *         written and numbers
+     */
+    private boolean needsSeparator(Numbers numbers) {
+        char first = numbers.text.charAt(0);
+        return !(first == '-' || (first == '.' && lastDot));
+    }
+
+    /**
+     * @return number of characters written by write(command, numbers)
+     */
+    private int cost(char command, Numbers numbers) {
+        if (command != implicitCommand) {
+            return 1 + numbers.text.length();
+        }
+        return (needsSeparator(numbers) ? 1 : 0) + numbers.text.length();
+    }
+
+    private void write(char command, Numbers numbers) {
+        if (command != implicitCommand) {
+            d.append(command);
+        } else if (needsSeparator(numbers)) {
+            d.append(' ');
+        }
+        d.append(numbers.text);
+        lastDot = numbers.lastDot;
+
+        // numbers following a moveto are lines
+        if (command == 'M') {
+            implicitCommand = 'L';
+        } else if (command == 'm') {
+            implicitCommand = 'l';
+        } else {
+            implicitCommand = command;
+        }
+    }
+}
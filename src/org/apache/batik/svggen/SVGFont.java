@@ -19,10 +19,7 @@
 package org.apache.batik.svggen;
 
 import java.awt.Font;
-import java.awt.Shape;
 import java.awt.font.FontRenderContext;
-import java.awt.font.GlyphMetrics;
-import java.awt.font.GlyphVector;
 import java.awt.font.LineMetrics;
 import java.awt.font.TextAttribute;
 import java.awt.geom.AffineTransform;
@@ -32,7 +29,6 @@ import java.util.Map;
 import org.apache.batik.ext.awt.g2d.GraphicContext;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
 
 /**
  * Utility class that converts a Font object into a set of SVG
@@ -149,6 +145,12 @@ public class SVGFont extends AbstractSVGConverter {
      */
     final Map fontStringMap = new HashMap();
 
+    /**
+     * Number of characters recorded for the first time in their font.
+     * Changes whenever toSVG has to add glyphs.
+     */
+    private int newCharCount;
+
     /**
      * @param generatorContext used to build Elements
      */
@@ -188,12 +190,22 @@ public class SVGFont extends AbstractSVGConverter {
         }
         for (int i = 0; i < string.length(); i++) {
             char ch = string.charAt(i);    // todo take care of surrogate chars here...
-            chl.add( ch );
+            if (chl.add( ch ))
+                newCharCount++;
         }
 
         fontStringMap.put(fontKey, chl );
     }
 
+    /**
+     * @return number of characters recorded for the first time in their
+     *         font, the glyphs of the new characters are added by the
+     *         next call to toSVG for the font
+     */
+    int getNewCharCount() {
+        return newCharCount;
+    }
+
     /**
      * Creates a new Font that is of the common font size used for generating
      * SVG fonts. The new Font will be the same as the specified font, with
@@ -306,26 +318,19 @@ public class SVGFont extends AbstractSVGConverter {
                 = domFactory.createElementNS(SVG_NAMESPACE_URI,
                                              SVG_MISSING_GLYPH_TAG);
 
-            int[] missingGlyphCode = new int[1];
-            missingGlyphCode[0] = commonSizeFont.getMissingGlyphCode();
-            GlyphVector gv;
-            gv = commonSizeFont.createGlyphVector(localFRC, missingGlyphCode);
-            Shape missingGlyphShape = gv.getGlyphOutline(0);
-            GlyphMetrics gm = gv.getGlyphMetrics(0);
-
-            // need to turn the missing glyph upside down to be in the font
-            // coordinate system (i.e Y axis up)
-            AffineTransform at = AffineTransform.getScaleInstance(1, -1);
-            missingGlyphShape = at.createTransformedShape(missingGlyphShape);
+            SVGGlyphCache.Glyph missingGlyph =
+                SVGGlyphCache.getInstance().getGlyph(commonSizeFont,
+                                                     SVGGlyphCache.MISSING_GLYPH,
+                                                     localFRC);
 
             missingGlyphElement.setAttributeNS(null, SVG_D_ATTRIBUTE,
-                                    SVGPath.toSVGPathData(missingGlyphShape, generatorContext));
-            missingGlyphElement.setAttributeNS(null, SVG_HORIZ_ADV_X_ATTRIBUTE, String.valueOf( gm.getAdvance() ) );
+                                    SVGPath.toSVGPathData(missingGlyph.outline, generatorContext));
+            missingGlyphElement.setAttributeNS(null, SVG_HORIZ_ADV_X_ATTRIBUTE, String.valueOf( missingGlyph.advance ) );
             fontDef.appendChild(missingGlyphElement);
 
             // set the font's default horizontal advance to be the same as
             // the missing glyph
-            fontDef.setAttributeNS(null, SVG_HORIZ_ADV_X_ATTRIBUTE, String.valueOf( gm.getAdvance() ) );
+            fontDef.setAttributeNS(null, SVG_HORIZ_ADV_X_ATTRIBUTE, String.valueOf( missingGlyph.advance ) );
 
             // set the ascent and descent attributes
             LineMetrics lm = commonSizeFont.getLineMetrics("By", localFRC);
@@ -344,49 +349,23 @@ public class SVGFont extends AbstractSVGConverter {
         String textUsingFont = clh.getNewChars();
         clh.clearNewChars();
 
-        // process the characters in textUsingFont backwards since the new chars
-        // are at the end, can stop when find a char that already has a glyph
-        for (int i = textUsingFont.length()-1; i >= 0; i--) {
+        // CharListHelper reports every character only once per font, so
+        // none of them has a glyph yet
+        for (int i = 0; i < textUsingFont.length(); i++) {
             char c = textUsingFont.charAt(i);
-            String searchStr = String.valueOf( c );
-            boolean foundGlyph = false;
-            NodeList fontChildren = fontDef.getChildNodes();
-            for (int j = 0; j < fontChildren.getLength(); j++) {
-                if (fontChildren.item(j) instanceof Element) {
-                    Element childElement = (Element)fontChildren.item(j);
-                    if (childElement.getAttributeNS(null, SVG_UNICODE_ATTRIBUTE).equals( searchStr )) {
-                        foundGlyph = true;
-                        break;
-                    }
-                }
-            }
-            if (!foundGlyph) {
-                // need to create one
-                Element glyphElement
-                    = domFactory.createElementNS(SVG_NAMESPACE_URI,
-                                                 SVG_GLYPH_TAG);
-
-                GlyphVector gv;
-                gv = commonSizeFont.createGlyphVector(localFRC, ""+c);
-                Shape glyphShape = gv.getGlyphOutline(0);
-                GlyphMetrics gm = gv.getGlyphMetrics(0);
-
-                // need to turn the glyph upside down to be in the font
-                // coordinate system (i.e Y axis up)
-                AffineTransform at = AffineTransform.getScaleInstance(1, -1);
-                glyphShape = at.createTransformedShape(glyphShape);
-
-                glyphElement.setAttributeNS(null, SVG_D_ATTRIBUTE,
-                                            SVGPath.toSVGPathData(glyphShape, generatorContext));
-                glyphElement.setAttributeNS(null, SVG_HORIZ_ADV_X_ATTRIBUTE, String.valueOf( gm.getAdvance() ) );
-                glyphElement.setAttributeNS(null, SVG_UNICODE_ATTRIBUTE,     String.valueOf( c ) );
-
-                fontDef.appendChild(glyphElement);
-            } else {
-                // have reached the chars in textUsingFont that already
-                // have glyphs, don't need to process any further
-                break;
-            }
+            SVGGlyphCache.Glyph glyph =
+                SVGGlyphCache.getInstance().getGlyph(commonSizeFont, c,
+                                                     localFRC);
+
+            Element glyphElement
+                = domFactory.createElementNS(SVG_NAMESPACE_URI,
+                                             SVG_GLYPH_TAG);
+            glyphElement.setAttributeNS(null, SVG_D_ATTRIBUTE,
+                                        SVGPath.toSVGPathData(glyph.outline, generatorContext));
+            glyphElement.setAttributeNS(null, SVG_HORIZ_ADV_X_ATTRIBUTE, String.valueOf( glyph.advance ) );
+            glyphElement.setAttributeNS(null, SVG_UNICODE_ATTRIBUTE,     String.valueOf( c ) );
+
+            fontDef.appendChild(glyphElement);
         }
 
         //
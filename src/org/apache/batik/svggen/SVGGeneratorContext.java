@@ -100,6 +100,43 @@ public class SVGGeneratorContext implements ErrorConstants {
      */
     public boolean svgFont = false;
 
+    /**
+     * Do we write compact path data?
+     */
+    boolean compactPathData = false;
+
+    /**
+     * Path data encoder used if compactPathData is set, created on demand
+     */
+    SVGCompactPathData compactPathDataEncoder;
+
+    /**
+     * Do we merge consecutive paths with the same style?
+     */
+    boolean mergeShapes = false;
+
+    /**
+     * Do image handlers keep only the encoded bytes of embedded images?
+     */
+    boolean deferredImageData = false;
+
+    /**
+     * Maximum deviation of simplified paths in device pixels, 0 if paths
+     * are not simplified
+     */
+    double pathTolerance = 0;
+
+    /**
+     * Grid in device pixels path coordinates are snapped to, 0 for none
+     */
+    double pathGrid = 0;
+
+    /**
+     * Path simplifier used if pathTolerance or pathGrid is set, created
+     * on demand
+     */
+    SVGPathSimplifier pathSimplifier;
+
     /**
      * GraphicContextDefaults
      */
@@ -112,9 +149,9 @@ public class SVGGeneratorContext implements ErrorConstants {
     int precision = 4;
 
     /**
-     * Current double value formatter
+     * Current double value formatter used by doubleString
      */
-    protected DecimalFormat decimalFormat = decimalFormats[precision];
+    protected DoubleFormatter doubleFormatter = new DoubleFormatter(precision);
 
     /**
      * Class to describe the GraphicContext defaults to
@@ -395,6 +432,110 @@ public class SVGGeneratorContext implements ErrorConstants {
         this.svgFont = svgFont;
     }
 
+    /**
+     * Returns <code>true</code> if path data is written in compact form.
+     */
+    public final boolean isCompactPathData() {
+        return compactPathData;
+    }
+
+    /**
+     * Sets if path data is written in compact form: the shorter of
+     * absolute and relative commands, no repeated command letters,
+     * minimal separators and horizontal or vertical lines where possible.
+     * Default value is <code>false</code>.
+     *
+     * @see SVGCompactPathData
+     */
+    public final void setCompactPathData(boolean compactPathData) {
+        this.compactPathData = compactPathData;
+    }
+
+    /**
+     * Returns <code>true</code> if consecutive paths with the same style
+     * are merged into a single path element.
+     */
+    public final boolean isMergeShapes() {
+        return mergeShapes;
+    }
+
+    /**
+     * Sets if consecutive shapes filled or drawn with the same graphic
+     * context and winding rule are merged into a single path element.
+     * Only shapes whose bounds do not intersect are merged, so the
+     * rendering does not change. Default value is <code>false</code>.
+     */
+    public final void setMergeShapes(boolean mergeShapes) {
+        this.mergeShapes = mergeShapes;
+    }
+
+    /**
+     * Returns <code>true</code> if embedded images are kept as
+     * {@link DeferredImageData}.
+     */
+    public final boolean isDeferredImageData() {
+        return deferredImageData;
+    }
+
+    /**
+     * Sets if embedded images are kept as {@link DeferredImageData}: the
+     * xlink:href attribute in the DOM tree only holds the data protocol
+     * prefix and the Base64 data is encoded by <code>XmlWriter</code>
+     * while the document is written. Only turn this on if the document
+     * is written by <code>SVGGraphics2D.stream</code>, other consumers
+     * of the DOM tree do not see the image data. Default value is
+     * <code>false</code>.
+     */
+    public final void setDeferredImageData(boolean deferredImageData) {
+        this.deferredImageData = deferredImageData;
+    }
+
+    /**
+     * Returns the maximum deviation of simplified paths in device pixels.
+     */
+    public final double getPathTolerance() {
+        return pathTolerance;
+    }
+
+    /**
+     * Sets the maximum deviation in device pixels by which path vertices
+     * may be removed before the path data is written. Collinear and
+     * nearly collinear vertices are dropped. Default value is
+     * <code>0</code>, paths are written as they are. Negative values are
+     * treated as 0.
+     *
+     * @see SVGPathSimplifier
+     */
+    public final void setPathTolerance(double pathTolerance) {
+        this.pathTolerance = Math.max(0, pathTolerance);
+    }
+
+    /**
+     * Returns the grid in device pixels path coordinates are snapped to.
+     */
+    public final double getPathGrid() {
+        return pathGrid;
+    }
+
+    /**
+     * Sets the grid in device pixels path coordinates are snapped to, e.g.
+     * 0.5 for half pixels. Snapping moves a point by at most half the
+     * grid diagonal. Default value is
+     * <code>0</code>, no snapping. Negative values are treated as 0.
+     *
+     * @see SVGPathSimplifier
+     */
+    public final void setPathGrid(double pathGrid) {
+        this.pathGrid = Math.max(0, pathGrid);
+    }
+
+    /**
+     * Returns <code>true</code> if paths are simplified or snapped.
+     */
+    public final boolean isPathSimplified() {
+        return pathTolerance > 0 || pathGrid > 0;
+    }
+
     /**
      * Returns the current precision used by this context
      */
@@ -416,7 +557,7 @@ public class SVGGeneratorContext implements ErrorConstants {
         } else {
             this.precision = precision;
         }
-        decimalFormat = decimalFormats[this.precision];
+        doubleFormatter = new DoubleFormatter(this.precision);
     }
 
     /**
@@ -432,13 +573,27 @@ public class SVGGeneratorContext implements ErrorConstants {
         }
         // under 10e-3 we have to put decimals
         else {
-            return decimalFormat.format(value);
+            return doubleFormatter.format(value);
         }
     }
 
+    /**
+     * Appends the input double value to sb, with the same digits as
+     * returned by doubleString but without creating a String.
+     */
+    public final StringBuilder appendDouble(StringBuilder sb, double value) {
+        return doubleFormatter.append(sb, value);
+    }
+
+    /**
+     * @deprecated not used, numbers are formatted by {@link DoubleFormatter}
+     */
     protected static DecimalFormatSymbols dsf
         = new DecimalFormatSymbols(Locale.US);
 
+    /**
+     * @deprecated not used, numbers are formatted by {@link DoubleFormatter}
+     */
     protected static DecimalFormat[] decimalFormats = new DecimalFormat[13];
 
     static {
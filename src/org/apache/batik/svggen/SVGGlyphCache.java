@@ -0,0 +1,201 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.svggen;
+
+import java.awt.Font;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.AffineTransform;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process wide, least recently used cache of the glyph outlines
+ * embedded by <code>SVGFont</code>. Extracting an outline from the font
+ * is expensive, and converting many documents in one process uses the
+ * same characters of the same fonts over and over.
+ *
+ * Outlines are kept in the font coordinate system of SVG, i.e. with the
+ * Y axis up. The returned outlines are shared and must not be changed.
+ *
+ * @version $Id$
+ */
+public class SVGGlyphCache {
+
+    /**
+     * Default maximum number of glyphs
+     */
+    public static final int DEFAULT_SIZE = 4096;
+
+    /**
+     * Code point used for the missing glyph of a font
+     */
+    static final int MISSING_GLYPH = -1;
+
+    private static final SVGGlyphCache instance =
+        new SVGGlyphCache(DEFAULT_SIZE);
+
+    /**
+     * Outline and advance of a single glyph
+     */
+    static final class Glyph {
+
+        final Shape outline;
+
+        final float advance;
+
+        private Glyph(Shape outline, float advance) {
+            this.outline = outline;
+            this.advance = advance;
+        }
+    }
+
+    private static final class Key {
+
+        private final Font font;
+
+        private final int codePoint;
+
+        private final boolean antiAliased;
+
+        private final boolean fractionalMetrics;
+
+        private final int hashCode;
+
+        private Key(Font font, int codePoint, FontRenderContext frc) {
+            this.font = font;
+            this.codePoint = codePoint;
+            this.antiAliased = frc.isAntiAliased();
+            this.fractionalMetrics = frc.usesFractionalMetrics();
+            this.hashCode = ((31 * font.hashCode() + codePoint) * 2
+                             + (antiAliased ? 1 : 0)) * 2
+                             + (fractionalMetrics ? 1 : 0);
+        }
+
+        public int hashCode() {
+            return hashCode;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return hashCode == key.hashCode
+                && codePoint == key.codePoint
+                && antiAliased == key.antiAliased
+                && fractionalMetrics == key.fractionalMetrics
+                && font.equals(key.font);
+        }
+    }
+
+    private final Map entries;
+
+    private int hits;
+
+    private int misses;
+
+    /**
+     * @return the cache shared by all SVGFont converters
+     */
+    public static SVGGlyphCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * @param maxSize maximum number of glyphs kept
+     */
+    public SVGGlyphCache(final int maxSize) {
+        entries = new LinkedHashMap(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            protected boolean removeEldestEntry(Map.Entry eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @param font font at the common size of the SVG fonts
+     * @param codePoint character or MISSING_GLYPH
+     * @param frc context without transform
+     * @return outline and advance of the glyph
+     */
+    synchronized Glyph getGlyph(Font font, int codePoint,
+                                FontRenderContext frc) {
+        Key key = new Key(font, codePoint, frc);
+        Glyph glyph = (Glyph)entries.get(key);
+        if (glyph != null) {
+            hits++;
+            return glyph;
+        }
+
+        misses++;
+        GlyphVector gv;
+        if (codePoint == MISSING_GLYPH) {
+            gv = font.createGlyphVector(frc,
+                                        new int[] {font.getMissingGlyphCode()});
+        } else {
+            gv = font.createGlyphVector(frc,
+                                        new String(Character.toChars(codePoint)));
+        }
+
+        // need to turn the glyph upside down to be in the font
+        // coordinate system (i.e Y axis up)
+        AffineTransform at = AffineTransform.getScaleInstance(1, -1);
+        glyph = new Glyph(at.createTransformedShape(gv.getGlyphOutline(0)),
+                          gv.getGlyphMetrics(0).getAdvance());
+        entries.put(key, glyph);
+        return glyph;
+    }
+
+    /**
+     * @return number of glyphs answered from the cache
+     */
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    /**
+     * @return number of glyphs extracted from a font
+     */
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return number of glyphs kept
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes all glyphs, the counters are kept
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized String toString() {
+        return entries.size() + " glyphs, " + hits + " hits, " + misses
+            + " misses";
+    }
+}
@@ -48,6 +48,42 @@ public class SVGGraphicContextConverter {
     private SVGConverter[] converters =
         new SVGConverter[GRAPHIC_CONTEXT_CONVERTER_COUNT];
 
+    /**
+     * GraphicContext attributes each converter depends on, as bit masks
+     */
+    private static final int[] dependencies = {
+        1 << GraphicContext.PAINT,
+        1 << GraphicContext.STROKE,
+        1 << GraphicContext.COMPOSITE,
+        (1 << GraphicContext.CLIP) | (1 << GraphicContext.TRANSFORM),
+        1 << GraphicContext.HINTS,
+        // the FontRenderContext depends on the hints and the transform
+        (1 << GraphicContext.FONT) | (1 << GraphicContext.HINTS)
+        | (1 << GraphicContext.TRANSFORM)
+    };
+
+    /**
+     * GraphicContext converted last
+     */
+    private GraphicContext lastGC;
+
+    /**
+     * Modification counts of lastGC when it was converted
+     */
+    private int[] lastModificationCounts =
+        new int[GraphicContext.ATTRIBUTE_COUNT];
+
+    /**
+     * New character count of the font converter when it was last run
+     */
+    private int lastNewCharCount;
+
+    /**
+     * Descriptors of the last conversion
+     */
+    private SVGDescriptor[] descriptors =
+        new SVGDescriptor[GRAPHIC_CONTEXT_CONVERTER_COUNT];
+
     public SVGTransform getTransformConverter() { return transformConverter; }
     public SVGPaint getPaintConverter(){ return paintConverter; }
     public SVGBasicStroke getStrokeConverter(){ return strokeConverter; }
@@ -92,17 +128,39 @@ public class SVGGraphicContextConverter {
     /**
      * @return an object that describes the set of SVG attributes that
      *         represent the equivalent of the input GraphicContext state.
+     *         Converters are only run if the attributes they depend on
+     *         changed since the last conversion of gc.
      */
     public SVGGraphicContext toSVG(GraphicContext gc) {
+        // attributes modified since the last conversion
+        int modified = -1;
+        if (gc == lastGC) {
+            modified = 0;
+            for (int i=0; i<lastModificationCounts.length; i++) {
+                if (gc.getModificationCount(i) != lastModificationCounts[i])
+                    modified |= 1 << i;
+            }
+            // embedded fonts need glyphs for newly drawn characters
+            if (fontConverter.getNewCharCount() != lastNewCharCount)
+                modified |= 1 << GraphicContext.FONT;
+        }
+
         // no need for synchronized map => use HashMap
         Map groupAttrMap = new HashMap();
 
         for (int i=0; i<converters.length; i++) {
-            SVGDescriptor desc = converters[i].toSVG(gc);
+            if ((modified & dependencies[i]) != 0)
+                descriptors[i] = converters[i].toSVG(gc);
+            SVGDescriptor desc = descriptors[i];
             if (desc != null)
                 desc.getAttributeMap(groupAttrMap);
         }
 
+        for (int i=0; i<lastModificationCounts.length; i++)
+            lastModificationCounts[i] = gc.getModificationCount(i);
+        lastGC = gc;
+        lastNewCharCount = fontConverter.getNewCharCount();
+
         // the ctor will to the splitting (group/element) job
         return new SVGGraphicContext(groupAttrMap,
                                      gc.getTransformStack());
@@ -47,4 +47,11 @@ public abstract class SVGGraphicObjectConverter implements SVGSyntax {
     public final String doubleString(double value) {
         return generatorContext.doubleString(value);
     }
+
+    /**
+     * Utility method for subclasses.
+     */
+    public final StringBuilder appendDouble(StringBuilder sb, double value) {
+        return generatorContext.appendDouble(sb, value);
+    }
 }
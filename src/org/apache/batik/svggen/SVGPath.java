@@ -85,7 +85,14 @@ public class SVGPath extends SVGGraphicObjectConverter {
      * @return the value of the corresponding d attribute
      */
      public static String toSVGPathData(Shape path, SVGGeneratorContext gc) {
-        StringBuffer d = new StringBuffer( 40 );
+        if (gc.isCompactPathData()) {
+            if (gc.compactPathDataEncoder == null) {
+                gc.compactPathDataEncoder = new SVGCompactPathData(gc);
+            }
+            return gc.compactPathDataEncoder.toSVGPathData(path);
+        }
+
+        StringBuilder d = new StringBuilder( 40 );
         PathIterator pi = path.getPathIterator(null);
         float[] seg = new float[6];
         int segType = 0;
@@ -143,10 +150,10 @@ public class SVGPath extends SVGGraphicObjectConverter {
     /**
      * Appends a coordinate to the path data
      */
-    private static void appendPoint(StringBuffer d, float x, float y, SVGGeneratorContext gc) {
-        d.append(gc.doubleString(x));
+    private static void appendPoint(StringBuilder d, float x, float y, SVGGeneratorContext gc) {
+        gc.appendDouble(d, x);
         d.append(SPACE);
-        d.append(gc.doubleString(y));
+        gc.appendDouble(d, y);
         d.append(SPACE);
     }
 }
@@ -0,0 +1,318 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.svggen;
+
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.PathIterator;
+
+/**
+ * Reduces the geometry of a Shape before it is converted to path data.
+ * All coordinates are first transformed to device space and snapped to
+ * a grid, then the vertices of each run of line segments are reduced
+ * with the Douglas-Peucker algorithm, which also drops collinear and
+ * repeated vertices. The result is transformed back to user space.
+ *
+ * Snapping moves a point by at most half the diagonal of a grid cell,
+ * Douglas-Peucker is run with what remains of the tolerance, so no
+ * point of the result is farther than the tolerance from the original
+ * outline in device space, unless half the grid diagonal is larger
+ * than the tolerance. Curve segments are snapped but not reduced.
+ *
+ * Instances are not thread safe.
+ *
+ * @see SVGGeneratorContext#setPathTolerance
+ * @see SVGGeneratorContext#setPathGrid
+ * @version $Id$
+ */
+public class SVGPathSimplifier {
+
+    /**
+     * Distance in device pixels below which a vertex counts as collinear
+     * even if no tolerance is set
+     */
+    private static final double COLLINEAR = 1e-6;
+
+    private SVGGeneratorContext gc;
+
+    /**
+     * Device coordinates of the current run of lines, x and y interleaved
+     */
+    private double[] points = new double[64];
+
+    private int pointCount;
+
+    /**
+     * true if the first point of the current run is already written as
+     * the end point of a curve
+     */
+    private boolean firstWritten;
+
+    /**
+     * true for the vertices of the run that are kept
+     */
+    private boolean[] keep = new boolean[32];
+
+    /**
+     * Index pairs of the ranges still to be reduced
+     */
+    private int[] ranges = new int[64];
+
+    private AffineTransform inverse;
+
+    private GeneralPath result;
+
+    /**
+     * Number of vertices read and written by the last call
+     */
+    private int inCount, outCount;
+
+    /**
+     * @param gc context defining tolerance and grid
+     */
+    public SVGPathSimplifier(SVGGeneratorContext gc) {
+        this.gc = gc;
+    }
+
+    /**
+     * @param shape the Shape to reduce
+     * @param at transform from user space to device space
+     * @return the reduced shape in user space, or shape if at is not
+     *         invertible or the shape does not get smaller
+     */
+    public Shape simplify(Shape shape, AffineTransform at) {
+        double grid = gc.getPathGrid();
+        double tolerance = gc.getPathTolerance();
+        if (grid > 0) {
+            tolerance -= grid * Math.sqrt(0.5);
+        }
+        tolerance = Math.max(tolerance, COLLINEAR);
+
+        try {
+            inverse = at.createInverse();
+        } catch (NoninvertibleTransformException e) {
+            return shape;
+        }
+
+        PathIterator pi = shape.getPathIterator(null);
+        result = new GeneralPath(pi.getWindingRule());
+        pointCount = 0;
+        firstWritten = false;
+        inCount = outCount = 0;
+
+        double[] seg = new double[6];
+        // device coordinates of the last move, where a close returns to
+        double moveX = 0, moveY = 0;
+        while (!pi.isDone()) {
+            int segType = pi.currentSegment(seg);
+            int n = 0;
+            switch (segType) {
+            case PathIterator.SEG_MOVETO:
+            case PathIterator.SEG_LINETO:
+                n = 1;
+                break;
+            case PathIterator.SEG_QUADTO:
+                n = 2;
+                break;
+            case PathIterator.SEG_CUBICTO:
+                n = 3;
+                break;
+            }
+            at.transform(seg, 0, seg, 0, n);
+            if (grid > 0) {
+                for (int i = 0; i < 2 * n; i++) {
+                    seg[i] = Math.rint(seg[i] / grid) * grid;
+                }
+            }
+            inCount += n;
+
+            if (segType == PathIterator.SEG_LINETO && pointCount > 0) {
+                addPoint(seg[0], seg[1]);
+            } else {
+                flush(tolerance);
+                switch (segType) {
+                case PathIterator.SEG_MOVETO:
+                    moveX = seg[0];
+                    moveY = seg[1];
+                    addPoint(seg[0], seg[1]);
+                    break;
+                case PathIterator.SEG_LINETO:
+                    // line without a preceding point, keep as it is
+                    startRun(seg[0], seg[1]);
+                    inverse.transform(seg, 0, seg, 0, 1);
+                    result.lineTo((float)seg[0], (float)seg[1]);
+                    outCount++;
+                    break;
+                case PathIterator.SEG_QUADTO:
+                    // the end point starts the next run of lines
+                    startRun(seg[2], seg[3]);
+                    inverse.transform(seg, 0, seg, 0, 2);
+                    result.quadTo((float)seg[0], (float)seg[1],
+                                  (float)seg[2], (float)seg[3]);
+                    outCount += 2;
+                    break;
+                case PathIterator.SEG_CUBICTO:
+                    startRun(seg[4], seg[5]);
+                    inverse.transform(seg, 0, seg, 0, 3);
+                    result.curveTo((float)seg[0], (float)seg[1],
+                                   (float)seg[2], (float)seg[3],
+                                   (float)seg[4], (float)seg[5]);
+                    outCount += 3;
+                    break;
+                case PathIterator.SEG_CLOSE:
+                    result.closePath();
+                    // lines after the close start at the last move
+                    startRun(moveX, moveY);
+                    break;
+                }
+            }
+            pi.next();
+        }
+        flush(tolerance);
+
+        Shape simplified = result;
+        result = null;
+        inverse = null;
+        return (outCount < inCount || gc.getPathGrid() > 0) ? simplified
+                                                             : shape;
+    }
+
+    /**
+     * Starts a run of lines at the end point of a curve or line, or at
+     * the start of a closed subpath, which has already been written.
+     */
+    private void startRun(double x, double y) {
+        addPoint(x, y);
+        firstWritten = true;
+    }
+
+    private void addPoint(double x, double y) {
+        if (2 * pointCount + 2 > points.length) {
+            double[] t = new double[2 * points.length];
+            System.arraycopy(points, 0, t, 0, 2 * pointCount);
+            points = t;
+        }
+        points[2 * pointCount] = x;
+        points[2 * pointCount + 1] = y;
+        pointCount++;
+    }
+
+    /**
+     * Reduces the pending run of lines and appends it to the result
+     */
+    private void flush(double tolerance) {
+        boolean written = firstWritten;
+        int n = pointCount;
+        pointCount = 0;
+        firstWritten = false;
+        if (n == 0) {
+            return;
+        }
+
+        if (keep.length < n) {
+            keep = new boolean[Math.max(n, 2 * keep.length)];
+        }
+        for (int i = 0; i < n; i++) {
+            keep[i] = false;
+        }
+        keep[0] = true;
+        keep[n - 1] = true;
+        reduce(n, tolerance);
+
+        float[] p = new float[2];
+        for (int i = written ? 1 : 0; i < n; i++) {
+            if (!keep[i]) {
+                continue;
+            }
+            inverse.transform(points, 2 * i, p, 0, 1);
+            if (i == 0) {
+                result.moveTo(p[0], p[1]);
+            } else {
+                result.lineTo(p[0], p[1]);
+            }
+            outCount++;
+        }
+    }
+
+    /**
+     * Douglas-Peucker on points 0 to n-1, iterative so long runs do not
+     * overflow the stack
+     */
+    private void reduce(int n, double tolerance) {
+        int top = 0;
+        if (n > 2) {
+            ranges[top++] = 0;
+            ranges[top++] = n - 1;
+        }
+        while (top > 0) {
+            int last = ranges[--top];
+            int first = ranges[--top];
+
+            double maxDistance = -1;
+            int farthest = -1;
+            for (int i = first + 1; i < last; i++) {
+                double d = distance(i, first, last);
+                if (d > maxDistance) {
+                    maxDistance = d;
+                    farthest = i;
+                }
+            }
+            if (maxDistance <= tolerance) {
+                continue;
+            }
+
+            keep[farthest] = true;
+            if (top + 4 > ranges.length) {
+                int[] t = new int[2 * ranges.length];
+                System.arraycopy(ranges, 0, t, 0, top);
+                ranges = t;
+            }
+            if (farthest - first > 1) {
+                ranges[top++] = first;
+                ranges[top++] = farthest;
+            }
+            if (last - farthest > 1) {
+                ranges[top++] = farthest;
+                ranges[top++] = last;
+            }
+        }
+    }
+
+    /**
+     * @return distance of point i from the segment from point a to point
+     *         b; the segment, not the line, so reversals are kept
+     */
+    private double distance(int i, int a, int b) {
+        double ax = points[2 * a], ay = points[2 * a + 1];
+        double dx = points[2 * b] - ax, dy = points[2 * b + 1] - ay;
+        double px = points[2 * i] - ax, py = points[2 * i + 1] - ay;
+        double lengthSq = dx * dx + dy * dy;
+        double t = (lengthSq > 0) ? (px * dx + py * dy) / lengthSq : 0;
+        if (t < 0) {
+            t = 0;
+        } else if (t > 1) {
+            t = 1;
+        }
+        px -= t * dx;
+        py -= t * dy;
+        return Math.sqrt(px * px + py * py);
+    }
+}
@@ -20,6 +20,7 @@ package org.apache.batik.svggen;
 
 import java.awt.Polygon;
 import java.awt.Shape;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Arc2D;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Line2D;
@@ -86,4 +87,31 @@ public class SVGShape extends SVGGraphicObjectConverter {
         else
             return svgPath.toSVG(shape);
     }
+
+    /**
+     * Converts a shape after simplifying it in device space, if the
+     * context sets a path tolerance or grid. Polygons and shapes which
+     * are converted to paths are simplified, see {@link SVGPathSimplifier}.
+     *
+     * @param shape Shape object to be converted
+     * @param deviceTransform transform from user space to device space
+     */
+    public Element toSVG(Shape shape, AffineTransform deviceTransform){
+        if (!generatorContext.isPathSimplified()
+            || shape instanceof Rectangle2D
+            || shape instanceof RoundRectangle2D
+            || shape instanceof Ellipse2D
+            || shape instanceof Line2D
+            || shape instanceof Arc2D)
+            return toSVG(shape);
+
+        if (generatorContext.pathSimplifier == null)
+            generatorContext.pathSimplifier =
+                new SVGPathSimplifier(generatorContext);
+        Shape simplified =
+            generatorContext.pathSimplifier.simplify(shape, deviceTransform);
+        if (simplified == shape)
+            return toSVG(shape);
+        return svgPath.toSVG(simplified);
+    }
 }
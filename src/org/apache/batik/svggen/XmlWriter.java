@@ -46,7 +46,7 @@ import org.w3c.dom.Text;
  */
 public class XmlWriter implements SVGConstants {
 
-    private static String EOL;
+    static String EOL;
     private static final String TAG_END = "/>";
     private static final String TAG_START = "</";
 
@@ -149,7 +149,13 @@ public class XmlWriter implements SVGConstants {
         String name = attr.getName();
         out.write (name);
         out.write ("=\"");
-        writeChildrenXml(attr, out, escaped);
+        DeferredImageData imageData = DeferredImageData.get(attr);
+        if (imageData != null) {
+            // Base64 characters need no escaping
+            imageData.write(out);
+        } else {
+            writeChildrenXml(attr, out, escaped);
+        }
         out.write ('"');
     }
 
@@ -483,6 +489,60 @@ public class XmlWriter implements SVGConstants {
         }
     }
 
+    /**
+     * Writes the XML declaration and the SVG DOCTYPE. Used together with
+     * writeStartTag and writeEndTag to write a document piece by piece.
+     */
+    static void writeDocumentHeader(Writer writer)
+        throws SVGGraphics2DIOException {
+        try {
+            writeDocumentHeader(new IndentWriter(writer));
+        } catch (IOException io) {
+            throw new SVGGraphics2DIOException(io);
+        }
+    }
+
+    /**
+     * Writes the start tag of element with all its attributes, but none
+     * of its children.
+     */
+    static void writeStartTag(Element element, Writer writer, boolean escaped)
+        throws SVGGraphics2DIOException {
+        try {
+            IndentWriter out = new IndentWriter(writer);
+            out.write (TAG_START, 0, 1);    // "<"
+            out.write (element.getTagName());
+            NamedNodeMap attributes = element.getAttributes();
+            if (attributes != null){
+                int nAttr = attributes.getLength();
+                for(int i=0; i<nAttr; i++){
+                    Attr attr = (Attr)attributes.item(i);
+                    out.write(' ');
+                    writeXml(attr, out, escaped);
+                }
+            }
+            out.write(TAG_END, 1, 1);   // ">"
+            out.write (EOL);
+        } catch (IOException io) {
+            throw new SVGGraphics2DIOException(io);
+        }
+    }
+
+    /**
+     * Writes the end tag of element.
+     */
+    static void writeEndTag(Element element, Writer writer)
+        throws SVGGraphics2DIOException {
+        try {
+            writer.write (TAG_START, 0, 2);        // "</"
+            writer.write (element.getTagName());
+            writer.write (TAG_END, 1, 1);  // ">"
+            writer.write (EOL);
+        } catch (IOException io) {
+            throw new SVGGraphics2DIOException(io);
+        }
+    }
+
     static String java2std(String encodingName) {
         if (encodingName == null)
             return null;
@@ -22,7 +22,9 @@ package org.apache.batik.transcoder.wmf.tosvg;
 import java.awt.Rectangle;
 import java.awt.Toolkit;
 import java.awt.geom.Rectangle2D;
+import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.util.List;
 import java.util.ArrayList;
@@ -81,25 +83,50 @@ public abstract class AbstractWMFReader {
      * Read the next short (2 bytes) value in the DataInputStream.
      */
     protected short readShort(DataInputStream is) throws IOException {
-        byte js[] = new byte[ 2 ];
-        is.readFully(js);
-        int iTemp = ((0xff) & js[ 1 ] ) << 8;
-        short i = (short)(0xffff & iTemp);
-        i |= ((0xff) & js[ 0 ] );
-        return i;
+        int b0 = is.read();
+        int b1 = is.read();
+        if (( b0 | b1 ) < 0) throw new EOFException();
+        return (short)(( b1 << 8 ) | b0 );
     }
 
     /** 
      * Read the next int (4 bytes) value in the DataInputStream.
      */    
     protected int readInt( DataInputStream is) throws IOException {
-        byte js[] = new byte[ 4 ];
-        is.readFully(js);
-        int i = ((0xff) & js[ 3 ] ) << 24;
-        i |= ((0xff) & js[ 2 ] ) << 16;
-        i |= ((0xff) & js[ 1 ] ) << 8;
-        i |= ((0xff) & js[ 0 ] );
-        return i;
+        int b0 = is.read();
+        int b1 = is.read();
+        int b2 = is.read();
+        int b3 = is.read();
+        if (( b0 | b1 | b2 | b3 ) < 0) throw new EOFException();
+        return ( b3 << 24 ) | ( b2 << 16 ) | ( b1 << 8 ) | b0;
+    }
+
+    /**
+     * Reads the rest of the stream into memory, so the records are
+     * decoded from a buffer instead of the underlying stream.
+     *
+     * @param is the stream positioned after the header
+     * @param sizeHint expected number of bytes, taken from the header
+     */
+    private static DataInputStream readBuffer( DataInputStream is, int sizeHint ) throws IOException {
+        // do not trust the header of a damaged file for the initial size
+        byte[] buf = new byte[ Math.max( Math.min( sizeHint, 0x1000000 ), 4096 ) ];
+        int len = 0;
+        while ( true ) {
+            if ( len == buf.length ) {
+                // most files end exactly at the size of the header
+                int b = is.read();
+                if ( b < 0 ) break;
+                byte[] t = new byte[ 2 * buf.length ];
+                System.arraycopy( buf, 0, t, 0, len );
+                buf = t;
+                buf[ len++ ] = (byte)b;
+            }
+            int n = is.read( buf, len, buf.length - len );
+            if ( n < 0 ) break;
+            len += n;
+        }
+        return new DataInputStream( new ByteArrayInputStream( buf, 0, len ));
     }
 
     /**
@@ -411,8 +438,10 @@ public abstract class AbstractWMFReader {
         }
         objectVector.addAll( tempList );
 
-        boolean ret = readRecords(is);
+        // mtSize counts the 9 words of the header, which are read already
+        DataInputStream records = readBuffer( is, 2 * mtSize - 18 );
         is.close();
+        boolean ret = readRecords(records);
         if (!ret) throw new IOException("Unhandled exception while reading records");
     }
 
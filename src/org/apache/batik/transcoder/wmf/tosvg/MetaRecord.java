@@ -19,13 +19,12 @@
 
 package org.apache.batik.transcoder.wmf.tosvg;
 
-import java.util.List;
-import java.util.ArrayList;
-
 /**
  * This is used to keep data while processing WMF-files.
- * It is tagged with a type and holds a list of Integer-objects.
- * It seems, it might be rewritten to keep just the plain int-data.
+ * It is tagged with a type and holds a list of int-values. The values
+ * of all records read by one <code>WMFRecordStore</code> are kept in a
+ * shared {@link Parameters} arena, each record only knows its offset
+ * and count in it, so reading a file does not box every parameter.
  *
  * @author <a href="mailto:bella.robinson@cmis.csiro.au">Bella Robinson</a>
  * @version $Id: MetaRecord.java 582434 2007-10-06 02:11:51Z cam $
@@ -35,30 +34,91 @@ public class MetaRecord /*implements Serializable*/ {
     public int functionId;
     public int numPoints;
 
-    private final List ptVector = new ArrayList();
+    /**
+     * A growable array of int-values shared by the records of a file.
+     */
+    static final class Parameters {
+
+        int[] values;
+
+        int size;
+
+        /**
+         * @param capacity initial number of values
+         */
+        Parameters( int capacity ) {
+            values = new int[ Math.max( capacity, 8 ) ];
+        }
+
+        void add( int iValue ) {
+            if ( size == values.length ) {
+                int[] t = new int[ 2 * values.length ];
+                System.arraycopy( values, 0, t, 0, size );
+                values = t;
+            }
+            values[ size++ ] = iValue;
+        }
+    }
+
+    /**
+     * the arena holding the values, created on the first value
+     * if the record does not share one
+     */
+    private Parameters parameters;
+
+    /**
+     * position of the first value in parameters
+     */
+    private int offset;
+
+    /**
+     * number of values of this record
+     */
+    private int count;
 
     public MetaRecord() {
     }
 
+    /**
+     * @param parameters arena shared with the other records of a file
+     */
+    MetaRecord( Parameters parameters ) {
+        this.parameters = parameters;
+    }
+
     public void EnsureCapacity( int cc ) {
     }
 
     /**
      * when you are storing Integer-objects, consider using addElement( int ) instead.
-     * @param obj
+     * @param obj an Integer
      */
     public void AddElement( Object obj ) {
-        ptVector.add( obj );
+        addElement( ((Integer)obj).intValue() );
     }
 
     /**
-     * helper method to add int-values. This way we keep the call to new Integer()
-     * in one place, here.
+     * helper method to add int-values. The values of a record are
+     * contiguous in the arena: if another record has added values in
+     * the meantime, the values of this record are moved to the end first.
      *
-     * @param iValue  the value to add to ptVector, wrapped in an Integer
+     * @param iValue  the value to add
      */
     public final void addElement( int iValue ){
-        ptVector.add( new Integer( iValue ) );
+        if ( parameters == null ) {
+            parameters = new Parameters( 8 );
+        }
+        if ( count == 0 ) {
+            offset = parameters.size;
+        } else if ( offset + count != parameters.size ) {
+            int start = parameters.size;
+            for ( int i = 0; i < count; i++ ) {
+                parameters.add( parameters.values[ offset + i ] );
+            }
+            offset = start;
+        }
+        parameters.add( iValue );
+        count++;
     }
 
     /**
@@ -67,17 +127,26 @@ public class MetaRecord /*implements Serializable*/ {
      * which returns an <code>int</code>.
      */
     public Integer ElementAt( int offset ) {
-        return (Integer)ptVector.get( offset );
+        return new Integer( elementAt( offset ) );
     }
 
     /**
-     * helper-method to return the plain int-value from the record
-     * and save the .intValue()-call at the caller's site.
+     * helper-method to return the plain int-value from the record.
      * @param offset of the element to get
      * @return the intValue of the element at offset
      */
     public final int elementAt( int offset ){
-        return ((Integer)ptVector.get( offset )).intValue();
+        if ( offset < 0 || offset >= count ) {
+            throw new IndexOutOfBoundsException( "Index: " + offset + ", Size: " + count );
+        }
+        return parameters.values[ this.offset + offset ];
+    }
+
+    /**
+     * @return the number of int-values of this record
+     */
+    public final int size() {
+        return count;
     }
 
     /** A record that contain byte arrays elements.
@@ -88,6 +157,11 @@ public class MetaRecord /*implements Serializable*/ {
         public ByteRecord(byte[] bstr) {
             this.bstr = bstr;
         }
+
+        ByteRecord(Parameters parameters, byte[] bstr) {
+            super(parameters);
+            this.bstr = bstr;
+        }
     }
 
     public static class StringRecord extends MetaRecord /*implements Serializable*/ {
@@ -96,5 +170,10 @@ public class MetaRecord /*implements Serializable*/ {
         public StringRecord( String newText ) {
             text = newText;
         }
+
+        StringRecord( Parameters parameters, String newText ) {
+            super( parameters );
+            text = newText;
+        }
     }
 }
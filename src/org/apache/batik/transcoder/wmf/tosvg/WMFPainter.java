@@ -755,7 +755,7 @@ public class WMFPainter extends AbstractWMFPainter {
                     //UPDATED : added SETROP2
                 case WMFConstants.META_SETROP2:
                     {
-                        float rop = (float)(mr.ElementAt( 0 ).intValue());
+                        float rop = (float)(mr.elementAt( 0 ));
                         Paint paint = null;
                         boolean ok = false;
                         if (rop == WMFConstants.META_BLACKNESS) {
@@ -874,19 +874,19 @@ public class WMFPainter extends AbstractWMFPainter {
                     break;                                        
                 case WMFConstants.META_DIBBITBLT:
                     {
-                        int rop = mr.ElementAt( 0 ).intValue();
-                        float height = (mr.ElementAt( 1 ).intValue() *
+                        int rop = mr.elementAt( 0 );
+                        float height = (mr.elementAt( 1 ) *
                                         conv * currentStore.getVpWFactor());
-                        float width  = (mr.ElementAt( 2 ).intValue() *
+                        float width  = (mr.elementAt( 2 ) *
                                         conv * currentStore.getVpHFactor());
-                        int sy = mr.ElementAt( 3 ).intValue();
-                        int sx = mr.ElementAt( 4 ).intValue();
+                        int sy = mr.elementAt( 3 );
+                        int sx = mr.elementAt( 4 );
                         float dy = (conv * currentStore.getVpWFactor() *
                                     (vpY + yOffset +
-                                     (float)mr.ElementAt( 5 ).intValue()));
+                                     (float)mr.elementAt( 5 )));
                         float dx = (conv * currentStore.getVpHFactor() *
                                     (vpX + xOffset +
-                                     (float)mr.ElementAt( 6 ).intValue()));
+                                     (float)mr.elementAt( 6 )));
                         if (mr instanceof MetaRecord.ByteRecord) {
                             byte[] bitmap = ((MetaRecord.ByteRecord)mr).bstr;
 
@@ -40,6 +40,11 @@ public class WMFRecordStore extends AbstractWMFReader {
     protected float vpX, vpY;
     protected List records;
 
+    /**
+     * the int-values of all records
+     */
+    private MetaRecord.Parameters parameters;
+
     private boolean _bext = true;
 
 
@@ -74,6 +79,8 @@ public class WMFRecordStore extends AbstractWMFReader {
         short recData;
 
         numRecords = 0;
+        // most values take one word of the file, the arena grows if needed
+        parameters = new MetaRecord.Parameters( Math.min( mtSize, 0x10000 ) );
 
         while ( functionId > 0) {
             recSize = readInt( is );
@@ -83,7 +90,7 @@ public class WMFRecordStore extends AbstractWMFReader {
             if ( functionId <= 0 )
             break;
 
-            MetaRecord mr = new MetaRecord();
+            MetaRecord mr = new MetaRecord( parameters );
             switch ( functionId ) {
             case WMFConstants.META_SETMAPMODE: {
                     mr.numPoints = recSize;
@@ -138,7 +145,7 @@ public class WMFRecordStore extends AbstractWMFReader {
                     /* get the StringRecord, having decoded the String, using the current
                      * charset (which was given by the last META_CREATEFONTINDIRECT)
                      */
-                    mr = new MetaRecord.ByteRecord(bstr);
+                    mr = new MetaRecord.ByteRecord(parameters, bstr);
                     mr.numPoints = recSize;
                     mr.functionId = functionId;
 
@@ -178,7 +185,7 @@ public class WMFRecordStore extends AbstractWMFReader {
                     /* get the StringRecord, having decoded the String, using the current
                      * charset (which was givben by the last META_CREATEFONTINDIRECT)
                      */
-                    mr = new MetaRecord.ByteRecord(bstr);
+                    mr = new MetaRecord.ByteRecord(parameters, bstr);
                     mr.numPoints = recSize;
                     mr.functionId = functionId;
 
@@ -216,7 +223,7 @@ public class WMFRecordStore extends AbstractWMFReader {
 
                     String str = new String( lfFaceName );    // what locale ?? ascii ?? platform ??
 
-                    mr = new MetaRecord.StringRecord( str );
+                    mr = new MetaRecord.StringRecord( parameters, str );
                     mr.numPoints = recSize;
                     mr.functionId = functionId;
 
@@ -612,7 +619,7 @@ public class WMFRecordStore extends AbstractWMFReader {
                     byte[] bitmap = new byte[len];
                     for (int i = 0; i < len; i++) bitmap[i] = is.readByte();
 
-                    mr = new MetaRecord.ByteRecord(bitmap);
+                    mr = new MetaRecord.ByteRecord(parameters, bitmap);
                     mr.numPoints = recSize;
                     mr.functionId = functionId;
                     mr.addElement( mode );
@@ -643,7 +650,7 @@ public class WMFRecordStore extends AbstractWMFReader {
                     byte bitmap[] = new byte[len];                    
                     for (int i = 0; i < len; i++) bitmap[i] = is.readByte();
                     
-                    mr = new MetaRecord.ByteRecord(bitmap);
+                    mr = new MetaRecord.ByteRecord(parameters, bitmap);
                     mr.numPoints = recSize;
                     mr.functionId = functionId;                    
                     mr.addElement(mode);
@@ -675,7 +682,7 @@ public class WMFRecordStore extends AbstractWMFReader {
                         byte[] bitmap = new byte[len];
                         for (int i = 0; i < len; i++)
                             bitmap[i] = is.readByte();
-                        mr = new MetaRecord.ByteRecord(bitmap);
+                        mr = new MetaRecord.ByteRecord(parameters, bitmap);
                         mr.numPoints = recSize;
                         mr.functionId = functionId;
                     } else {
@@ -703,7 +710,7 @@ public class WMFRecordStore extends AbstractWMFReader {
                     byte[] bitmap = new byte[len];
                     for (int i = 0; i < len; i++) bitmap[i] = is.readByte();
 
-                    mr = new MetaRecord.ByteRecord(bitmap);
+                    mr = new MetaRecord.ByteRecord(parameters, bitmap);
                     mr.numPoints = recSize;
                     mr.functionId = functionId;
                     mr.addElement( type );
@@ -62,6 +62,11 @@ public class ImageConstants {
      */
     public static final String EMF = "EMF";
 
+    /**
+     * image format "windows metafile"
+     */
+    public static final String WMF = "WMF";
+
     /**
      * image format "java"
      */
@@ -0,0 +1,553 @@
+// Copyright 2007, FreeHEP
+package org.freehep.graphicsio;
+
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Paint;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.BufferedImageOp;
+import java.awt.image.ImageObserver;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.RenderableImage;
+import java.text.AttributedCharacterIterator;
+import java.util.Map;
+
+/**
+ * Graphics2D which passes every call to several graphics contexts, so a
+ * drawing is painted once for all output formats. Queries are answered
+ * by the first graphics context.
+ *
+ * The transformations of the graphics contexts at construction time
+ * are kept as their device transformations: the transformation seen by
+ * the caller starts as identity, and setTransform sets it on top of the
+ * device transformation of each graphics context. So the contexts can
+ * have a different scale, e.g. for a thumbnail image.
+ *
+ * @version $Id$
+ */
+public class MultiGraphics2D extends Graphics2D {
+
+    private Graphics2D[] delegates;
+
+    /**
+     * transformation of each delegate for the identity
+     */
+    private AffineTransform[] deviceTransforms;
+
+    /**
+     * user transformation, the same for all delegates
+     */
+    private AffineTransform transform;
+
+    /**
+     * @param delegates graphics contexts to paint to, at least one
+     */
+    public MultiGraphics2D(Graphics2D[] delegates) {
+        if (delegates.length == 0) {
+            throw new IllegalArgumentException("no graphics to paint to");
+        }
+        this.delegates = delegates.clone();
+        this.deviceTransforms = new AffineTransform[delegates.length];
+        for (int i = 0; i < delegates.length; i++) {
+            deviceTransforms[i] = delegates[i].getTransform();
+        }
+        this.transform = new AffineTransform();
+    }
+
+    private MultiGraphics2D(Graphics2D[] delegates,
+            AffineTransform[] deviceTransforms, AffineTransform transform) {
+        this.delegates = delegates;
+        this.deviceTransforms = deviceTransforms;
+        this.transform = new AffineTransform(transform);
+    }
+
+    /**
+     * @return number of graphics contexts painted to
+     */
+    public int getDelegateCount() {
+        return delegates.length;
+    }
+
+    /**
+     * @param i index of the graphics context
+     * @return the graphics context
+     */
+    public Graphics2D getDelegate(int i) {
+        return delegates[i];
+    }
+
+    /*
+     * ================================================================================
+     * Create & Dispose
+     * ================================================================================
+     */
+    public Graphics create() {
+        Graphics2D[] children = new Graphics2D[delegates.length];
+        for (int i = 0; i < delegates.length; i++) {
+            children[i] = (Graphics2D) delegates[i].create();
+        }
+        return new MultiGraphics2D(children, deviceTransforms, transform);
+    }
+
+    public void dispose() {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].dispose();
+        }
+    }
+
+    /*
+     * ================================================================================
+     * Drawing Methods
+     * ================================================================================
+     */
+    public void draw(Shape s) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].draw(s);
+        }
+    }
+
+    public void fill(Shape s) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].fill(s);
+        }
+    }
+
+    public void drawLine(int x1, int y1, int x2, int y2) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].drawLine(x1, y1, x2, y2);
+        }
+    }
+
+    public void fillRect(int x, int y, int width, int height) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].fillRect(x, y, width, height);
+        }
+    }
+
+    public void clearRect(int x, int y, int width, int height) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].clearRect(x, y, width, height);
+        }
+    }
+
+    public void drawRoundRect(int x, int y, int width, int height,
+            int arcWidth, int arcHeight) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].drawRoundRect(x, y, width, height, arcWidth, arcHeight);
+        }
+    }
+
+    public void fillRoundRect(int x, int y, int width, int height,
+            int arcWidth, int arcHeight) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].fillRoundRect(x, y, width, height, arcWidth, arcHeight);
+        }
+    }
+
+    public void drawOval(int x, int y, int width, int height) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].drawOval(x, y, width, height);
+        }
+    }
+
+    public void fillOval(int x, int y, int width, int height) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].fillOval(x, y, width, height);
+        }
+    }
+
+    public void drawArc(int x, int y, int width, int height, int startAngle,
+            int arcAngle) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].drawArc(x, y, width, height, startAngle, arcAngle);
+        }
+    }
+
+    public void fillArc(int x, int y, int width, int height, int startAngle,
+            int arcAngle) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].fillArc(x, y, width, height, startAngle, arcAngle);
+        }
+    }
+
+    public void drawPolyline(int[] xPoints, int[] yPoints, int nPoints) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].drawPolyline(xPoints, yPoints, nPoints);
+        }
+    }
+
+    public void drawPolygon(int[] xPoints, int[] yPoints, int nPoints) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].drawPolygon(xPoints, yPoints, nPoints);
+        }
+    }
+
+    public void fillPolygon(int[] xPoints, int[] yPoints, int nPoints) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].fillPolygon(xPoints, yPoints, nPoints);
+        }
+    }
+
+    public void copyArea(int x, int y, int width, int height, int dx, int dy) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].copyArea(x, y, width, height, dx, dy);
+        }
+    }
+
+    /* Images */
+    public boolean drawImage(Image img, AffineTransform xform,
+            ImageObserver obs) {
+        boolean done = true;
+        for (int i = 0; i < delegates.length; i++) {
+            done &= delegates[i].drawImage(img, xform, obs);
+        }
+        return done;
+    }
+
+    public void drawImage(BufferedImage img, BufferedImageOp op, int x, int y) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].drawImage(img, op, x, y);
+        }
+    }
+
+    public void drawRenderedImage(RenderedImage img, AffineTransform xform) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].drawRenderedImage(img, xform);
+        }
+    }
+
+    public void drawRenderableImage(RenderableImage img,
+            AffineTransform xform) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].drawRenderableImage(img, xform);
+        }
+    }
+
+    public boolean drawImage(Image img, int x, int y, ImageObserver observer) {
+        boolean done = true;
+        for (int i = 0; i < delegates.length; i++) {
+            done &= delegates[i].drawImage(img, x, y, observer);
+        }
+        return done;
+    }
+
+    public boolean drawImage(Image img, int x, int y, int width, int height,
+            ImageObserver observer) {
+        boolean done = true;
+        for (int i = 0; i < delegates.length; i++) {
+            done &= delegates[i].drawImage(img, x, y, width, height, observer);
+        }
+        return done;
+    }
+
+    public boolean drawImage(Image img, int x, int y, Color bgcolor,
+            ImageObserver observer) {
+        boolean done = true;
+        for (int i = 0; i < delegates.length; i++) {
+            done &= delegates[i].drawImage(img, x, y, bgcolor, observer);
+        }
+        return done;
+    }
+
+    public boolean drawImage(Image img, int x, int y, int width, int height,
+            Color bgcolor, ImageObserver observer) {
+        boolean done = true;
+        for (int i = 0; i < delegates.length; i++) {
+            done &= delegates[i].drawImage(img, x, y, width, height, bgcolor,
+                observer);
+        }
+        return done;
+    }
+
+    public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2,
+            int sx1, int sy1, int sx2, int sy2, ImageObserver observer) {
+        boolean done = true;
+        for (int i = 0; i < delegates.length; i++) {
+            done &= delegates[i].drawImage(img, dx1, dy1, dx2, dy2, sx1, sy1,
+                sx2, sy2, observer);
+        }
+        return done;
+    }
+
+    public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2,
+            int sx1, int sy1, int sx2, int sy2, Color bgcolor,
+            ImageObserver observer) {
+        boolean done = true;
+        for (int i = 0; i < delegates.length; i++) {
+            done &= delegates[i].drawImage(img, dx1, dy1, dx2, dy2, sx1, sy1,
+                sx2, sy2, bgcolor, observer);
+        }
+        return done;
+    }
+
+    /* Strings */
+    public void drawString(String str, int x, int y) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].drawString(str, x, y);
+        }
+    }
+
+    public void drawString(String str, float x, float y) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].drawString(str, x, y);
+        }
+    }
+
+    public void drawString(AttributedCharacterIterator iterator, int x, int y) {
+        for (int i = 0; i < delegates.length; i++) {
+            // every delegate reads the iterator from the start
+            iterator.first();
+            delegates[i].drawString(iterator, x, y);
+        }
+    }
+
+    public void drawString(AttributedCharacterIterator iterator, float x,
+            float y) {
+        for (int i = 0; i < delegates.length; i++) {
+            iterator.first();
+            delegates[i].drawString(iterator, x, y);
+        }
+    }
+
+    public void drawGlyphVector(GlyphVector g, float x, float y) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].drawGlyphVector(g, x, y);
+        }
+    }
+
+    /*
+     * ================================================================================
+     * Transformations
+     * ================================================================================
+     */
+    public void translate(int x, int y) {
+        transform.translate(x, y);
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].translate(x, y);
+        }
+    }
+
+    public void translate(double tx, double ty) {
+        transform.translate(tx, ty);
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].translate(tx, ty);
+        }
+    }
+
+    public void rotate(double theta) {
+        transform.rotate(theta);
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].rotate(theta);
+        }
+    }
+
+    public void rotate(double theta, double x, double y) {
+        transform.rotate(theta, x, y);
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].rotate(theta, x, y);
+        }
+    }
+
+    public void scale(double sx, double sy) {
+        transform.scale(sx, sy);
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].scale(sx, sy);
+        }
+    }
+
+    public void shear(double shx, double shy) {
+        transform.shear(shx, shy);
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].shear(shx, shy);
+        }
+    }
+
+    public void transform(AffineTransform tx) {
+        transform.concatenate(tx);
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].transform(tx);
+        }
+    }
+
+    public void setTransform(AffineTransform tx) {
+        transform = new AffineTransform(tx);
+        for (int i = 0; i < delegates.length; i++) {
+            AffineTransform at = new AffineTransform(deviceTransforms[i]);
+            at.concatenate(tx);
+            delegates[i].setTransform(at);
+        }
+    }
+
+    public AffineTransform getTransform() {
+        return new AffineTransform(transform);
+    }
+
+    /*
+     * ================================================================================
+     * Clipping
+     * ================================================================================
+     */
+    public void clip(Shape s) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].clip(s);
+        }
+    }
+
+    public void clipRect(int x, int y, int width, int height) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].clipRect(x, y, width, height);
+        }
+    }
+
+    public void setClip(int x, int y, int width, int height) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].setClip(x, y, width, height);
+        }
+    }
+
+    public void setClip(Shape clip) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].setClip(clip);
+        }
+    }
+
+    public Shape getClip() {
+        return delegates[0].getClip();
+    }
+
+    public Rectangle getClipBounds() {
+        return delegates[0].getClipBounds();
+    }
+
+    public boolean hit(Rectangle rect, Shape s, boolean onStroke) {
+        return delegates[0].hit(rect, s, onStroke);
+    }
+
+    /*
+     * ================================================================================
+     * Graphics State / Settings
+     * ================================================================================
+     */
+    public void setComposite(Composite comp) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].setComposite(comp);
+        }
+    }
+
+    public Composite getComposite() {
+        return delegates[0].getComposite();
+    }
+
+    public void setPaint(Paint paint) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].setPaint(paint);
+        }
+    }
+
+    public Paint getPaint() {
+        return delegates[0].getPaint();
+    }
+
+    public void setColor(Color c) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].setColor(c);
+        }
+    }
+
+    public Color getColor() {
+        return delegates[0].getColor();
+    }
+
+    public void setPaintMode() {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].setPaintMode();
+        }
+    }
+
+    public void setXORMode(Color c) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].setXORMode(c);
+        }
+    }
+
+    public void setBackground(Color color) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].setBackground(color);
+        }
+    }
+
+    public Color getBackground() {
+        return delegates[0].getBackground();
+    }
+
+    public void setStroke(Stroke s) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].setStroke(s);
+        }
+    }
+
+    public Stroke getStroke() {
+        return delegates[0].getStroke();
+    }
+
+    public void setFont(Font font) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].setFont(font);
+        }
+    }
+
+    public Font getFont() {
+        return delegates[0].getFont();
+    }
+
+    public FontMetrics getFontMetrics(Font f) {
+        return delegates[0].getFontMetrics(f);
+    }
+
+    public FontRenderContext getFontRenderContext() {
+        return delegates[0].getFontRenderContext();
+    }
+
+    public void setRenderingHint(RenderingHints.Key hintKey, Object hintValue) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].setRenderingHint(hintKey, hintValue);
+        }
+    }
+
+    public Object getRenderingHint(RenderingHints.Key hintKey) {
+        return delegates[0].getRenderingHint(hintKey);
+    }
+
+    public void setRenderingHints(Map<?, ?> hints) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].setRenderingHints(hints);
+        }
+    }
+
+    public void addRenderingHints(Map<?, ?> hints) {
+        for (int i = 0; i < delegates.length; i++) {
+            delegates[i].addRenderingHints(hints);
+        }
+    }
+
+    public RenderingHints getRenderingHints() {
+        return delegates[0].getRenderingHints();
+    }
+
+    public GraphicsConfiguration getDeviceConfiguration() {
+        return delegates[0].getDeviceConfiguration();
+    }
+}
@@ -36,6 +36,7 @@ import java.awt.font.TextAttribute;
 import java.awt.font.TextLayout;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.awt.image.BufferedImageOp;
 import java.awt.image.ImageObserver;
@@ -48,8 +49,10 @@ import java.io.Writer;
 import java.text.AttributedCharacterIterator;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
@@ -58,6 +61,7 @@ import org.apache.batik.ext.awt.g2d.AbstractGraphics2D;
 import org.apache.batik.ext.awt.g2d.GraphicContext;
 import org.apache.batik.svggen.DOMGroupManager;
 import org.apache.batik.svggen.DOMTreeManager;
+import org.apache.batik.svggen.DOMTreeWriter;
 import org.apache.batik.svggen.DefaultErrorHandler;
 import org.apache.batik.svggen.DefaultStyleHandler;
 import org.apache.batik.svggen.ErrorConstants;
@@ -162,6 +166,41 @@ public class SVGGraphics2D extends AbstractGraphics2D
      */
     protected Dimension svgCanvasSize;
 
+    /**
+     * Maximum number of shapes merged into one path element. The bounds
+     * of each new shape are compared to those of all merged shapes.
+     */
+    private static final int MAX_MERGED_SHAPES = 256;
+
+    /**
+     * Maximum length of merged path data, the path data is copied for
+     * every merged shape
+     */
+    private static final int MAX_MERGED_LENGTH = 4096;
+
+    /**
+     * Path element further shapes may be merged into, null if there is
+     * none
+     */
+    private Element mergePath;
+
+    /**
+     * DRAW or FILL for mergePath
+     */
+    private short mergeMethod;
+
+    /**
+     * Modification count of gc when mergePath was added
+     */
+    private int mergeModificationCount;
+
+    /**
+     * User space bounds of the shapes in mergePath and their union
+     */
+    private List mergeBounds = new ArrayList();
+
+    private Rectangle2D mergeUnion;
+
     /**
      * Used to create proper font metrics
      */
@@ -618,6 +657,54 @@ public class SVGGraphics2D extends AbstractGraphics2D
                 }
             }
         }
+
+    /**
+     * Starts writing the SVG content to writer while it is drawn,
+     * instead of keeping the complete DOM tree in memory until stream()
+     * is called. Completed groups are written and removed from the DOM,
+     * the definitions are written by endStream(). The SVG canvas size
+     * has to be set before.
+     *
+     * @param writer used to writer out the SVG content
+     * @param useCss defines whether the output SVG should use CSS
+     * style properties as opposed to plain attributes.
+     */
+    public void startStream(Writer writer, boolean useCss)
+        throws SVGGraphics2DIOException {
+        // same attributes as set by getRoot() and stream()
+        Element svgRoot = domTreeManager.getRootElement(null);
+        if (svgCanvasSize != null){
+            svgRoot.setAttributeNS(null, SVG_X_ATTRIBUTE, "0px" );
+            svgRoot.setAttributeNS(null, SVG_Y_ATTRIBUTE, "0px" );
+
+            svgRoot.setAttributeNS(null, SVG_WIDTH_ATTRIBUTE,  String.valueOf( svgCanvasSize.width ) +"px" );
+            svgRoot.setAttributeNS(null, SVG_HEIGHT_ATTRIBUTE, String.valueOf( svgCanvasSize.height) +"px");
+        }
+        svgRoot.removeAttribute("stroke");
+        svgRoot.setAttributeNS(XMLNS_NAMESPACE_URI,
+                               XMLNS_PREFIX,
+                               SVG_NAMESPACE_URI);
+
+        svgRoot.setAttributeNS(XMLNS_NAMESPACE_URI,
+                               XMLNS_PREFIX + ":" + XLINK_PREFIX,
+                               XLINK_NAMESPACE_URI);
+
+        String str = "0 0 " +
+                        this.getSVGCanvasSize().getWidth() +" " +
+                        this.getSVGCanvasSize().getHeight();
+        svgRoot.setAttributeNS(null, SVGConstants.SVG_VIEW_BOX_ATTRIBUTE, str);
+
+        domTreeManager.startStream(svgRoot,
+                                   new DOMTreeWriter(writer, useCss, true));
+    }
+
+    /**
+     * Writes the remaining content started by startStream().
+     */
+    public void endStream() throws SVGGraphics2DIOException {
+        domTreeManager.endStream();
+    }
+
     /**
      * Invoking this method will return a set of definition element that
      * contain all the definitions referenced by the attributes generated by
@@ -923,9 +1010,9 @@ public class SVGGraphics2D extends AbstractGraphics2D
         // then the stroked outline is filled.
         Stroke stroke = gc.getStroke();
         if (stroke instanceof BasicStroke) {
-            Element svgShape = shapeConverter.toSVG(s);
+            Element svgShape = convertShape(s);
             if (svgShape != null) {
-                domGroupManager.addElement(svgShape, DOMGroupManager.DRAW);
+                addShape(s, svgShape, DOMGroupManager.DRAW);
             }
         } else {
             Shape strokedShape = stroke.createStrokedShape(s);
@@ -1488,11 +1575,127 @@ public class SVGGraphics2D extends AbstractGraphics2D
      * @see #setClip(Shape)
      */
     public void fill(Shape s) {    	
-        Element svgShape = shapeConverter.toSVG(s);
+        Element svgShape = convertShape(s);
         gc.getPaint().toString();
         if (svgShape != null) {
-            domGroupManager.addElement(svgShape, DOMGroupManager.FILL);
+            addShape(s, svgShape, DOMGroupManager.FILL);
+        }
+    }
+
+    /**
+     * Converts a shape, passing a copy of the current transform to the
+     * converter only if the paths are simplified in device space.
+     *
+     * @param s shape in user space
+     */
+    private Element convertShape(Shape s) {
+        if (!generatorCtx.isPathSimplified()) {
+            return shapeConverter.toSVG(s);
+        }
+        return shapeConverter.toSVG(s, gc.getTransform());
+    }
+
+    /**
+     * Adds the element of a filled or drawn shape to the current group.
+     * If the generator context merges shapes, the path data is appended
+     * to the previous path instead, as long as nothing else was added in
+     * between, the graphic context and the winding rule did not change
+     * and the shape does not intersect any of the merged shapes. Without
+     * intersections the order of the shapes does not matter and neither
+     * the winding rule nor the opacity can combine them differently.
+     *
+     * @param s shape in user space
+     * @param svgShape element converted from s
+     * @param method DRAW or FILL
+     */
+    private void addShape(Shape s, Element svgShape, short method) {
+        if (!generatorCtx.isMergeShapes()
+            || !SVG_PATH_TAG.equals(svgShape.getTagName())) {
+            mergePath = null;
+            domGroupManager.addElement(svgShape, method);
+            return;
+        }
+
+        Rectangle2D bounds = getMergeBounds(s, method);
+        String d = svgShape.getAttributeNS(null, SVG_D_ATTRIBUTE);
+        if (bounds != null && canMerge(svgShape, method, bounds, d)) {
+            // the path data starts with an absolute moveto, so it does not
+            // depend on the end of the merged path data
+            mergePath.setAttributeNS(null, SVG_D_ATTRIBUTE,
+                mergePath.getAttributeNS(null, SVG_D_ATTRIBUTE) + d);
+            mergeBounds.add(bounds);
+            mergeUnion.add(bounds);
+            return;
+        }
+
+        domGroupManager.addElement(svgShape, method);
+        mergeBounds.clear();
+        if (bounds != null && d.startsWith(PATH_MOVE)) {
+            mergePath = svgShape;
+            mergeMethod = method;
+            mergeModificationCount = gc.getModificationCount();
+            mergeBounds.add(bounds);
+            mergeUnion = (Rectangle2D) bounds.clone();
+        } else {
+            mergePath = null;
+        }
+    }
+
+    /**
+     * @return true if the path data d of svgShape can be appended to
+     *         mergePath
+     */
+    private boolean canMerge(Element svgShape, short method,
+                             Rectangle2D bounds, String d) {
+        if (mergePath == null
+            || method != mergeMethod
+            || gc.getModificationCount() != mergeModificationCount
+            || !gc.isTransformStackValid()
+            || mergeBounds.size() >= MAX_MERGED_SHAPES
+            || !d.startsWith(PATH_MOVE)
+            || !domGroupManager.isLastElement(mergePath)) {
+            return false;
+        }
+        if (!svgShape.getAttributeNS(null, SVG_FILL_RULE_ATTRIBUTE).equals(
+                mergePath.getAttributeNS(null, SVG_FILL_RULE_ATTRIBUTE))) {
+            return false;
+        }
+        String mergedData = mergePath.getAttributeNS(null, SVG_D_ATTRIBUTE);
+        if (mergedData.length() + d.length() > MAX_MERGED_LENGTH) {
+            return false;
+        }
+        if (!mergeUnion.intersects(bounds)) {
+            return true;
+        }
+        for (int i = 0; i < mergeBounds.size(); i++) {
+            if (((Rectangle2D) mergeBounds.get(i)).intersects(bounds)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return bounds of the painted area of s in user space, null if the
+     *         shape must not be merged
+     */
+    private Rectangle2D getMergeBounds(Shape s, short method) {
+        Rectangle2D bounds = s.getBounds2D();
+        if (method == DOMGroupManager.DRAW) {
+            BasicStroke stroke = (BasicStroke) gc.getStroke();
+            // dashes of merged paths could be distributed differently
+            if (stroke.getDashArray() != null) {
+                return null;
+            }
+            // half the line width, longer at miter joins and square caps
+            double pad = stroke.getLineWidth() / 2 * Math.max(Math.sqrt(2),
+                (stroke.getLineJoin() == BasicStroke.JOIN_MITER)
+                ? stroke.getMiterLimit() : 1);
+            bounds.setRect(bounds.getX() - pad, bounds.getY() - pad,
+                           bounds.getWidth() + 2 * pad,
+                           bounds.getHeight() + 2 * pad);
         }
+        return bounds;
     }
 
     /** Set the Element Font and Size attributes, depending on the
@@ -4,19 +4,35 @@ import java.awt.BorderLayout;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 
 import javax.imageio.ImageIO;
 import javax.swing.JFrame;
 import javax.swing.JPanel;
 
+/**
+ * Usage: <code>EMF2PNG input.emf output.png [tile size [threads]]</code>
+ *
+ * With a tile size the EMF is rasterized in tiles on several threads by
+ * {@link EMFTileRenderer}, otherwise onto a single image.
+ */
 public class EMF2PNG {	
 	    public static void main(String[] args) {  
 	        try {  
+	            if (args.length > 2) {
+	                writeTiled(args);
+	                return;
+	            }
 	            EMFInputStream inputStream = new EMFInputStream(new FileInputStream(args[0]), EMFInputStream.DEFAULT_VERSION);  
 	            System.out.println("height = " + inputStream.readHeader().getBounds().getHeight());  
 	            System.out.println("widht = " + inputStream.readHeader().getBounds().getWidth());  
@@ -33,6 +49,13 @@ public class EMF2PNG {
 	            System.out.println("widht = " + width + " and height = " + height);  
 	            final BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);  
 	            Graphics2D g2 = (Graphics2D)result.createGraphics();  
+	            // the bounds start at 0, 0 of the image, like the tiles
+	            // of EMFTileRenderer
+	            Rectangle bounds = inputStream.readHeader().getBounds();
+	            AffineTransform at = AffineTransform.getTranslateInstance(
+	                -bounds.x, -bounds.y);
+	            g2.setTransform(at);
+	            emfRenderer.setInitialTransform(at);
 	            emfRenderer.paint(g2);  
 	              
 	            // write it as png/jpg/gif, up to you!!!  
@@ -61,6 +84,26 @@ public class EMF2PNG {
 	            e.printStackTrace();  
 	        }  
 	    }  
+
+	    /**
+	     * parses the EMF once and writes the PNG tile by tile
+	     */
+	    private static void writeTiled(String[] args) throws IOException {
+	        EMFRecordIndex index = new EMFRecordIndex(new EMFInputStream(
+	            new BufferedInputStream(new FileInputStream(args[0])), EMFInputStream.DEFAULT_VERSION));
+	        EMFTileRenderer renderer = new EMFTileRenderer(index);
+	        int tileSize = Integer.parseInt(args[2]);
+	        renderer.setTileSize(tileSize, tileSize);
+	        if (args.length > 3) {
+	            renderer.setThreads(Integer.parseInt(args[3]));
+	        }
+	        OutputStream out = new BufferedOutputStream(new FileOutputStream(args[1]));
+	        try {
+	            renderer.writePNG(out);
+	        } finally {
+	            out.close();
+	        }
+	    }
 	  
 		  
 }
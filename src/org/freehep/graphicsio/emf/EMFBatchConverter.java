@@ -0,0 +1,442 @@
+// Copyright 2007, FreeHEP.
+package org.freehep.graphicsio.emf;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.freehep.graphicsio.ImageConstants;
+import org.freehep.util.io.CountedByteOutputStream;
+
+/**
+ * Converts many EMF and WMF files or streams in parallel using
+ * {@link EMFConverter#convert(String, EMFInputStream, OutputStream)}
+ * and {@link MetafileConverter#convertWMF}. The format of each input is
+ * detected from its first bytes, inputs of unknown format fail without
+ * being parsed. Every conversion creates its own SVGGraphics2D. The
+ * number of submitted but not finished conversions is limited, submit
+ * blocks if the limit is reached.
+ *
+ * @version $Id$
+ */
+public class EMFBatchConverter {
+
+    /**
+     * Outcome of a single conversion.
+     */
+    public static class Result {
+
+        private String source;
+
+        private File destination;
+
+        private String format;
+
+        private long time;
+
+        private long outputSize;
+
+        private Throwable failure;
+
+        private Result(String source, File destination) {
+            this.source = source;
+            this.destination = destination;
+        }
+
+        /**
+         * @return name of the converted file or stream
+         */
+        public String getSource() {
+            return source;
+        }
+
+        /**
+         * @return {@link org.freehep.graphicsio.ImageConstants#EMF},
+         *         {@link org.freehep.graphicsio.ImageConstants#WMF} or null
+         *         if the format is unknown or was not detected yet
+         */
+        public String getFormat() {
+            return format;
+        }
+
+        /**
+         * @return written file or null if a stream was converted
+         */
+        public File getDestination() {
+            return destination;
+        }
+
+        /**
+         * @return duration of the conversion in milliseconds
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * @return number of bytes written
+         */
+        public long getOutputSize() {
+            return outputSize;
+        }
+
+        /**
+         * @return cause of the failure or null if the conversion succeeded
+         */
+        public Throwable getFailure() {
+            return failure;
+        }
+
+        /**
+         * @return true if the conversion succeeded
+         */
+        public boolean isSuccess() {
+            return failure == null;
+        }
+
+        public String toString() {
+            return source + ((format != null) ? " (" + format + ")" : "")
+                + ": " + (isSuccess()
+                ? outputSize + " bytes in " + time + " ms"
+                : "failed after " + time + " ms, " + failure);
+        }
+    }
+
+    /**
+     * output format, e.g. {@link org.freehep.graphicsio.ImageConstants#SVG}
+     */
+    private String type;
+
+    private ExecutorService executor;
+
+    /**
+     * permits for submitted and not yet finished conversions
+     */
+    private Semaphore pending;
+
+    /**
+     * if true SVG documents are written while painting
+     */
+    private boolean streaming;
+
+    /**
+     * if true SVG documents embed the glyphs of the drawn characters
+     */
+    private boolean embedFonts;
+
+    /**
+     * Creates a converter using one thread per available processor.
+     *
+     * @param type output format
+     */
+    public EMFBatchConverter(String type) {
+        this(type, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a converter using daemon threads.
+     *
+     * @param type output format
+     * @param threads number of worker threads
+     */
+    public EMFBatchConverter(String type, int threads) {
+        this(type, threads, 2 * threads, new WorkerThreadFactory("EMFBatchConverter"));
+    }
+
+    /**
+     * Creates a converter. Pass a factory for virtual threads to run
+     * the conversions on them.
+     *
+     * @param type output format
+     * @param threads number of worker threads
+     * @param maxPending maximum number of submitted and not yet finished
+     *        conversions, at least threads
+     * @param threadFactory creates the worker threads
+     * @throws IllegalArgumentException if type is not supported, see
+     *         {@link EMFConverter#isSupported(String)}
+     */
+    public EMFBatchConverter(String type, int threads, int maxPending,
+            ThreadFactory threadFactory) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads < 1: " + threads);
+        }
+        if (!EMFConverter.isSupported(type)) {
+            throw new IllegalArgumentException("unsupported format: " + type);
+        }
+        this.type = type;
+        this.executor = Executors.newFixedThreadPool(threads, threadFactory);
+        this.pending = new Semaphore(Math.max(threads, maxPending));
+    }
+
+    /**
+     * @param streaming if true SVG documents are written while painting,
+     *        see {@link EMFConverter#writeSVG(EMFRenderer, OutputStream, boolean)}
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * @param embedFonts if true SVG documents embed the glyphs of the
+     *        drawn characters, see
+     *        {@link EMFConverter#writeSVG(EMFRenderer, OutputStream, boolean, boolean)}.
+     *        The glyph outlines are shared by all conversions.
+     */
+    public void setEmbedFonts(boolean embedFonts) {
+        this.embedFonts = embedFonts;
+    }
+
+    /**
+     * Converts all files into destDir and waits for the results. The
+     * name of each output file is the source file name plus the
+     * extension of the output format.
+     *
+     * @param sources EMF or WMF files
+     * @param destDir directory for the output files
+     * @return results in the order of sources
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public List<Result> convert(Collection<File> sources, File destDir)
+            throws InterruptedException {
+        List<Future<Result>> futures = new ArrayList<Future<Result>>(sources.size());
+        for (File source : sources) {
+            File dest = new File(destDir, source.getName() + "." + type.toLowerCase());
+            futures.add(submit(source, dest));
+        }
+
+        List<Result> results = new ArrayList<Result>(futures.size());
+        for (Future<Result> future : futures) {
+            results.add(get(future));
+        }
+        return results;
+    }
+
+    /**
+     * Schedules the conversion of a file, blocks while the maximum
+     * number of pending conversions is reached.
+     *
+     * @param source EMF or WMF file
+     * @param dest file to write
+     * @return result of the conversion, failures are stored in the result
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Future<Result> submit(final File source, final File dest)
+            throws InterruptedException {
+        final Result result = new Result(source.getPath(), dest);
+        return submit(result, new Callable<Long>() {
+            public Long call() throws IOException {
+                result.format = MetafileConverter.getFormat(source);
+                if (result.format == null) {
+                    throw new IOException(source + " is neither an EMF nor a WMF");
+                }
+                checkWMF(result);
+                OutputStream out = new FileOutputStream(dest);
+                try {
+                    if (ImageConstants.WMF.equals(result.format)) {
+                        return convertWMF(new BufferedInputStream(
+                            new FileInputStream(source)), out);
+                    }
+                    EMFInputStream in;
+                    try {
+                        // read the records directly from the mapped file
+                        in = new EMFByteBufferInputStream(source);
+                    } catch (IOException e) {
+                        in = new EMFInputStream(new BufferedInputStream(
+                            new FileInputStream(source)));
+                    }
+                    return convert(in, out);
+                } finally {
+                    out.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * Schedules the conversion of a stream, blocks while the maximum
+     * number of pending conversions is reached. in is closed after
+     * reading, out is flushed but not closed.
+     *
+     * @param name name of the stream used in the result
+     * @param in EMF or WMF stream
+     * @param out stream to write to
+     * @return result of the conversion, failures are stored in the result
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Future<Result> submit(String name, final InputStream in,
+            final OutputStream out) throws InterruptedException {
+        final Result result = new Result(name, null);
+        return submit(result, new Callable<Long>() {
+            public Long call() throws IOException {
+                InputStream buffered = new BufferedInputStream(in);
+                result.format = MetafileConverter.getFormat(buffered);
+                if (ImageConstants.WMF.equals(result.format)) {
+                    try {
+                        checkWMF(result);
+                    } catch (IOException e) {
+                        in.close();
+                        throw e;
+                    }
+                    return convertWMF(buffered, out);
+                } else if (result.format == null) {
+                    in.close();
+                    throw new IOException(result.source + " is neither an EMF nor a WMF");
+                }
+                return convert(new EMFInputStream(buffered), out);
+            }
+        });
+    }
+
+    /**
+     * Stops accepting conversions and waits until the submitted ones
+     * are finished.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+            // wait
+        }
+    }
+
+    /**
+     * @param in EMF stream, closed after reading
+     * @param out stream to write to
+     * @return number of written bytes
+     * @throws IOException thrown by EMFConverter
+     */
+    private Long convert(EMFInputStream in, OutputStream out) throws IOException {
+        CountedByteOutputStream counter = new CountedByteOutputStream(
+            new BufferedOutputStream(out));
+        try {
+            EMFConverter.convert(type, in, counter, streaming, embedFonts);
+        } finally {
+            in.close();
+        }
+        counter.flush();
+        return Long.valueOf(counter.getCount());
+    }
+
+    /**
+     * @param result conversion of a WMF or EMF
+     * @throws IOException if result is a WMF and the format is not SVG,
+     *         WMFs are only converted to SVG
+     */
+    private void checkWMF(Result result) throws IOException {
+        if (ImageConstants.WMF.equals(result.format)
+                && !ImageConstants.SVG.equalsIgnoreCase(type)) {
+            throw new IOException(result.source + " is a WMF, which can only be converted to SVG");
+        }
+    }
+
+    /**
+     * @param in WMF stream, closed after reading
+     * @param out stream to write to
+     * @return number of written bytes
+     * @throws IOException thrown by MetafileConverter
+     */
+    private Long convertWMF(InputStream in, OutputStream out) throws IOException {
+        CountedByteOutputStream counter = new CountedByteOutputStream(
+            new BufferedOutputStream(out));
+        try {
+            MetafileConverter.convertWMF(in, counter, streaming, embedFonts);
+        } finally {
+            in.close();
+        }
+        counter.flush();
+        return Long.valueOf(counter.getCount());
+    }
+
+    /**
+     * runs a conversion on the pool and fills its result
+     *
+     * @param result result to fill
+     * @param conversion returns the output size
+     * @return the filled result
+     * @throws InterruptedException if interrupted while waiting for a permit
+     */
+    private Future<Result> submit(final Result result,
+            final Callable<Long> conversion) throws InterruptedException {
+        pending.acquire();
+        try {
+            return executor.submit(new Callable<Result>() {
+                public Result call() {
+                    long start = System.currentTimeMillis();
+                    try {
+                        result.outputSize = conversion.call().longValue();
+                    } catch (Throwable t) {
+                        result.failure = t;
+                    } finally {
+                        result.time = System.currentTimeMillis() - start;
+                        pending.release();
+                    }
+                    return result;
+                }
+            });
+        } catch (RuntimeException e) {
+            // rejected, e.g. after shutdown
+            pending.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @param future future returned by submit
+     * @return the result of the conversion
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static Result get(Future<Result> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            // failures are stored in the result
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * creates named daemon threads
+     */
+    static class WorkerThreadFactory implements ThreadFactory {
+
+        private static final AtomicInteger pool = new AtomicInteger();
+
+        private final String name;
+
+        private final int poolNumber = pool.incrementAndGet();
+
+        private final AtomicInteger thread = new AtomicInteger();
+
+        /**
+         * @param name prefix of the thread names
+         */
+        WorkerThreadFactory(String name) {
+            this.name = name;
+        }
+
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, name + "-" + poolNumber
+                + "-" + thread.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,321 @@
+// Copyright 2007, FreeHEP.
+package org.freehep.graphicsio.emf;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import org.apache.batik.svggen.XmlWriter;
+import org.freehep.graphicsio.ImageConstants;
+import org.freehep.graphicsio.asf.SVGGraphics2D;
+import org.w3c.dom.Element;
+
+/**
+ * Measures the stages of the EMF to SVG conversion separately on
+ * synthetic EMFs, which are written by {@link EMFGraphics2D} so no
+ * binary fixtures are needed. For each kind of EMF and each stage the
+ * throughput and the allocation rate of the benchmark thread are
+ * printed.
+ *
+ * The stages are
+ * <ul>
+ * <li>read: parsing all records with EMFInputStream</li>
+ * <li>paint: replaying the records with EMFRenderer on an
+ * SVGGraphics2D, which builds the DOM through DOMGroupManager and
+ * SVGGraphicContextConverter</li>
+ * <li>write: serializing the DOM with XmlWriter</li>
+ * <li>convert: all of them through EMFConverter</li>
+ * </ul>
+ *
+ * Usage: <code>EMFBenchmark [records] [milliseconds per stage]</code>
+ *
+ * @version $Id$
+ */
+public class EMFBenchmark {
+
+    private static final Dimension SIZE = new Dimension(1000, 1000);
+
+    private static final Color[] COLORS = {
+        Color.RED, Color.GREEN, Color.BLUE, Color.ORANGE, Color.GRAY
+    };
+
+    /**
+     * A measured operation
+     */
+    private static abstract class Stage {
+
+        private final String name;
+
+        private Stage(String name) {
+            this.name = name;
+        }
+
+        abstract void run() throws IOException;
+    }
+
+    /**
+     * Discards all characters
+     */
+    private static class NullWriter extends Writer {
+
+        public void write(char[] cbuf, int off, int len) {
+        }
+
+        public void write(int c) {
+        }
+
+        public void write(String str, int off, int len) {
+        }
+
+        public void flush() {
+        }
+
+        public void close() {
+        }
+    }
+
+    /**
+     * Discards all bytes
+     */
+    private static class NullOutputStream extends OutputStream {
+
+        public void write(int b) {
+        }
+
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int records = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+        long time = (args.length > 1) ? Long.parseLong(args[1]) : 2000;
+
+        run("polygons", createPolygons(records), time);
+        run("text", createText(records), time);
+        run("bitmaps", createBitmaps(records / 10), time);
+        run("clips", createClips(records), time);
+    }
+
+    /**
+     * Measures all stages for one EMF.
+     *
+     * @param name kind of EMF
+     * @param emf bytes of the EMF
+     * @param time milliseconds to measure each stage, the same time
+     *        is used to warm up
+     * @throws IOException if a stage fails
+     */
+    public static void run(String name, final byte[] emf, long time)
+            throws IOException {
+        System.out.println(name + ": " + emf.length + " bytes");
+
+        final EMFRenderer renderer = read(emf);
+        SVGGraphics2D g = paint(renderer);
+        final Element root = g.getRoot();
+
+        measure(new Stage("read") {
+            void run() throws IOException {
+                read(emf);
+            }
+        }, time);
+        measure(new Stage("paint") {
+            void run() {
+                paint(renderer);
+            }
+        }, time);
+        measure(new Stage("write") {
+            void run() throws IOException {
+                XmlWriter.writeXml(root, new NullWriter(), false);
+            }
+        }, time);
+        measure(new Stage("convert") {
+            void run() throws IOException {
+                EMFConverter.convert(ImageConstants.SVG, new EMFInputStream(
+                    new ByteArrayInputStream(emf)), new NullOutputStream());
+            }
+        }, time);
+    }
+
+    private static EMFRenderer read(byte[] emf) throws IOException {
+        return new EMFRenderer(new EMFInputStream(new ByteArrayInputStream(emf)));
+    }
+
+    private static SVGGraphics2D paint(EMFRenderer renderer) {
+        SVGGraphics2D g = EMFConverter.buildSVGGraphics2D();
+        Rectangle bounds = renderer.getHeader().getBounds();
+        AffineTransform at = new AffineTransform();
+        at.translate(-bounds.getX(), -bounds.getY());
+        g.setTransform(at);
+        renderer.setInitialTransform(at);
+        renderer.paint(g);
+        return g;
+    }
+
+    /**
+     * Runs stage for time milliseconds to warm up and again for time
+     * milliseconds to measure, and prints the result.
+     */
+    private static void measure(Stage stage, long time) throws IOException {
+        loop(stage, time);
+
+        long allocatedBefore = getAllocatedBytes();
+        long start = System.nanoTime();
+        int count = loop(stage, time);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long allocatedAfter = getAllocatedBytes();
+        long allocated = (allocatedBefore >= 0 && allocatedAfter >= 0)
+            ? allocatedAfter - allocatedBefore : -1;
+
+        StringBuffer line = new StringBuffer("  ");
+        line.append(stage.name);
+        line.append(": ");
+        line.append(Math.round(count / seconds * 10) / 10.0);
+        line.append(" ops/s");
+        if (allocated >= 0) {
+            line.append(", ");
+            line.append(allocated / count / 1024);
+            line.append(" KB/op, ");
+            line.append(Math.round(allocated / seconds / (1024 * 1024)));
+            line.append(" MB/s allocated");
+        }
+        System.out.println(line);
+    }
+
+    /**
+     * @return number of runs of stage in time milliseconds, at least one
+     */
+    private static int loop(Stage stage, long time) throws IOException {
+        long end = System.nanoTime() + time * 1000000;
+        int count = 0;
+        do {
+            stage.run();
+            count++;
+        } while (System.nanoTime() < end);
+        return count;
+    }
+
+    /**
+     * @return bytes allocated by the current thread, -1 if the VM does not
+     *         count them
+     */
+    private static long getAllocatedBytes() {
+        java.lang.management.ThreadMXBean bean =
+            ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean)
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * @param count number of polygons
+     * @return an EMF filling small polygons in different colors
+     * @throws IOException if writing fails
+     */
+    public static byte[] createPolygons(int count) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        EMFGraphics2D g = new EMFGraphics2D(bytes, SIZE);
+        g.startExport();
+        Random random = new Random(count);
+        for (int i = 0; i < count; i++) {
+            int x = random.nextInt(SIZE.width - 20);
+            int y = random.nextInt(SIZE.height - 20);
+            Polygon polygon = new Polygon();
+            int points = 3 + random.nextInt(6);
+            for (int j = 0; j < points; j++) {
+                polygon.addPoint(x + random.nextInt(20), y + random.nextInt(20));
+            }
+            g.setColor(COLORS[i % COLORS.length]);
+            g.fill(polygon);
+        }
+        g.endExport();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param count number of strings
+     * @return an EMF drawing labels in a few fonts
+     * @throws IOException if writing fails
+     */
+    public static byte[] createText(int count) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        EMFGraphics2D g = new EMFGraphics2D(bytes, SIZE);
+        g.startExport();
+        Font[] fonts = {
+            new Font("Serif", Font.PLAIN, 10),
+            new Font("SansSerif", Font.BOLD, 12),
+            new Font("Monospaced", Font.ITALIC, 9)
+        };
+        Random random = new Random(count);
+        for (int i = 0; i < count; i++) {
+            g.setFont(fonts[i % fonts.length]);
+            g.setColor(COLORS[i % COLORS.length]);
+            g.drawString("Label " + random.nextInt(1000),
+                random.nextInt(SIZE.width - 50), 10 + random.nextInt(SIZE.height - 10));
+        }
+        g.endExport();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param count number of bitmaps
+     * @return an EMF drawing a few different bitmaps repeatedly
+     * @throws IOException if writing fails
+     */
+    public static byte[] createBitmaps(int count) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        EMFGraphics2D g = new EMFGraphics2D(bytes, SIZE);
+        g.startExport();
+        BufferedImage[] images = new BufferedImage[4];
+        for (int i = 0; i < images.length; i++) {
+            images[i] = new BufferedImage(32, 32, BufferedImage.TYPE_INT_RGB);
+            for (int y = 0; y < 32; y++) {
+                for (int x = 0; x < 32; x++) {
+                    images[i].setRGB(x, y, (x * 8 << 16) | (y * 8 << 8) | (i * 64));
+                }
+            }
+        }
+        Random random = new Random(count);
+        for (int i = 0; i < count; i++) {
+            g.drawImage(images[i % images.length],
+                random.nextInt(SIZE.width - 32), random.nextInt(SIZE.height - 32), null);
+        }
+        g.endExport();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param count number of clipped rectangles
+     * @return an EMF filling rectangles through changing elliptic clips
+     * @throws IOException if writing fails
+     */
+    public static byte[] createClips(int count) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        EMFGraphics2D g = new EMFGraphics2D(bytes, SIZE);
+        g.startExport();
+        Random random = new Random(count);
+        for (int i = 0; i < count; i++) {
+            int x = random.nextInt(SIZE.width - 40);
+            int y = random.nextInt(SIZE.height - 40);
+            g.setClip(new Ellipse2D.Double(x, y, 40, 40));
+            g.setColor(COLORS[i % COLORS.length]);
+            g.fill(new Rectangle(x + 10, y + 10, 40, 40));
+        }
+        g.setClip(null);
+        g.endExport();
+        return bytes.toByteArray();
+    }
+}
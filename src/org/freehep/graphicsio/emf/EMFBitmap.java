@@ -0,0 +1,172 @@
+// Copyright 2007, FreeHEP.
+package org.freehep.graphicsio.emf;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.freehep.graphicsio.emf.gdi.BitmapInfoHeader;
+import org.freehep.graphicsio.emf.gdi.BlendFunction;
+
+/**
+ * Undecoded bitmap of an EMF record. The image data is kept as read
+ * from the stream and decoded by {@link EMFImageLoader} when the record
+ * is rendered. The decoded image is softly cached, so it can be freed
+ * while the record is kept.
+ *
+ * @version $Id$
+ */
+public class EMFBitmap {
+
+    private static final Logger logger = Logger.getLogger("org.freehep.graphicsio.emf");
+
+    private BitmapInfoHeader header;
+
+    private int width, height;
+
+    /**
+     * color table and pixels
+     */
+    private ByteBuffer data;
+
+    private BlendFunction blendFunction;
+
+    /**
+     * decoded image, null if not yet decoded or freed
+     */
+    private SoftReference<BufferedImage> image;
+
+    /**
+     * if true the data could not be decoded
+     */
+    private boolean failed;
+
+    /**
+     * if true the data was decoded
+     */
+    private boolean decoded;
+
+    /**
+     * decoded ARGB pixels used instead of data, null if not set
+     */
+    private IntBuffer pixels;
+
+    private int pixelsWidth, pixelsHeight;
+
+    private boolean pixelsAlpha;
+
+    /**
+     * Reads the image data of a record without decoding it.
+     *
+     * @param header header of the bitmap
+     * @param width expected image width
+     * @param height expected image height
+     * @param emf stream positioned at the color table
+     * @param len length of image data
+     * @param blendFunction contains values for transparency
+     * @throws IOException thrown by EMFInputStream
+     */
+    public EMFBitmap(BitmapInfoHeader header, int width, int height,
+            EMFInputStream emf, int len, BlendFunction blendFunction)
+            throws IOException {
+        this.header = header;
+        this.width = width;
+        this.height = height;
+        this.data = EMFImageLoader.readImageData(header, emf, len);
+        this.blendFunction = blendFunction;
+    }
+
+    /**
+     * @return header of the bitmap
+     */
+    public BitmapInfoHeader getHeader() {
+        return header;
+    }
+
+    /**
+     * @return undecoded color table and pixels
+     */
+    public ByteBuffer getData() {
+        return data.duplicate();
+    }
+
+    /**
+     * Uses already decoded pixels instead of decoding the image data,
+     * see {@link EMFRecordCache}.
+     *
+     * @param pixels ARGB pixels row by row from the top
+     * @param width image width
+     * @param height image height
+     * @param alpha true if the image has an alpha channel
+     */
+    public synchronized void setPixels(IntBuffer pixels, int width,
+            int height, boolean alpha) {
+        this.pixels = pixels;
+        this.pixelsWidth = width;
+        this.pixelsHeight = height;
+        this.pixelsAlpha = alpha;
+        this.image = null;
+        this.failed = false;
+    }
+
+    /**
+     * decodes the image on first use
+     *
+     * @return decoded image or null if the format is not supported
+     */
+    public synchronized BufferedImage getImage() {
+        if (failed) {
+            return null;
+        }
+
+        BufferedImage result = (image != null) ? image.get() : null;
+        if (result == null && pixels != null) {
+            result = new BufferedImage(pixelsWidth, pixelsHeight, pixelsAlpha
+                ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            int[] dest = ((DataBufferInt) result.getRaster().getDataBuffer())
+                .getData();
+            pixels.duplicate().get(dest);
+            image = new SoftReference<BufferedImage>(result);
+        } else if (result == null) {
+            try {
+                result = EMFImageLoader.readImage(
+                    header, width, height, data, blendFunction);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "could not decode bitmap", e);
+            }
+
+            if (result == null) {
+                failed = true;
+            } else {
+                decoded = true;
+                image = new SoftReference<BufferedImage>(result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return true if the image data was decoded, pixels set by
+     *         {@link #setPixels} do not count
+     */
+    public synchronized boolean isDecoded() {
+        return decoded;
+    }
+
+    /**
+     * @return true if pixels were set by {@link #setPixels}
+     */
+    public synchronized boolean hasPixels() {
+        return pixels != null;
+    }
+
+    public String toString() {
+        return "  bitmap: " + width + "x" + height + ", " + data.remaining()
+            + " bytes";
+    }
+}
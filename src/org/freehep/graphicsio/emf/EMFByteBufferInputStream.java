@@ -0,0 +1,374 @@
+// Copyright 2007, FreeHEP.
+package org.freehep.graphicsio.emf;
+
+import java.awt.Point;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+
+import org.freehep.util.io.IncompleteTagException;
+import org.freehep.util.io.Tag;
+import org.freehep.util.io.TagHeader;
+
+/**
+ * EMFInputStream backed by a ByteBuffer instead of an InputStream. All
+ * primitives are read directly from the little-endian buffer, arrays of
+ * points and integers are read with bulk gets. The length of a record is
+ * enforced by the limit of the buffer instead of the byte counter stack
+ * of {@link org.freehep.util.io.ByteCountInputStream}.
+ *
+ * @version $Id$
+ */
+public class EMFByteBufferInputStream extends EMFInputStream {
+
+    /**
+     * buffer holding the complete EMF file
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * header of the record currently read, valid during readTag
+     */
+    private TagHeader tagHeader;
+
+    /**
+     * true while a record is read by {@link #readTag()}
+     */
+    private boolean inTag;
+
+    /**
+     * Creates a stream reading from a memory mapped file.
+     *
+     * @param file EMF file to read
+     * @throws IOException if the file can not be mapped
+     */
+    public EMFByteBufferInputStream(File file) throws IOException {
+        this(map(file));
+    }
+
+    /**
+     * Creates a stream reading from position to limit of the buffer.
+     * The byte order of the buffer is set to little-endian.
+     *
+     * @param buffer buffer to read from
+     */
+    public EMFByteBufferInputStream(ByteBuffer buffer) {
+        this(buffer, new EMFTagSet(DEFAULT_VERSION));
+    }
+
+    /**
+     * Creates a stream reading from position to limit of the buffer.
+     *
+     * @param buffer buffer to read from
+     * @param tagSet available tag set
+     */
+    public EMFByteBufferInputStream(ByteBuffer buffer, EMFTagSet tagSet) {
+        // the underlying stream is never used, all reads go to the buffer
+        super(new ByteArrayInputStream(new byte[0]), tagSet);
+        this.buffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * maps the file read only into memory
+     *
+     * @param file file to map
+     * @return mapped buffer
+     * @throws IOException thrown by FileChannel
+     */
+    private static ByteBuffer map(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            // the mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * @param n number of bytes needed
+     * @throws EOFException if less than n bytes are left in the record
+     */
+    private void require(int n) throws EOFException {
+        if (buffer.remaining() < n) {
+            throw new EOFException();
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    //            InputStream and ByteOrderInputStream
+    // ---------------------------------------------------------------------
+
+    public int read() throws IOException {
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        return buffer.get() & 0xFF;
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        len = Math.min(len, buffer.remaining());
+        buffer.get(b, off, len);
+        return len;
+    }
+
+    public long skip(long n) throws IOException {
+        int skip = (int) Math.max(0, Math.min(n, buffer.remaining()));
+        buffer.position(buffer.position() + skip);
+        return skip;
+    }
+
+    public int available() throws IOException {
+        return buffer.remaining();
+    }
+
+    public byte readByte() throws IOException {
+        require(1);
+        return buffer.get();
+    }
+
+    public byte[] readByte(int n) throws IOException {
+        require(n);
+        byte[] bytes = new byte[n];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    public int readUnsignedByte() throws IOException {
+        require(1);
+        return buffer.get() & 0xFF;
+    }
+
+    public int[] readUnsignedByte(int n) throws IOException {
+        require(n);
+        int[] bytes = new int[n];
+        for (int i = 0; i < n; i++) {
+            bytes[i] = buffer.get() & 0xFF;
+        }
+        return bytes;
+    }
+
+    public short readShort() throws IOException {
+        require(2);
+        return buffer.getShort();
+    }
+
+    public int readUnsignedShort() throws IOException {
+        require(2);
+        return buffer.getShort() & 0xFFFF;
+    }
+
+    public int readInt() throws IOException {
+        require(4);
+        return buffer.getInt();
+    }
+
+    public long readUnsignedInt() throws IOException {
+        require(4);
+        return buffer.getInt() & 0xFFFFFFFFL;
+    }
+
+    public float readFloat() throws IOException {
+        require(4);
+        return buffer.getFloat();
+    }
+
+    // ---------------------------------------------------------------------
+    //            EMFInputStream
+    // ---------------------------------------------------------------------
+
+    public int readDWORD() throws IOException {
+        return readInt();
+    }
+
+    public int[] readDWORD(int size) throws IOException {
+        return readLONG(size);
+    }
+
+    public int[] readLONG(int size) throws IOException {
+        require(4 * size);
+        int[] x = new int[size];
+        buffer.asIntBuffer().get(x);
+        buffer.position(buffer.position() + 4 * size);
+        return x;
+    }
+
+    public Point[] readPOINTL(int size) throws IOException {
+        require(8 * size);
+        int[] xy = new int[2 * size];
+        IntBuffer ib = buffer.asIntBuffer();
+        ib.get(xy);
+        buffer.position(buffer.position() + 8 * size);
+
+        Point[] p = new Point[size];
+        for (int i = 0; i < size; i++) {
+            p[i] = new Point(xy[2 * i], xy[2 * i + 1]);
+        }
+        return p;
+    }
+
+    public Point[] readPOINTS(int size) throws IOException {
+        require(4 * size);
+        short[] xy = new short[2 * size];
+        ShortBuffer sb = buffer.asShortBuffer();
+        sb.get(xy);
+        buffer.position(buffer.position() + 4 * size);
+
+        Point[] p = new Point[size];
+        for (int i = 0; i < size; i++) {
+            p[i] = new Point(xy[2 * i], xy[2 * i + 1]);
+        }
+        return p;
+    }
+
+    public int[] readPOINTSArray(int size) throws IOException {
+        require(4 * size);
+        short[] s = new short[2 * size];
+        buffer.asShortBuffer().get(s);
+        buffer.position(buffer.position() + 4 * size);
+
+        int[] xy = new int[2 * size];
+        for (int i = 0; i < xy.length; i++) {
+            xy[i] = s[i];
+        }
+        return xy;
+    }
+
+    /**
+     * @param size number of bytes
+     * @return a read only slice of the underlying buffer, no bytes are
+     *         copied
+     * @throws IOException if less than size bytes are left in the record
+     */
+    public ByteBuffer readByteBuffer(int size) throws IOException {
+        require(size);
+        ByteBuffer slice = buffer.slice();
+        slice.limit(size);
+        buffer.position(buffer.position() + size);
+        return slice.asReadOnlyBuffer();
+    }
+
+    public String readWCHAR(int size) throws IOException {
+        require(2 * size);
+        char[] chars = new char[size];
+        buffer.asCharBuffer().get(chars);
+        buffer.position(buffer.position() + 2 * size);
+
+        int length = size;
+        for (int i = 0; i < size; i++) {
+            if (chars[i] == 0) {
+                length = i;
+                break;
+            }
+        }
+        return new String(chars, 0, length);
+    }
+
+    // ---------------------------------------------------------------------
+    //            record handling
+    // ---------------------------------------------------------------------
+
+    protected TagHeader readTagHeader() throws IOException {
+        // End of stream
+        if (buffer.remaining() < 8) {
+            return null;
+        }
+
+        int tagID = buffer.getInt();
+        long length = buffer.getInt() & 0xFFFFFFFFL;
+        return new TagHeader(tagID, length - 8);
+    }
+
+    /**
+     * Reads a record. The limit of the buffer is set to the end of the
+     * record while the tag reads its content.
+     *
+     * @return read tag
+     * @throws IOException if read fails or the record is shorter than
+     *         its header
+     */
+    public Tag readTag() throws IOException {
+        tagHeader = readTagHeader();
+        if (tagHeader == null) {
+            return null;
+        }
+
+        // the length includes the 8 bytes of the header
+        if (tagHeader.getLength() < 0) {
+            throw new IOException("invalid length "
+                + (tagHeader.getLength() + 8) + " of record "
+                + tagHeader.getTag() + " at " + (buffer.position() - 8));
+        }
+
+        int size = (int) Math.min(tagHeader.getLength(), Integer.MAX_VALUE);
+        int limit = buffer.limit();
+        int end = (int) Math.min((long) buffer.position() + size, limit);
+
+        Tag tag = tagSet.get(tagHeader.getTag());
+        buffer.limit(end);
+        inTag = true;
+        try {
+            tag = tag.read(tagHeader.getTag(), this, size);
+            byte[] rest = popBuffer();
+
+            // read non-read part of tag
+            if (rest != null) {
+                throw new IncompleteTagException(tag, rest);
+            }
+        } finally {
+            inTag = false;
+            buffer.limit(limit);
+        }
+        return tag;
+    }
+
+    public TagHeader getTagHeader() {
+        return tagHeader;
+    }
+
+    /**
+     * Records are limited by {@link #readTag()}, nested limits are not
+     * used for reading EMF.
+     *
+     * @param len ignored
+     */
+    public void pushBuffer(int len) {
+        // nothing to do
+    }
+
+    /**
+     * Skips the rest of the current record.
+     *
+     * @return null if the record was completely read, the unread bytes
+     *         otherwise
+     * @throws IOException if read fails
+     */
+    public byte[] popBuffer() throws IOException {
+        if (inTag && buffer.hasRemaining()) {
+            return readByte(buffer.remaining());
+        }
+        return null;
+    }
+
+    /**
+     * @return number of bytes left in the current record or the number
+     *         of bytes read if no record is read
+     */
+    public long getLength() {
+        return inTag ? buffer.remaining() : buffer.position();
+    }
+}
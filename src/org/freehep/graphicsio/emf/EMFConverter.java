@@ -2,22 +2,40 @@
 package org.freehep.graphicsio.emf;
 
 import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
 import java.io.BufferedInputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.io.UnsupportedEncodingException;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.imageio.ImageIO;
 
 import org.apache.batik.dom.GenericDOMImplementation;
+import org.apache.batik.svggen.CachedImageHandlerDigestBase64Encoder;
+import org.apache.batik.svggen.GenericImageHandler;
 import org.apache.batik.svggen.SVGGeneratorContext;
 import org.apache.batik.svggen.SVGGeneratorContext.GraphicContextDefaults;
-import org.apache.batik.svggen.SVGGraphics2DIOException;
+import org.apache.batik.svggen.SVGGlyphCache;
 import org.apache.batik.util.SVGConstants;
+import org.freehep.graphicsio.ImageConstants;
+import org.freehep.graphicsio.MultiGraphics2D;
 import org.freehep.graphicsio.asf.SVGGraphics2D;
+import org.freehep.graphicsio.pdf.PDFGraphics2D;
+import org.freehep.util.io.NoCloseOutputStream;
 import org.w3c.dom.DOMImplementation;
 import org.w3c.dom.Document;
 
@@ -30,6 +48,8 @@ import org.w3c.dom.Document;
  */
 public class EMFConverter {
 
+    private static final Logger logger = Logger.getLogger("org.freehep.graphicsio.emf");
+
     /**
      * Looks for an (FreeHEP-) ExportFileType in class path
      * to create the selected output format for destFileName.
@@ -41,10 +61,29 @@ public class EMFConverter {
      * @throws FileNotFoundException 
      */
     public static void export(String type, String srcFileName, String destFileName) throws FileNotFoundException {
-    	export (type, new BufferedInputStream(new FileInputStream(srcFileName)), destFileName);
+        File srcFile = new File(srcFileName);
+        if (!srcFile.isFile()) {
+            throw new FileNotFoundException(srcFileName);
+        }
+        try {
+            // read the records directly from the mapped file
+            export(type, new EMFByteBufferInputStream(srcFile), destFileName);
+        } catch (IOException e) {
+            // fall back to plain stream reading
+            export(type, new BufferedInputStream(new FileInputStream(srcFileName)), destFileName);
+        }
     }
     
 	 protected static SVGGraphics2D buildSVGGraphics2D() {
+	        return buildSVGGraphics2D(false);
+	    }
+
+	/**
+	 * @param embedFonts if true the glyphs of all drawn characters are
+	 *        embedded as SVG fonts
+	 * @return a new SVGGraphics2D for an EMF
+	 */
+	 protected static SVGGraphics2D buildSVGGraphics2D(boolean embedFonts) {
 	        // CSSDocumentHandler.setParserClassName(CSS_PARSER_CLASS_NAME);
 	        DOMImplementation impl = GenericDOMImplementation.getDOMImplementation();
 	        String namespaceURI = SVGConstants.SVG_NAMESPACE_URI;
@@ -55,48 +94,284 @@ public class EMFConverter {
 	        //09.12 ASF defaults.setFont(new Font("Arial", Font.PLAIN, 12));	        
 	        ctx.setGraphicContextDefaults(defaults);
 	        ctx.setPrecision(12);
+	        // repeated bitmaps are encoded once and referenced by <use>
+	        ctx.setGenericImageHandler(new CachedImageHandlerDigestBase64Encoder());
+	        ctx.setEmbeddedFontsOn(embedFonts);
+	        // runs of small shapes with the same style become one path
+	        ctx.setMergeShapes(true);
+	        // the document is always written by XmlWriter, which encodes
+	        // the image data while writing
+	        ctx.setDeferredImageData(true);
 	        
 	        return new SVGGraphics2D(ctx, false);
 	    }
 	 
 	public static void exportToSVG(EMFRenderer renderer, String destFileName) {
-		SVGGraphics2D g = buildSVGGraphics2D();		
-		renderer.getMapModeTransform();
-		renderer.getViewportOrigin();
+		OutputStream out = null;
+		try {
+			out = new FileOutputStream(destFileName);
+			writeSVG(renderer, out);
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+    /**
+     * Paints the renderer on a new SVGGraphics2D and writes the SVG
+     * document to out. out is flushed but not closed.
+     *
+     * @param renderer renderer holding the EMF
+     * @param out stream to write to
+     * @throws IOException if the document could not be written
+     */
+    public static void writeSVG(EMFRenderer renderer, OutputStream out) throws IOException {
+        writeSVG(renderer, out, false);
+    }
+
+    /**
+     * Paints the renderer on a new SVGGraphics2D and writes the SVG
+     * document to out. out is flushed but not closed.
+     *
+     * @param renderer renderer holding the EMF
+     * @param out stream to write to
+     * @param streaming if true completed groups are written while painting
+     *        instead of building the complete DOM first; the definitions
+     *        are written after the groups
+     * @throws IOException if the document could not be written
+     */
+    public static void writeSVG(EMFRenderer renderer, OutputStream out, boolean streaming) throws IOException {
+        writeSVG(renderer, out, streaming, false);
+    }
+
+    /**
+     * Paints the renderer on a new SVGGraphics2D and writes the SVG
+     * document to out. out is flushed but not closed.
+     *
+     * @param renderer renderer holding the EMF
+     * @param out stream to write to
+     * @param streaming if true completed groups are written while painting
+     *        instead of building the complete DOM first; the definitions
+     *        are written after the groups
+     * @param embedFonts if true a subset of each used font with the glyphs
+     *        of exactly the drawn characters is embedded, so the text
+     *        looks the same without the fonts installed
+     * @throws IOException if the document could not be written
+     */
+    public static void writeSVG(EMFRenderer renderer, OutputStream out, boolean streaming, boolean embedFonts) throws IOException {
+		SVGGraphics2D g = buildSVGGraphics2D(embedFonts);
 		AffineTransform at = new AffineTransform();
 		at.translate(-renderer.getHeader().getBounds().getX(), -renderer.getHeader().getBounds().getY());
 		g.setTransform(at);
 		renderer.setInitialTransform(at);
-		
-		renderer.paint(g);
-		g.setSVGCanvasSize(new Dimension((int) (renderer.getSize().getWidth()), (int) (renderer.getSize().getHeight())));
-		
-			
-		Writer out = null;
-		try {
-			OutputStream s = 
-					new FileOutputStream(destFileName);
-			out = new OutputStreamWriter(s, "UTF-8");
-
-		} catch (UnsupportedEncodingException use) {
-			use.printStackTrace();
-		} catch (FileNotFoundException fnfe) {
-			fnfe.printStackTrace();
+		// shapes outside of the canvas would only add invisible elements
+		renderer.setCulling(true);
+
+		Writer writer = new OutputStreamWriter(out, "UTF-8");
+		boolean useCSS = true;	//FIXME ASF true antes
+		if (streaming) {
+			// the size is written with the start of the document
+			g.setSVGCanvasSize(new Dimension((int) (renderer.getSize().getWidth()), (int) (renderer.getSize().getHeight())));
+			g.startStream(writer, useCSS);
+			renderer.paint(g);
+			g.endStream();
+		} else {
+			renderer.paint(g);
+			g.setSVGCanvasSize(new Dimension((int) (renderer.getSize().getWidth()), (int) (renderer.getSize().getHeight())));
+			g.stream(writer, useCSS);
 		}
-	
-		try {
-			boolean useCSS = true;	//FIXME ASF true antes
-			g.stream(out,useCSS);		 
-		} catch (SVGGraphics2DIOException sioe) {
-			sioe.printStackTrace();
+		writer.flush();
+
+		GenericImageHandler imageHandler = g.getGenericImageHandler();
+		if (imageHandler instanceof CachedImageHandlerDigestBase64Encoder
+				&& logger.isLoggable(Level.FINE)) {
+			logger.fine("EMF images: " + imageHandler);
+		}
+		if (logger.isLoggable(Level.FINE)) {
+			logger.fine("EMF text: " + renderer.getTextLayoutCache());
+			logger.fine("EMF culled: " + renderer.getCulledShapes() + " shapes, "
+				+ renderer.getCulledImages() + " images, "
+				+ renderer.getCulledTexts() + " texts");
+		}
+		if (embedFonts && logger.isLoggable(Level.FINE)) {
+			logger.fine("EMF glyphs: " + SVGGlyphCache.getInstance());
 		}
 	}
 
+    /**
+     * @param type extension / file format
+     * @return true if EMFs can be converted to type, supported are
+     *         {@link ImageConstants#SVG}, {@link ImageConstants#PNG} and
+     *         {@link ImageConstants#PDF}
+     */
+    public static boolean isSupported(String type) {
+        return ImageConstants.SVG.equalsIgnoreCase(type)
+            || ImageConstants.PNG.equalsIgnoreCase(type)
+            || ImageConstants.PDF.equalsIgnoreCase(type);
+    }
+
+    /**
+     * Converts an EMF stream. In contrast to the export methods errors
+     * are thrown to the caller. All objects needed for the conversion
+     * are created by this call, so several conversions can run in
+     * parallel.
+     *
+     * @param type extension / file format to write, see
+     *        {@link #isSupported(String)}
+     * @param in EMF stream, closed after reading
+     * @param out stream to write to, flushed but not closed
+     * @throws IOException if reading or writing fails
+     * @throws IllegalArgumentException if type is not supported
+     */
+    public static void convert(String type, EMFInputStream in, OutputStream out) throws IOException {
+        convert(type, in, out, false);
+    }
+
+    /**
+     * Converts an EMF stream, see
+     * {@link #convert(String, EMFInputStream, OutputStream)}.
+     *
+     * @param type extension / file format to write
+     * @param in EMF stream, closed after reading
+     * @param out stream to write to, flushed but not closed
+     * @param streaming if true the SVG document is written while painting
+     *        and never kept in memory completely
+     * @throws IOException if reading or writing fails
+     * @throws IllegalArgumentException if type is not supported
+     */
+    public static void convert(String type, EMFInputStream in, OutputStream out, boolean streaming) throws IOException {
+        convert(type, in, out, streaming, false);
+    }
+
+    /**
+     * Converts an EMF stream, see
+     * {@link #convert(String, EMFInputStream, OutputStream)}.
+     *
+     * @param type extension / file format to write
+     * @param in EMF stream, closed after reading
+     * @param out stream to write to, flushed but not closed
+     * @param streaming if true the SVG document is written while painting
+     *        and never kept in memory completely
+     * @param embedFonts if true the glyphs of the drawn characters are
+     *        embedded as SVG fonts
+     * @throws IOException if reading or writing fails
+     * @throws IllegalArgumentException if type is not supported
+     */
+    public static void convert(String type, EMFInputStream in, OutputStream out, boolean streaming, boolean embedFonts) throws IOException {
+        if (!ImageConstants.SVG.equalsIgnoreCase(type)) {
+            // streaming and embedded fonts only apply to SVG
+            convert(in, Collections.singletonMap(type, out));
+            return;
+        }
+        // read the EMF header, the records are read while painting
+        EMFRenderer emfRenderer = new EMFRenderer(in, true);
+        writeSVG(emfRenderer, out, streaming, embedFonts);
+    }
+
+    /**
+     * Converts an EMF stream into several formats at once. The records
+     * are read and painted only once, a {@link MultiGraphics2D} passes
+     * every call to the graphics contexts of all formats.
+     *
+     * @param in EMF stream, closed after reading
+     * @param outputs stream to write to for each format, supported are
+     *        {@link ImageConstants#SVG}, {@link ImageConstants#PNG} and
+     *        {@link ImageConstants#PDF}. The streams are flushed but not
+     *        closed.
+     * @throws IOException if reading or writing fails
+     * @throws IllegalArgumentException if a format is not supported,
+     *         nothing is written then
+     */
+    public static void convert(EMFInputStream in, Map<String, OutputStream> outputs) throws IOException {
+        try {
+            // check all formats before any output is started
+            for (String type : outputs.keySet()) {
+                if (!isSupported(type)) {
+                    throw new IllegalArgumentException("unsupported format: " + type);
+                }
+            }
+            if (outputs.isEmpty()) {
+                return;
+            }
+
+            // read the EMF header, the records are read while painting
+            EMFRenderer renderer = new EMFRenderer(in, true);
+            Rectangle bounds = renderer.getHeader().getBounds();
+            AffineTransform at = new AffineTransform();
+            at.translate(-bounds.getX(), -bounds.getY());
+
+            SVGGraphics2D svg = null;
+            OutputStream svgOut = null;
+            BufferedImage image = null;
+            Graphics2D imageGraphics = null;
+            OutputStream imageOut = null;
+            PDFGraphics2D pdf = null;
+            NoCloseOutputStream pdfOut = null;
+
+            List<Graphics2D> delegates = new ArrayList<Graphics2D>();
+            for (Map.Entry<String, OutputStream> output : outputs.entrySet()) {
+                String type = output.getKey();
+                if (ImageConstants.SVG.equalsIgnoreCase(type)) {
+                    svg = buildSVGGraphics2D();
+                    svgOut = output.getValue();
+                    delegates.add(svg);
+                } else if (ImageConstants.PNG.equalsIgnoreCase(type)) {
+                    image = new BufferedImage(Math.max(1, bounds.width),
+                        Math.max(1, bounds.height), BufferedImage.TYPE_INT_ARGB);
+                    imageGraphics = image.createGraphics();
+                    imageOut = output.getValue();
+                    delegates.add(imageGraphics);
+                } else {
+                    // PDFGraphics2D closes its stream
+                    pdfOut = new NoCloseOutputStream(output.getValue());
+                    pdf = new PDFGraphics2D(pdfOut, bounds.getSize());
+                    pdf.startExport();
+                    delegates.add(pdf);
+                }
+            }
+
+            MultiGraphics2D g = new MultiGraphics2D(
+                delegates.toArray(new Graphics2D[delegates.size()]));
+            g.setTransform(at);
+            renderer.setInitialTransform(at);
+            renderer.paint(g);
+
+            if (svg != null) {
+                svg.setSVGCanvasSize(new Dimension((int) (renderer.getSize().getWidth()), (int) (renderer.getSize().getHeight())));
+                Writer writer = new OutputStreamWriter(svgOut, "UTF-8");
+                svg.stream(writer, true);
+                writer.flush();
+            }
+            if (image != null) {
+                imageGraphics.dispose();
+                ImageIO.write(image, "png", imageOut);
+                imageOut.flush();
+            }
+            if (pdf != null) {
+                pdf.endExport();
+                pdfOut.flush();
+            }
+        } finally {
+            // painting closes the stream, unless it fails before
+            in.close();
+        }
+    }
+
     protected static void export(String type, BufferedInputStream in, String destFileName) {
+        export(type, new EMFInputStream(in), destFileName);
+    }
+
+    protected static void export(String type, EMFInputStream in, String destFileName) {
         try {
-            // read the EMF file
-            EMFRenderer emfRenderer = new EMFRenderer(
-                new EMFInputStream(in));
+            // read the EMF header, the records are read while painting
+            EMFRenderer emfRenderer = new EMFRenderer(in, true);
 
             EMFPanel emfPanel = new EMFPanel();
             emfPanel.setRenderer(emfRenderer);
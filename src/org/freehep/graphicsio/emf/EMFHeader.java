@@ -42,6 +42,11 @@ public class EMFHeader implements EMFConstants {
 
     private boolean openGL;
 
+    /**
+     * size of the header record, 0 if the header was not read
+     */
+    private int length;
+
     public EMFHeader(Rectangle bounds, int versionMajor, int versionMinor,
             int bytes, int records, int handles, String application,
             String name, Dimension device) {
@@ -76,7 +81,7 @@ public class EMFHeader implements EMFConstants {
         // FIXME: incomplete
         emf.readUnsignedInt(); // 4
 
-        int length = emf.readDWORD(); // 8
+        length = emf.readDWORD(); // 8
 
         bounds = emf.readRECTL(); // 24
         frame = emf.readRECTL(); // 40
@@ -186,6 +191,15 @@ public class EMFHeader implements EMFConstants {
         return s.toString();
     }
 
+    /**
+     * @return size of the header record in bytes as read from the stream,
+     *         which is the offset of the first record. 0 if the header was
+     *         not read.
+     */
+    public int getLength() {
+        return length;
+    }
+
     /**
      * Specifies the dimensions, in device units, of the smallest rectangle that
      * can be drawn around the picture stored in the metafile. This rectangle is
@@ -9,11 +9,14 @@ import org.freehep.graphicsio.emf.gdi.BlendFunction;
 
 import java.awt.Color;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
+import org.freehep.util.io.ByteBufferInputStream;
+
 /**
  * this class creates a BufferedImage from EMF imaga data stored in a byte[].
  *
@@ -52,6 +55,70 @@ public class EMFImageLoader {
 			int len,
 			BlendFunction blendFunction) throws IOException {
 
+		return readImage(bmi, width, height,
+				readImageData(bmi, emf, len), blendFunction);
+	}
+
+	/**
+	 * reads the undecoded image data (color table and pixels) from an
+	 * EMFInputStream. Exactly the bytes are consumed which
+	 * {@link #readImage(BitmapInfoHeader, int, int, EMFInputStream, int, BlendFunction)}
+	 * would consume.
+	 *
+	 * @param bmi
+	 *            BitmapInfoHeader storing Bitmap informations
+	 * @param emf
+	 *            EMF stream
+	 * @param len
+	 *            length of image data
+	 * @return image data, to be decoded with
+	 *         {@link #readImage(BitmapInfoHeader, int, int, ByteBuffer, BlendFunction)}
+	 * @throws java.io.IOException
+	 *             thrown by EMFInputStream
+	 */
+	public static ByteBuffer readImageData(
+			BitmapInfoHeader bmi,
+			EMFInputStream emf,
+			int len) throws IOException {
+
+		// images with a color table use the rest of the record
+		if (bmi.getBitCount() == 1 ||
+				((bmi.getBitCount() == 4 || bmi.getBitCount() == 8) &&
+				(bmi.getCompression() == EMFConstants.BI_RGB))) {
+			return emf.readByteBuffer((int) emf.getLength());
+		}
+		return emf.readByteBuffer(len);
+	}
+
+	/**
+	 * creates a BufferedImage from image data read by
+	 * {@link #readImageData(BitmapInfoHeader, EMFInputStream, int)}. The
+	 * position of data is not changed.
+	 *
+	 * @param bmi
+	 *            BitmapInfoHeader storing Bitmap informations
+	 * @param width
+	 *            expected image width
+	 * @param height
+	 *            expected image height
+	 * @param data
+	 *            color table and pixels
+	 * @param blendFunction
+	 *            contains values for transparency
+	 * @return BufferedImage or null
+	 * @throws java.io.IOException
+	 *             thrown by BMPDecoder
+	 */
+	public static BufferedImage readImage(
+			BitmapInfoHeader bmi,
+			int width,
+			int height,
+			ByteBuffer data,
+			BlendFunction blendFunction) throws IOException {
+
+		LittleEndianInputStream in = new LittleEndianInputStream(
+				new ByteBufferInputStream(data.duplicate()));
+
 		// 0    Windows 98/Me, Windows 2000/XP: The number of bits-per-pixel
 		// is specified or is implied by the JPEG or PNG format.
 
@@ -70,7 +137,7 @@ public class EMFImageLoader {
 			if(colorsUsed == 0){
 				colorsUsed = 1 << bmi.getBitCount();
 			}
-			int[] colors = emf.readUnsignedByte(colorsUsed * 4);
+			int[] colors = readColors(in, colorsUsed);
 
 			// convert it to a color table
 			ColorEntry[] colorTable = new ColorEntry[2];
@@ -84,12 +151,8 @@ public class EMFImageLoader {
 						255);
 			}
 			
-			byte[] imageData = emf.readByte((int) emf.getLength());
-			//System.out.println("image data length "+imageData.length);
-			InputStream imageDataStream = new ByteArrayInputStream(imageData);
 			BufferedImage image =  BMPDecoder.read1(bmi.toInfoHeader(), 
-					new LittleEndianInputStream(imageDataStream), colorTable);
-			imageDataStream.close();
+					in, colorTable);
 			return image;
 
 			/* for debugging: shows every loaded image
@@ -111,7 +174,7 @@ public class EMFImageLoader {
 				(bmi.getCompression() == EMFConstants.BI_RGB)) {
 			int colorsUsed = bmi.getClrUsed();
 
-			int[] colors = emf.readUnsignedByte(colorsUsed * 4);
+			int[] colors = readColors(in, colorsUsed);
 
 			// convert it to a color table
 			ColorEntry[] colorTable = new ColorEntry[16];
@@ -131,11 +194,8 @@ public class EMFImageLoader {
 				Arrays.fill(colorTable, colorsUsed, colorTable.length, new ColorEntry(0,0,0,0));
 			}
 			
-			byte[] imageData = emf.readByte((int) emf.getLength());
-			InputStream imageDataStream = new ByteArrayInputStream(imageData);
 			BufferedImage image =  BMPDecoder.read4(bmi.toInfoHeader(), 
-					new LittleEndianInputStream(imageDataStream), colorTable);
-			imageDataStream.close();
+					in, colorTable);
 			return image;
 			
 			
@@ -150,7 +210,7 @@ public class EMFImageLoader {
 			// read the color table
 			int colorsUsed = bmi.getClrUsed();
 
-			int[] colors = emf.readUnsignedByte(colorsUsed * 4);
+			int[] colors = readColors(in, colorsUsed);
 
 			// convert it to a color table
 			ColorEntry[] colorTable = new ColorEntry[256];
@@ -170,11 +230,8 @@ public class EMFImageLoader {
 				Arrays.fill(colorTable, colorsUsed, colorTable.length, new ColorEntry(0,0,0,0));
 			}
 			
-			byte[] imageData = emf.readByte((int) emf.getLength());
-			InputStream imageDataStream = new ByteArrayInputStream(imageData);
 			BufferedImage image =  BMPDecoder.read8(bmi.toInfoHeader(), 
-					new LittleEndianInputStream(imageDataStream), colorTable);
-			imageDataStream.close();
+					in, colorTable);
 			return image;
 			
 
@@ -195,20 +252,14 @@ public class EMFImageLoader {
 			// the number of entries specified by the biClrUsed member of the
 			// BITMAPINFOHEADER.
 			
-			byte[] imageData = emf.readByte(len);
-			InputStream imageDataStream = new ByteArrayInputStream(imageData);
-			BufferedImage image =  BMPDecoder.read16(bmi.toInfoHeader(), new LittleEndianInputStream(imageDataStream));
-			imageDataStream.close();
+			BufferedImage image =  BMPDecoder.read16(bmi.toInfoHeader(), in);
 			return image;
 
 		}
 		
 		else if (bmi.getBitCount() == 24) {
 
-			byte[] imageData = emf.readByte(len);
-			InputStream imageDataStream = new ByteArrayInputStream(imageData);
-			BufferedImage image =  BMPDecoder.read24(bmi.toInfoHeader(), new LittleEndianInputStream(imageDataStream));
-			imageDataStream.close();
+			BufferedImage image =  BMPDecoder.read24(bmi.toInfoHeader(), in);
 			return image;
 
 		}
@@ -218,11 +269,8 @@ public class EMFImageLoader {
 		else if ((bmi.getBitCount() == 32)
 				&& (bmi.getCompression() == EMFConstants.BI_RGB)) {
 
-			byte[] imageData = emf.readByte(len);
-			InputStream imageDataStream = new ByteArrayInputStream(imageData);
 			BufferedImage image = BMPDecoder.read32(bmi.toInfoHeader(),
-					new LittleEndianInputStream(imageDataStream));
-			imageDataStream.close();
+					in);
 
 			return image;
 
@@ -241,11 +289,32 @@ public class EMFImageLoader {
 			// the green mask is 0x0000FF00, and the red mask is 0x00FF0000.
 			else if ((bmi.getBitCount() == 32) &&
 					(bmi.getCompression() == EMFConstants.BI_BITFIELDS)) {
-				/* byte[] bytes =*/ emf.readByte(len);
 				return null;
 			} else {
-				/* byte[] bytes =*/ emf.readByte(len);
 				return null;
 			}
 		}
-}
\ No newline at end of file
+
+	/**
+	 * reads a color table
+	 *
+	 * @param in
+	 *            stream positioned at the color table
+	 * @param colorsUsed
+	 *            number of RGBQUAD entries
+	 * @return blue, green, red and reserved byte of each entry
+	 * @throws java.io.IOException
+	 *             if the table is incomplete
+	 */
+	private static int[] readColors(InputStream in, int colorsUsed)
+			throws IOException {
+		int[] colors = new int[colorsUsed * 4];
+		for (int i = 0; i < colors.length; i++) {
+			colors[i] = in.read();
+			if (colors[i] < 0) {
+				throw new EOFException();
+			}
+		}
+		return colors;
+	}
+}
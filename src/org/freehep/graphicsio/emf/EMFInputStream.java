@@ -8,6 +8,7 @@ import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.freehep.util.io.ActionHeader;
 import org.freehep.util.io.TagHeader;
@@ -141,6 +142,32 @@ public class EMFInputStream extends TaggedInputStream implements EMFConstants {
         return p;
     }
 
+    /**
+     * reads POINTL values into a packed array of coordinates
+     *
+     * @param size number of points
+     * @return x0, y0, x1, y1, ...
+     * @throws IOException if read fails
+     */
+    public int[] readPOINTLArray(int size) throws IOException {
+        return readLONG(2 * size);
+    }
+
+    /**
+     * reads POINTS values into a packed array of coordinates
+     *
+     * @param size number of points
+     * @return x0, y0, x1, y1, ...
+     * @throws IOException if read fails
+     */
+    public int[] readPOINTSArray(int size) throws IOException {
+        int[] xy = new int[2 * size];
+        for (int i = 0; i < xy.length; i++) {
+            xy[i] = readShort();
+        }
+        return xy;
+    }
+
     public Dimension readSIZEL() throws IOException {
         return new Dimension(readLONG(), readLONG());
     }
@@ -157,6 +184,18 @@ public class EMFInputStream extends TaggedInputStream implements EMFConstants {
         return x;
     }
 
+    /**
+     * reads size bytes into a buffer, e.g. for image data which is
+     * decoded later
+     *
+     * @param size number of bytes
+     * @return buffer holding the bytes
+     * @throws IOException if read fails
+     */
+    public ByteBuffer readByteBuffer(int size) throws IOException {
+        return ByteBuffer.wrap(readByte(size));
+    }
+
     public boolean readBOOLEAN() throws IOException {
         return (readBYTE() != 0);
     }
@@ -136,6 +136,12 @@ public class EMFOutputStream extends TaggedOutputStream {
         writeSHORT((short) p.y);
     }
 
+    public void writePOINTS(int n, int[] xy) throws IOException {
+        for (int i = 0; i < 2 * n; i++) {
+            writeSHORT((short) xy[i]);
+        }
+    }
+
     // POINTL []
     public void writePOINTL(Point[] p) throws IOException {
         writePOINTL(p.length, p);
@@ -147,6 +153,12 @@ public class EMFOutputStream extends TaggedOutputStream {
         }
     }
 
+    public void writePOINTL(int n, int[] xy) throws IOException {
+        for (int i = 0; i < 2 * n; i++) {
+            writeLONG(xy[i]);
+        }
+    }
+
     // POINTL
     public void writePOINTL(Point p) throws IOException {
         writeLONG(p.x);
@@ -0,0 +1,518 @@
+// Copyright 2007, FreeHEP.
+package org.freehep.graphicsio.emf;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.freehep.graphicsio.emf.gdi.AlphaBlend;
+import org.freehep.graphicsio.emf.gdi.BitBlt;
+import org.freehep.graphicsio.emf.gdi.StretchDIBits;
+import org.freehep.util.io.Tag;
+
+/**
+ * Directory of decoded EMF bitmaps, keyed by the SHA-256 digest of the
+ * EMF bytes. An entry is a memory mapped file holding the EMF records and
+ * the decoded pixels of the bitmaps that were rendered. On a hit the
+ * records are parsed again from the mapped file by
+ * {@link EMFByteBufferInputStream}, which takes about as long as parsing
+ * the original bytes, but the stored bitmaps are not decoded again. The
+ * cache pays off for EMFs whose time is spent decoding DIBs.
+ *
+ * Bitmaps are decoded only when their record is rendered, so an entry is
+ * written after rendering:
+ * <pre>
+ *   EMFRecordIndex index = cache.getIndex(in);
+ *   new EMFRenderer(index, null).paint(g2);
+ *   cache.store(index);
+ * </pre>
+ * Storing again after more bitmaps were decoded, e.g. by rendering
+ * another region, replaces the entry.
+ *
+ * Entries of another format version are ignored and replaced. If the
+ * entries exceed the maximum size, the least recently used ones are
+ * deleted.
+ *
+ * Entry layout, little-endian and aligned to 4 bytes:
+ * <pre>
+ *   int     magic
+ *   int     format version
+ *   int     number of images n
+ *   int     length of the EMF
+ *   byte[32] SHA-256 digest of the EMF
+ *   n times: int record index, int width, int height, int flags
+ *   EMF header and records, padded to 4 bytes
+ *   n times: width * height ARGB pixels
+ * </pre>
+ *
+ * @version $Id$
+ */
+public class EMFRecordCache {
+
+    private static final Logger logger = Logger.getLogger("org.freehep.graphicsio.emf");
+
+    /**
+     * format version of the entries, increase it if the layout changes
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * "FEMC"
+     */
+    private static final int MAGIC = 0x434D4546;
+
+    private static final String SUFFIX = ".emfc";
+
+    private static final int HEADER_SIZE = 48;
+
+    private static final int IMAGE_ENTRY_SIZE = 16;
+
+    /**
+     * image flag, set if the alpha values are used
+     */
+    private static final int ALPHA = 1;
+
+    private File directory;
+
+    private long maxSize;
+
+    private int hits;
+
+    private int misses;
+
+    /**
+     * EMFs of the indexes returned by getIndex which may be stored
+     */
+    private Map<EMFRecordIndex, Pending> pending =
+        new WeakHashMap<EMFRecordIndex, Pending>();
+
+    /**
+     * Entry of an EMF read by getIndex
+     */
+    private static class Pending {
+
+        private File file;
+
+        private byte[] key;
+
+        private byte[] emf;
+
+        /**
+         * number of bitmaps in the entry
+         */
+        private int bitmaps;
+
+        private Pending(File file, byte[] key, byte[] emf, int bitmaps) {
+            this.file = file;
+            this.key = key;
+            this.emf = emf;
+            this.bitmaps = bitmaps;
+        }
+    }
+
+    /**
+     * Creates the directory if it does not exist.
+     *
+     * @param directory directory of the entries
+     * @param maxSize maximum size of all entries in bytes
+     * @throws IOException if the directory can not be created
+     */
+    public EMFRecordCache(File directory, long maxSize) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("can not create cache directory " + directory);
+        }
+        this.directory = directory;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Reads the EMF with the stored bitmaps from the cache or parses it.
+     *
+     * @param in EMF stream, read completely but not closed
+     * @return the parsed records
+     * @throws IOException if the stream or the EMF can not be read
+     */
+    public EMFRecordIndex getIndex(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) >= 0) {
+            bytes.write(buffer, 0, n);
+        }
+        return getIndex(bytes.toByteArray());
+    }
+
+    /**
+     * Reads the EMF with the stored bitmaps from the cache or parses it.
+     *
+     * @param emf EMF file content
+     * @return the parsed records
+     * @throws IOException if the EMF can not be read
+     */
+    public EMFRecordIndex getIndex(byte[] emf) throws IOException {
+        byte[] key = digest(emf);
+        File file = new File(directory, toHex(key) + SUFFIX);
+
+        EMFRecordIndex index = null;
+        if (file.isFile()) {
+            try {
+                index = load(file, key, emf.length);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "invalid cache entry " + file, e);
+            }
+        }
+
+        if (index != null) {
+            // the modification time orders the entries for eviction
+            file.setLastModified(System.currentTimeMillis());
+            synchronized (this) {
+                hits++;
+            }
+        } else {
+            index = new EMFRecordIndex(
+                new EMFByteBufferInputStream(ByteBuffer.wrap(emf)));
+            synchronized (this) {
+                misses++;
+            }
+        }
+        synchronized (pending) {
+            pending.put(index, new Pending(file, key, emf,
+                getDecodedRecords(index).size()));
+        }
+        return index;
+    }
+
+    /**
+     * Writes the entry of an index returned by {@link #getIndex(byte[])}
+     * with the bitmaps decoded while it was rendered. Nothing is written
+     * if no bitmap was decoded since the entry was read or last written.
+     * Errors are logged, the cache is optional.
+     *
+     * @param index index returned by getIndex and rendered
+     */
+    public void store(EMFRecordIndex index) {
+        Pending entry;
+        synchronized (pending) {
+            entry = pending.get(index);
+        }
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            List<Integer> records = getDecodedRecords(index);
+            if (records.size() <= entry.bitmaps) {
+                return;
+            }
+            try {
+                store(entry.file, entry.key, entry.emf, index, records);
+                entry.bitmaps = records.size();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "could not write cache entry " + entry.file, e);
+                return;
+            }
+        }
+        evict();
+    }
+
+    /**
+     * @return number of EMFs read from the cache
+     */
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    /**
+     * @return number of EMFs parsed
+     */
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    /**
+     * maps an entry and reads its records
+     *
+     * @param file entry
+     * @param key digest of the EMF
+     * @param length length of the EMF
+     * @return the records or null if the entry is not valid
+     * @throws IOException if the entry can not be read
+     */
+    private EMFRecordIndex load(File file, byte[] key, int length)
+            throws IOException {
+        ByteBuffer buffer;
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = in.getChannel();
+            // the mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            in.close();
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.remaining() < HEADER_SIZE
+            || buffer.getInt() != MAGIC
+            || buffer.getInt() != VERSION) {
+            return null;
+        }
+        int imageCount = buffer.getInt();
+        int entryLength = buffer.getInt();
+        byte[] entryKey = new byte[key.length];
+        buffer.get(entryKey);
+        if (entryLength != length || !Arrays.equals(key, entryKey)) {
+            return null;
+        }
+
+        if (imageCount < 0
+            || imageCount > (buffer.limit() - HEADER_SIZE) / IMAGE_ENTRY_SIZE) {
+            return null;
+        }
+        int emfStart = HEADER_SIZE + imageCount * IMAGE_ENTRY_SIZE;
+        int pixelStart = emfStart + align(length);
+        if (pixelStart > buffer.limit()) {
+            return null;
+        }
+
+        ByteBuffer records = buffer.duplicate();
+        records.position(emfStart);
+        records.limit(emfStart + length);
+        EMFRecordIndex index = new EMFRecordIndex(
+            new EMFByteBufferInputStream(records));
+
+        // the bitmaps use the decoded pixels
+        int offset = pixelStart;
+        for (int i = 0; i < imageCount; i++) {
+            int record = buffer.getInt();
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            int flags = buffer.getInt();
+            if (record < 0 || record >= index.size()
+                || width < 0 || height < 0) {
+                return null;
+            }
+            long size = 4L * width * height;
+            if (size > Integer.MAX_VALUE || offset + size > buffer.limit()) {
+                return null;
+            }
+            EMFBitmap bitmap = getBitmap(index.getTag(record));
+            if (bitmap != null) {
+                ByteBuffer pixels = buffer.duplicate();
+                pixels.position(offset);
+                pixels.limit(offset + (int) size);
+                IntBuffer argb = pixels.slice()
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+                bitmap.setPixels(argb, width, height, (flags & ALPHA) != 0);
+            }
+            offset += size;
+        }
+        return index;
+    }
+
+    /**
+     * @return indexes of the records whose bitmap was decoded or read
+     *         from the cache
+     */
+    private static List<Integer> getDecodedRecords(EMFRecordIndex index) {
+        List<Integer> records = new ArrayList<Integer>();
+        for (int i = 0; i < index.size(); i++) {
+            EMFBitmap bitmap = getBitmap(index.getTag(i));
+            if (bitmap != null && (bitmap.isDecoded() || bitmap.hasPixels())) {
+                records.add(Integer.valueOf(i));
+            }
+        }
+        return records;
+    }
+
+    /**
+     * writes an entry, each bitmap is written when its entry is filled in
+     *
+     * @param file entry
+     * @param key digest of the EMF
+     * @param emf EMF file content
+     * @param index records of emf
+     * @param records records whose bitmaps are written
+     * @throws IOException if the entry can not be written
+     */
+    private void store(File file, byte[] key, byte[] emf,
+            EMFRecordIndex index, List<Integer> records) throws IOException {
+        // the image entries are filled in while the pixels are written
+        int emfStart = HEADER_SIZE + records.size() * IMAGE_ENTRY_SIZE;
+        ByteBuffer header = ByteBuffer.allocate(emfStart)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(records.size());
+        header.putInt(emf.length);
+        header.put(key);
+
+        // written completely before it is visible under its name
+        File temp = File.createTempFile(file.getName(), ".tmp", directory);
+        FileOutputStream out = new FileOutputStream(temp);
+        boolean written = false;
+        try {
+            FileChannel channel = out.getChannel();
+            channel.position(emfStart);
+            write(channel, ByteBuffer.wrap(emf));
+            write(channel, ByteBuffer.allocate(align(emf.length) - emf.length));
+            for (int i = 0; i < records.size(); i++) {
+                int record = records.get(i).intValue();
+                // decoded before, decoded again if the image was freed
+                BufferedImage image = getBitmap(index.getTag(record)).getImage();
+                header.putInt(record);
+                header.putInt(image.getWidth());
+                header.putInt(image.getHeight());
+                header.putInt(image.getColorModel().hasAlpha() ? ALPHA : 0);
+                write(channel, getPixels(image));
+            }
+            header.flip();
+            channel.position(0);
+            write(channel, header);
+            written = true;
+        } finally {
+            out.close();
+            if (!written) {
+                temp.delete();
+            }
+        }
+
+        if (!temp.renameTo(file)) {
+            // on Windows renameTo does not replace an existing file, the
+            // old entry is deleted first. If it can not be deleted, e.g.
+            // because it is mapped, it is kept.
+            if (!file.delete() || !temp.renameTo(file)) {
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * deletes the least recently used entries until all entries fit into
+     * maxSize
+     */
+    private synchronized void evict() {
+        File[] files = directory.listFiles(new FileFilter() {
+            public boolean accept(File file) {
+                return file.getName().endsWith(SUFFIX);
+            }
+        });
+        if (files == null) {
+            return;
+        }
+
+        long size = 0;
+        for (int i = 0; i < files.length; i++) {
+            size += files[i].length();
+        }
+        if (size <= maxSize) {
+            return;
+        }
+
+        // sort once by the current times, they change while sorting
+        final long[] lastModified = new long[files.length];
+        Integer[] order = new Integer[files.length];
+        for (int i = 0; i < files.length; i++) {
+            order[i] = Integer.valueOf(i);
+            lastModified[i] = files[i].lastModified();
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                long ta = lastModified[a.intValue()];
+                long tb = lastModified[b.intValue()];
+                return (ta < tb) ? -1 : ((ta == tb) ? 0 : 1);
+            }
+        });
+
+        for (int i = 0; i < order.length && size > maxSize; i++) {
+            File file = files[order[i].intValue()];
+            long length = file.length();
+            if (file.delete()) {
+                size -= length;
+            }
+        }
+    }
+
+    /**
+     * @param tag record
+     * @return bitmap of the record or null
+     */
+    private static EMFBitmap getBitmap(Tag tag) {
+        if (tag instanceof StretchDIBits) {
+            return ((StretchDIBits) tag).getBitmap();
+        } else if (tag instanceof BitBlt) {
+            return ((BitBlt) tag).getBitmap();
+        } else if (tag instanceof AlphaBlend) {
+            return ((AlphaBlend) tag).getBitmap();
+        }
+        return null;
+    }
+
+    /**
+     * @param image decoded bitmap
+     * @return ARGB pixels of image as little-endian bytes
+     */
+    private static ByteBuffer getPixels(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] argb = image.getRGB(0, 0, width, height, null, 0, width);
+        ByteBuffer pixels = ByteBuffer.allocate(4 * argb.length)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        pixels.asIntBuffer().put(argb);
+        return pixels;
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * @param n number of bytes
+     * @return n rounded up to a multiple of 4
+     */
+    private static int align(int n) {
+        return (n + 3) & ~3;
+    }
+
+    /**
+     * @param emf EMF file content
+     * @return SHA-256 digest of emf
+     */
+    private static byte[] digest(byte[] emf) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(emf);
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform has to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(2 * bytes.length);
+        for (int i = 0; i < bytes.length; i++) {
+            hex.append(Character.forDigit((bytes[i] >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(bytes[i] & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,333 @@
+// Copyright 2007, FreeHEP.
+package org.freehep.graphicsio.emf;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+
+import org.freehep.graphicsio.emf.gdi.AbstractClipPath;
+import org.freehep.graphicsio.emf.gdi.AbstractExtTextOut;
+import org.freehep.graphicsio.emf.gdi.AbstractPolyPolygon;
+import org.freehep.graphicsio.emf.gdi.AbstractPolygon;
+import org.freehep.graphicsio.emf.gdi.BeginPath;
+import org.freehep.graphicsio.emf.gdi.CreateBrushIndirect;
+import org.freehep.graphicsio.emf.gdi.CreateDIBPatternBrushPt;
+import org.freehep.graphicsio.emf.gdi.CreatePen;
+import org.freehep.graphicsio.emf.gdi.DeleteObject;
+import org.freehep.graphicsio.emf.gdi.EMFPolygon;
+import org.freehep.graphicsio.emf.gdi.ExtCreateFontIndirectW;
+import org.freehep.graphicsio.emf.gdi.ExtCreatePen;
+import org.freehep.graphicsio.emf.gdi.FillPath;
+import org.freehep.graphicsio.emf.gdi.PolyBezier;
+import org.freehep.graphicsio.emf.gdi.Polyline;
+import org.freehep.graphicsio.emf.gdi.RestoreDC;
+import org.freehep.graphicsio.emf.gdi.SaveDC;
+import org.freehep.graphicsio.emf.gdi.SelectObject;
+import org.freehep.graphicsio.emf.gdi.StretchDIBits;
+import org.freehep.graphicsio.emf.gdi.StrokeAndFillPath;
+import org.freehep.graphicsio.emf.gdi.StrokePath;
+import org.freehep.util.io.Tag;
+import org.freehep.util.io.TagHeader;
+
+/**
+ * Index of the records of an EMF, built in a single scan of an
+ * EMFInputStream. For every record the offset in the stream, the type
+ * and the bounds in device units are kept, if the record has a bounds
+ * field. The records restoring a saved DC and the records selecting or
+ * deleting a GDI object are linked to the SaveDC and the creating record
+ * they depend on.
+ *
+ * {@link #render(Graphics2D, Rectangle)} paints only the records which
+ * intersect a region of the device. Drawing records outside of it are
+ * skipped, all records changing the state of the renderer are replayed.
+ *
+ * @version $Id$
+ */
+public class EMFRecordIndex {
+
+    /**
+     * Entry of a single record
+     */
+    private static class Record {
+
+        private Tag tag;
+
+        private long offset;
+
+        private int type;
+
+        /**
+         * bounds in device units or null
+         */
+        private Rectangle bounds;
+
+        /**
+         * true if the record only draws and can be skipped
+         */
+        private boolean cullable;
+
+        /**
+         * index of the SaveDC, the creating record or -1
+         */
+        private int dependency = -1;
+    }
+
+    /**
+     * Open path and pending SaveDC while scanning
+     */
+    private static class State {
+
+        private boolean pathOpen;
+
+        private int saveDC;
+
+        private State(boolean pathOpen, int saveDC) {
+            this.pathOpen = pathOpen;
+            this.saveDC = saveDC;
+        }
+    }
+
+    private EMFHeader header;
+
+    private List<Record> records = new ArrayList<Record>();
+
+    /**
+     * Reads all records of the stream and closes it.
+     *
+     * @param is the input stream to read the EMF records from.
+     * @throws IOException if an error occurs reading the stream.
+     */
+    public EMFRecordIndex(EMFInputStream is) throws IOException {
+        header = is.readHeader();
+
+        // handle -> index of the record which created the object
+        Map<Integer, Integer> objects = new HashMap<Integer, Integer>();
+        Stack<State> saved = new Stack<State>();
+        boolean pathOpen = false;
+
+        long offset = header.getLength();
+        Tag tag;
+        while ((tag = is.readTag()) != null) {
+            TagHeader tagHeader = is.getTagHeader();
+            int index = records.size();
+
+            Record record = new Record();
+            record.tag = tag;
+            record.offset = offset;
+            record.type = tagHeader.getTag();
+            record.bounds = getBounds(tag);
+            record.cullable = !pathOpen && isDrawing(tag)
+                && record.bounds != null
+                && record.bounds.width >= 0 && record.bounds.height >= 0;
+
+            // the same state changes as EMFRenderer
+            if (tag instanceof SaveDC) {
+                saved.push(new State(pathOpen, index));
+            } else if (tag instanceof RestoreDC) {
+                if (!saved.empty()) {
+                    State state = saved.pop();
+                    pathOpen = state.pathOpen;
+                    record.dependency = state.saveDC;
+                }
+            } else if (tag instanceof BeginPath) {
+                pathOpen = true;
+            } else if (tag instanceof FillPath
+                || tag instanceof StrokePath
+                || tag instanceof StrokeAndFillPath
+                || tag instanceof AbstractClipPath) {
+                pathOpen = false;
+            } else if (tag instanceof SelectObject) {
+                record.dependency = getCreator(objects,
+                    ((SelectObject) tag).getIndex());
+            } else if (tag instanceof DeleteObject) {
+                int handle = ((DeleteObject) tag).getIndex();
+                record.dependency = getCreator(objects, handle);
+                objects.remove(Integer.valueOf(handle));
+            } else {
+                int handle = getCreatedObject(tag);
+                if (handle >= 0) {
+                    objects.put(Integer.valueOf(handle), Integer.valueOf(index));
+                }
+            }
+
+            records.add(record);
+            offset += tagHeader.getLength() + 8;
+        }
+        is.close();
+    }
+
+    /**
+     * @param tag record
+     * @return bounds of the record or null if it has none
+     */
+    static Rectangle getBounds(Tag tag) {
+        if (tag instanceof AbstractPolygon) {
+            return ((AbstractPolygon) tag).getBounds();
+        } else if (tag instanceof AbstractPolyPolygon) {
+            return ((AbstractPolyPolygon) tag).getBounds();
+        } else if (tag instanceof AbstractExtTextOut) {
+            return ((AbstractExtTextOut) tag).getBounds();
+        } else if (tag instanceof StretchDIBits) {
+            return ((StretchDIBits) tag).getBounds();
+        }
+        return null;
+    }
+
+    /**
+     * The *To records are no drawing records, they move the current
+     * point.
+     *
+     * @param tag record
+     * @return true if rendering the record only draws
+     */
+    private static boolean isDrawing(Tag tag) {
+        return tag instanceof EMFPolygon
+            || tag instanceof Polyline
+            || tag instanceof PolyBezier
+            || tag instanceof AbstractPolyPolygon
+            || tag instanceof AbstractExtTextOut
+            || tag instanceof StretchDIBits;
+    }
+
+    /**
+     * @param tag record
+     * @return handle of the object created by tag or -1
+     */
+    private static int getCreatedObject(Tag tag) {
+        if (tag instanceof CreatePen) {
+            return ((CreatePen) tag).getIndex();
+        } else if (tag instanceof ExtCreatePen) {
+            return ((ExtCreatePen) tag).getIndex();
+        } else if (tag instanceof CreateBrushIndirect) {
+            return ((CreateBrushIndirect) tag).getIndex();
+        } else if (tag instanceof CreateDIBPatternBrushPt) {
+            return ((CreateDIBPatternBrushPt) tag).getIndex();
+        } else if (tag instanceof ExtCreateFontIndirectW) {
+            return ((ExtCreateFontIndirectW) tag).getIndex();
+        }
+        return -1;
+    }
+
+    /**
+     * @param objects handle -> index of the creating record
+     * @param handle object handle
+     * @return index of the creating record or -1 for stock objects
+     */
+    private static int getCreator(Map<Integer, Integer> objects, int handle) {
+        Integer index = objects.get(Integer.valueOf(handle));
+        return (index != null) ? index.intValue() : -1;
+    }
+
+    /**
+     * @return header of the EMF
+     */
+    public EMFHeader getHeader() {
+        return header;
+    }
+
+    /**
+     * @return number of records
+     */
+    public int size() {
+        return records.size();
+    }
+
+    /**
+     * @param i index of the record
+     * @return the decoded record
+     */
+    public Tag getTag(int i) {
+        return records.get(i).tag;
+    }
+
+    /**
+     * @param i index of the record
+     * @return offset of the record from the start of the stream
+     */
+    public long getOffset(int i) {
+        return records.get(i).offset;
+    }
+
+    /**
+     * @param i index of the record
+     * @return record type, e.g. 86 for Polygon16
+     */
+    public int getType(int i) {
+        return records.get(i).type;
+    }
+
+    /**
+     * @param i index of the record
+     * @return bounds of the record in device units, null if it has no
+     *         bounds field
+     */
+    public Rectangle getBounds(int i) {
+        return records.get(i).bounds;
+    }
+
+    /**
+     * @param i index of the record
+     * @return true if the record only draws inside its bounds and can be
+     *         skipped if they are outside of the viewport
+     */
+    public boolean isCullable(int i) {
+        return records.get(i).cullable;
+    }
+
+    /**
+     * @param i index of the record
+     * @return for RestoreDC the index of the SaveDC it restores, for
+     *         SelectObject and DeleteObject the index of the record which
+     *         created the object, -1 otherwise or for stock objects
+     */
+    public int getDependency(int i) {
+        return records.get(i).dependency;
+    }
+
+    /**
+     * @param viewport region in device units, null for the whole EMF
+     * @return true if record i has to be rendered to paint the viewport
+     */
+    public boolean isVisible(int i, Rectangle viewport) {
+        Record record = records.get(i);
+        if (viewport == null || !record.cullable) {
+            return true;
+        }
+
+        // the right and bottom edges are part of the bounds
+        Rectangle bounds = record.bounds;
+        return viewport.intersects(
+            bounds.x, bounds.y, bounds.width + 1, bounds.height + 1);
+    }
+
+    /**
+     * @param viewport region in device units, null for the whole EMF
+     * @return the records to render for viewport in order
+     */
+    public List<Tag> getTags(Rectangle viewport) {
+        List<Tag> tags = new ArrayList<Tag>(records.size());
+        for (int i = 0; i < records.size(); i++) {
+            if (isVisible(i, viewport)) {
+                tags.add(records.get(i).tag);
+            }
+        }
+        return tags;
+    }
+
+    /**
+     * Paints the records needed for viewport onto the provided
+     * graphics context. The transformation is not changed, g2 receives
+     * the same coordinates as for painting the whole EMF.
+     *
+     * @param g2 the graphics context to paint onto.
+     * @param viewport region in device units, null for the whole EMF
+     */
+    public void render(Graphics2D g2, Rectangle viewport) {
+        new EMFRenderer(this, viewport).paint(g2);
+    }
+}
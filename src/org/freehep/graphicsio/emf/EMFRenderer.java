@@ -17,6 +17,7 @@ import java.awt.font.FontRenderContext;
 import java.awt.font.TextLayout;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.GeneralPath;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.util.Map;
@@ -196,6 +197,13 @@ public class EMFRenderer {
      */
     private Vector<Tag> tags = new Vector<Tag>(0);
 
+    /**
+     * set by the streaming constructor. If not null, {@link #paint(java.awt.Graphics2D)}
+     * reads and renders the tags one by one instead of using {@link #tags},
+     * so a decoded record can be garbage collected as soon as it is rendered.
+     */
+    private EMFInputStream stream;
+
     /**
      * Created by BeginPath and closed by EndPath.
      */
@@ -216,11 +224,44 @@ public class EMFRenderer {
      */
     private Stack<DC> dcStack = new Stack<DC>();
 
+    /**
+     * layouts used to measure and outline text
+     */
+    private TextLayoutCache textLayoutCache = new TextLayoutCache();
+
     /**
      * default direction is counterclockwise
      */
     private int arcDirection = EMFConstants.AD_COUNTERCLOCKWISE;
 
+    /**
+     * if true shapes, images and text outside of the header bounds or
+     * the current clip are not passed to g2
+     */
+    private boolean culling;
+
+    /**
+     * header bounds in device space of g2, null if unknown
+     */
+    private Rectangle2D canvas;
+
+    /**
+     * intersection of canvas and the current clip in device space,
+     * null if it has to be computed again
+     */
+    private Rectangle2D visibleArea;
+
+    /**
+     * bounds of the record being rendered in device space of g2, null
+     * if the record has none
+     */
+    private Rectangle2D recordBounds;
+
+    /**
+     * number of fills and draws, images and strings not passed to g2
+     */
+    private int culledShapes, culledImages, culledTexts;
+
     /**
      * Class the encapsulate the state of a Graphics2D object.
      * Instances are store in dcStack by
@@ -247,8 +288,26 @@ public class EMFRenderer {
      * @throws IOException if an error occurs reading the header.
      */
     public EMFRenderer(EMFInputStream is) throws IOException {
+        this(is, false);
+    }
+
+    /**
+     * Constructs the renderer. In streaming mode only the header is read
+     * here, the records are decoded during {@link #paint(java.awt.Graphics2D)}
+     * and dropped after rendering. The heap used is bound by the largest
+     * record instead of the file size, but the renderer can paint only once.
+     *
+     * @param is the input stream to read the EMF records from.
+     * @param streaming if true, records are read while painting
+     * @throws IOException if an error occurs reading the header.
+     */
+    public EMFRenderer(EMFInputStream is, boolean streaming) throws IOException {
         this.header = is.readHeader();
-        int i = 0;
+
+        if (streaming) {
+            stream = is;
+            return;
+        }
 
         // read all tags
         Tag tag;
@@ -259,6 +318,26 @@ public class EMFRenderer {
         is.close();
     }
 
+    /**
+     * Constructs a renderer for the records of an index which are needed
+     * to paint a region of the device.
+     *
+     * @param index the indexed EMF records.
+     * @param viewport region in device units, null for the whole EMF
+     * @see EMFRecordIndex#getTags(java.awt.Rectangle)
+     */
+    public EMFRenderer(EMFRecordIndex index, Rectangle viewport) {
+        this.header = index.getHeader();
+        tags.addAll(index.getTags(viewport));
+    }
+
+    /**
+     * @return true if the records are read during painting
+     */
+    public boolean isStreaming() {
+        return stream != null;
+    }
+
     /**
      * Gets the size of a canvas which would be required to render the EMF.
      *
@@ -275,6 +354,62 @@ public class EMFRenderer {
     public void setInitialTransform(AffineTransform at) {
     	initialTransform = at;
     }
+
+    /**
+     * @return the layouts used to measure and outline text
+     */
+    public TextLayoutCache getTextLayoutCache() {
+        return textLayoutCache;
+    }
+
+    /**
+     * @param textLayoutCache layouts used to measure and outline text,
+     *        can be shared by renderers
+     */
+    public void setTextLayoutCache(TextLayoutCache textLayoutCache) {
+        this.textLayoutCache = textLayoutCache;
+    }
+
+    /**
+     * @return true if invisible shapes, images and text are skipped
+     */
+    public boolean isCulling() {
+        return culling;
+    }
+
+    /**
+     * If culling is on, shapes, images and text are not passed to the
+     * graphics context if their bounds in device space lie completely
+     * outside of the header bounds or the current clip. The bounds of
+     * the records are used where they are present. The rendering state
+     * is changed as if they were painted.
+     *
+     * @param culling true to skip invisible shapes, images and text
+     */
+    public void setCulling(boolean culling) {
+        this.culling = culling;
+    }
+
+    /**
+     * @return number of fills and draws skipped by the last paint
+     */
+    public int getCulledShapes() {
+        return culledShapes;
+    }
+
+    /**
+     * @return number of images skipped by the last paint
+     */
+    public int getCulledImages() {
+        return culledImages;
+    }
+
+    /**
+     * @return number of strings skipped by the last paint
+     */
+    public int getCulledTexts() {
+        return culledTexts;
+    }
     /**
      * Paints the EMF onto the provided graphics context.
      *
@@ -335,18 +470,23 @@ public class EMFRenderer {
         // determin initial clip after all basic transformations
         initialClip = g2.getClip();
 
+        culledShapes = culledImages = culledTexts = 0;
+        visibleArea = null;
+        Rectangle bounds = header.getBounds();
+        canvas = (bounds.width > 0 || bounds.height > 0)
+            ? getDeviceBounds(initialTransform, new Rectangle(
+                bounds.x, bounds.y, bounds.width + 1, bounds.height + 1))
+            : null;
+
         //EMFASFViewer view = new EMFASFViewer();
         
         // iterate and render all tags
-        Tag tag;
-        for (int i = 0; i < tags.size(); i++) {
-            tag = tags.get(i);     
-            if (tag instanceof EMFTag) {
-                ((EMFTag) tags.get(i)).render(this);
+        if (stream != null) {
+            paintStream();
+        } else {
+            for (int i = 0; i < tags.size(); i++) {
+                renderTag(tags.get(i));
             }
-            /*else {
-                logger.warning("unknown tag: " + tag);
-            } */   
         }
         
         g2.getClipBounds();
@@ -356,6 +496,47 @@ public class EMFRenderer {
         g2.setClip(clip);
     }
 
+    /**
+     * reads the records from {@link #stream} and renders each one
+     * immediately. The stream is closed afterwards, also if reading
+     * or rendering fails, so this can happen only once.
+     */
+    private void paintStream() {
+        EMFInputStream is = stream;
+        stream = null;
+        try {
+            try {
+                Tag tag;
+                while ((tag = is.readTag()) != null) {
+                    renderTag(tag);
+                }
+            } finally {
+                is.close();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("error reading EMF records", e);
+        }
+    }
+
+    /**
+     * renders a single tag, unknown tags are ignored
+     *
+     * @param tag tag to render
+     */
+    private void renderTag(Tag tag) {
+        if (tag instanceof EMFTag) {
+            Rectangle bounds = culling ? EMFRecordIndex.getBounds(tag) : null;
+            recordBounds = (bounds != null && bounds.width >= 0 && bounds.height >= 0)
+                ? getDeviceBounds(initialTransform, new Rectangle(
+                    bounds.x, bounds.y, bounds.width + 1, bounds.height + 1))
+                : null;
+            ((EMFTag) tag).render(this);
+        }
+        /*else {
+            logger.warning("unknown tag: " + tag);
+        } */
+    }
+
     // ---------------------------------------------------------------------
     //            complex drawing methods for EMFTags
     // ---------------------------------------------------------------------
@@ -476,6 +657,7 @@ public class EMFRenderer {
             g2.setStroke(dc.stroke);
             g2.setTransform(dc.transform);
             g2.setClip(dc.clip);
+            visibleArea = null;
         } else {
             // set the default values
         }
@@ -578,17 +760,14 @@ public class EMFRenderer {
     	
     	if ((text == null) || text.equals(""))
     		return;
-    	if (text.equals("191.5"))
-    		System.out.print("");
-    			
+
     	y -= 0.125 * g2.getFont().getSize();
     	if (path != null) {
     		// do not use g2.drawString(str, x, y) to be aware of path
-    		TextLayout tl = new TextLayout(
+    		path.append(textLayoutCache.getOutline(
     				text,
     				g2.getFont(),
-    				g2.getFontRenderContext());
-    		path.append(tl.getOutline(null), false);
+    				g2.getFontRenderContext()), false);
     	}
     	else {
 
@@ -597,24 +776,23 @@ public class EMFRenderer {
     		if (figure == null)
     		{
     			FontRenderContext frc = g2.getFontRenderContext();
-				TextLayout layout = new TextLayout(text, g2.getFont(), frc);
 				double textWidth = 0;
 				try {
-					textWidth= layout.getBounds().getWidth();
+					textWidth = textLayoutCache.getBounds(text, g2.getFont(), frc).getWidth();
 				} catch (ArrayIndexOutOfBoundsException a) {
 					logger.getLogger("EmfRenderer").warning("Java 1.6 hack to avoid java.awt.font exception");
 				}
     			if ((textAlignMode & EMFConstants.TA_CENTER) != 0) {    				
-					g2.drawString(text, (float) ((float) x + (bounds.getWidth() - textWidth) / 2), (float) y);
+					drawString(text, (float) ((float) x + (bounds.getWidth() - textWidth) / 2), (float) y);
 					//layout.draw(g2, (float) ((float) x + (bounds.getWidth() - textWidth) / 2), (float) y);
 				} else if ((textAlignMode & EMFConstants.TA_RIGHT) != 0) {
-					g2.drawString(text, (float) ((float)  x + bounds.getWidth() - textWidth), (float) y);
+					drawString(text, (float) ((float)  x + bounds.getWidth() - textWidth), (float) y);
 					//layout.draw(g2, (float) ((float)  x + bounds.getWidth() - textWidth), (float) y);
 				} else if ((textAlignMode & EMFConstants.TA_BASELINE) != 0) {                        
-					g2.drawString(text, (int) x-g2.getFont().getSize()/10, (int) y+g2.getFont().getSize()/10);
+					drawString(text, (int) x-g2.getFont().getSize()/10, (int) y+g2.getFont().getSize()/10);
 				} else
 					//g2.drawString(text, (int)x, (int) y);
-					g2.drawString(text, (int) x, (int) y+(int)(g2.getFont().getSize()));
+					drawString(text, (int) x, (int) y+(int)(g2.getFont().getSize()));
     		}
     		else
     		{
@@ -625,19 +803,18 @@ public class EMFRenderer {
     				g2.setPaint(textColor);
 
     				FontRenderContext frc = g2.getFontRenderContext();    				
-    				TextLayout layout = new TextLayout(text, g2.getFont(), frc);    				
-    				double textWidth = layout.getBounds().getWidth();    				
+    				double textWidth = textLayoutCache.getBounds(text, g2.getFont(), frc).getWidth();
     				if ((textAlignMode & EMFConstants.TA_CENTER) != 0) {
-    					g2.drawString(text, (float) ((float) x + (bounds.getWidth() - textWidth) / 2), (float) y);
+    					drawString(text, (float) ((float) x + (bounds.getWidth() - textWidth) / 2), (float) y);
     				} else if ((textAlignMode & EMFConstants.TA_RIGHT) != 0) {
-    					g2.drawString(text, (float) ((float)  x + bounds.getWidth() - textWidth), (float) y);
+    					drawString(text, (float) ((float)  x + bounds.getWidth() - textWidth), (float) y);
     				} else if ((textAlignMode & EMFConstants.TA_BASELINE) != 0) {                        
-    					g2.drawString(text, (int) x, (int) y);
+    					drawString(text, (int) x, (int) y);
     				} else if (textAlignMode == 0) {					    					
-    					g2.drawString(text, (int) x, (int) y+(int)(g2.getFont().getSize()*1.25));    					
+    					drawString(text, (int) x, (int) y+(int)(g2.getFont().getSize()*1.25));    					
     				}    					
     				else
-    					g2.drawString(text, (int) x-(int)bounds.getWidth()/2, (int) y+(int)g2.getFont().getSize());
+    					drawString(text, (int) x-(int)bounds.getWidth()/2, (int) y+(int)g2.getFont().getSize());
 
 
 
@@ -647,16 +824,15 @@ public class EMFRenderer {
     				g2.setTransform(g2.getTransform());
     				FontRenderContext frc = g2.getFontRenderContext();
 
-    				TextLayout layout = new TextLayout(text, g2.getFont(), frc);
-    				double textWidth = layout.getBounds().getWidth();
+    				double textWidth = textLayoutCache.getBounds(text, g2.getFont(), frc).getWidth();
     				if ((textAlignMode & EMFConstants.TA_CENTER) != 0) {
-    					g2.drawString(text, (float) ((float) x + (bounds.getWidth() - textWidth) / 2), (float) y);
+    					drawString(text, (float) ((float) x + (bounds.getWidth() - textWidth) / 2), (float) y);
     				} else if ((textAlignMode & EMFConstants.TA_RIGHT) != 0) {
-    					g2.drawString(text, (float) ((float)  x + bounds.getWidth() - textWidth), (float) y);
+    					drawString(text, (float) ((float)  x + bounds.getWidth() - textWidth), (float) y);
     				} else if ((textAlignMode & EMFConstants.TA_BASELINE) != 0) {                        
-    					g2.drawString(text, (int) x, (int) y);
+    					drawString(text, (int) x, (int) y);
     				} else
-    					g2.drawString(text, (int) x, (int) y);
+    					drawString(text, (int) x, (int) y);
     			}         
     		}
     	}        
@@ -678,14 +854,13 @@ public class EMFRenderer {
 */
         if (path != null) {
             // do not use g2.drawString(str, x, y) to be aware of path
-            TextLayout tl = new TextLayout(
+            path.append(textLayoutCache.getOutline(
                 text,
                 g2.getFont(),
-                g2.getFontRenderContext());
-            path.append(tl.getOutline(null), false);
+                g2.getFontRenderContext()), false);
         } else {
             g2.setPaint(textColor);                    
-            g2.drawString(text, (int)bounds.getX()+(int)x, (int)bounds.getY()+(int)y);
+            drawString(text, (int)bounds.getX()+(int)x, (int)bounds.getY()+(int)y);
         }
     }
 
@@ -736,6 +911,10 @@ public class EMFRenderer {
     private void fillShape(Graphics2D g2, Shape s) {
         g2.setPaint(brushPaint);
         g2.setStroke(penStroke);
+        if (culling && !isVisible(s, false)) {
+            culledShapes++;
+            return;
+        }
         g2.fill(s);        
         
         
@@ -798,9 +977,107 @@ public class EMFRenderer {
             //R2_NOTXORPEN 	Pixel is the inverse of the R2_XORPEN color.
         }
 
+        if (culling && !isVisible(s, true)) {
+            culledShapes++;
+            return;
+        }
         g2.draw(s);
     }
 
+    /**
+     * draws text at the baseline position x, y unless it is culled
+     */
+    private void drawString(String text, float x, float y) {
+        if (culling) {
+            Font font = g2.getFont();
+            Rectangle2D bounds = textLayoutCache.getBounds(
+                text, font, g2.getFontRenderContext());
+            // a quarter of the size for underlines and overhanging glyphs
+            double pad = font.getSize2D() / 4;
+            if (!isVisible(new Rectangle2D.Double(
+                    x + bounds.getX() - pad, y + bounds.getY() - pad,
+                    bounds.getWidth() + 2 * pad, bounds.getHeight() + 2 * pad))) {
+                culledTexts++;
+                return;
+            }
+        }
+        g2.drawString(text, x, y);
+    }
+
+    /**
+     * @param s shape to fill or draw with the current stroke of g2
+     * @param draw true if the outline of s is drawn
+     * @return true if s may be visible in the current clip
+     */
+    private boolean isVisible(Shape s, boolean draw) {
+        Rectangle2D area = getVisibleArea();
+        if (area == null) {
+            return true;
+        }
+        // the record bounds are cheaper than the bounds of the shape, but
+        // may be wrong, so only a shape outside of both is culled
+        if (recordBounds != null && area.intersects(recordBounds)) {
+            return true;
+        }
+
+        Rectangle2D bounds = s.getBounds2D();
+        if (draw) {
+            if (!(g2.getStroke() instanceof BasicStroke)) {
+                return true;
+            }
+            BasicStroke stroke = (BasicStroke) g2.getStroke();
+            // square caps reach half the diagonal, miters up to the limit
+            double pad = stroke.getLineWidth() / 2 * Math.max(Math.sqrt(2),
+                stroke.getLineJoin() == BasicStroke.JOIN_MITER ? stroke.getMiterLimit() : 1);
+            bounds = new Rectangle2D.Double(
+                bounds.getX() - pad, bounds.getY() - pad,
+                bounds.getWidth() + 2 * pad, bounds.getHeight() + 2 * pad);
+        }
+        return isVisible(bounds);
+    }
+
+    /**
+     * @param bounds bounds in user space of g2
+     * @return true if bounds intersect the current clip
+     */
+    private boolean isVisible(Rectangle2D bounds) {
+        Rectangle2D area = getVisibleArea();
+        return area == null
+            || area.intersects(getDeviceBounds(g2.getTransform(), bounds));
+    }
+
+    /**
+     * @return the part of the canvas inside the current clip in device
+     *         space, null if everything is visible
+     */
+    private Rectangle2D getVisibleArea() {
+        if (visibleArea == null) {
+            Shape clip = g2.getClip();
+            if (clip == null) {
+                visibleArea = canvas;
+            } else {
+                Rectangle2D clipBounds = getDeviceBounds(
+                    g2.getTransform(), clip.getBounds2D());
+                visibleArea = (canvas != null)
+                    ? canvas.createIntersection(clipBounds) : clipBounds;
+            }
+        }
+        return visibleArea;
+    }
+
+    /**
+     * @param at transform to device space
+     * @param bounds bounds in user space
+     * @return transformed bounds with one pixel more on each side for
+     *         antialiased edges
+     */
+    private static Rectangle2D getDeviceBounds(AffineTransform at, Rectangle2D bounds) {
+        Rectangle2D device = at.createTransformedShape(bounds).getBounds2D();
+        device.setRect(device.getX() - 1, device.getY() - 1,
+            device.getWidth() + 2, device.getHeight() + 2);
+        return device;
+    }
+
     // ---------------------------------------------------------------------
     //            simple wrapping methods to the painting context
     // ---------------------------------------------------------------------
@@ -840,10 +1117,12 @@ public class EMFRenderer {
 
     public void setClip(Shape shape) {
         g2.setClip(shape);
+        visibleArea = null;
     }
 
     public void clip(Shape shape) {
         g2.clip(shape);
+        visibleArea = null;
     }
 
     public Shape getClip() {
@@ -851,10 +1130,20 @@ public class EMFRenderer {
     }
 
     public void drawImage(BufferedImage image, AffineTransform transform) {
+        if (culling && !isVisible(transform.createTransformedShape(
+                new Rectangle(0, 0, image.getWidth(), image.getHeight())).getBounds2D())) {
+            culledImages++;
+            return;
+        }
         g2.drawImage(image, transform, null);
     }
 
     public void drawImage(BufferedImage image, int x, int y, int width, int height) {
+        if (culling && !isVisible(new Rectangle(Math.min(x, x + width),
+                Math.min(y, y + height), Math.abs(width), Math.abs(height)))) {
+            culledImages++;
+            return;
+        }
         g2.drawImage(image, x, y, width,  height,  null);
     }
 
@@ -0,0 +1,254 @@
+// Copyright 2007, FreeHEP.
+package org.freehep.graphicsio.emf;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+
+import org.freehep.graphicsio.png.PNGBandWriter;
+
+/**
+ * Rasterizes an EMF to PNG in tiles on several threads. The records are
+ * parsed once into an {@link EMFRecordIndex}, each tile is painted by
+ * its own {@link EMFRenderer} with the records intersecting the tile,
+ * translated and clipped to the tile. The tiles of a row are painted
+ * into a band image which is written by a {@link PNGBandWriter} as soon
+ * as all its tiles are done, so only a few bands are in memory at a
+ * time instead of the whole image.
+ *
+ * The image has the size of the EMF bounds and is translated so the
+ * bounds start at 0, 0, like the single image painted by EMF2PNG.
+ *
+ * @version $Id$
+ */
+public class EMFTileRenderer {
+
+    /**
+     * default width and height of a tile
+     */
+    public static final int DEFAULT_TILE_SIZE = 512;
+
+    private EMFRecordIndex index;
+
+    private int tileWidth = DEFAULT_TILE_SIZE;
+
+    private int tileHeight = DEFAULT_TILE_SIZE;
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * color every tile is cleared with
+     */
+    private Color background = Color.BLACK;
+
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+    /**
+     * shared by the renderers of all tiles
+     */
+    private TextLayoutCache textLayoutCache = new TextLayoutCache();
+
+    /**
+     * Row of tiles being painted
+     */
+    private static class Band {
+
+        private BufferedImage image;
+
+        private int height;
+
+        private List<Future<Object>> tiles = new ArrayList<Future<Object>>();
+    }
+
+    /**
+     * @param index the parsed EMF
+     */
+    public EMFTileRenderer(EMFRecordIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * @param tileWidth width of a tile in pixels
+     * @param tileHeight height of a tile and the bands in pixels
+     */
+    public void setTileSize(int tileWidth, int tileHeight) {
+        if (tileWidth < 1 || tileHeight < 1) {
+            throw new IllegalArgumentException("empty tile: " + tileWidth + "x" + tileHeight);
+        }
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+    }
+
+    /**
+     * @param threads number of threads painting tiles, one per processor
+     *        by default
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads < 1: " + threads);
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * @param background color the image is cleared with, black by default
+     *        like a new TYPE_INT_RGB image
+     */
+    public void setBackground(Color background) {
+        this.background = background;
+    }
+
+    /**
+     * @param compressionLevel level of the PNG compression, 0 to 9
+     */
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * @return the size of the image in pixels
+     */
+    public Rectangle getBounds() {
+        Rectangle bounds = index.getHeader().getBounds();
+        return new Rectangle(bounds.x, bounds.y,
+            Math.max(1, bounds.width), Math.max(1, bounds.height));
+    }
+
+    /**
+     * Paints all tiles and writes them as PNG.
+     *
+     * @param out stream to write to, flushed but not closed
+     * @throws IOException if writing fails or a tile cannot be painted
+     */
+    public void writePNG(OutputStream out) throws IOException {
+        Rectangle bounds = getBounds();
+        int columns = (bounds.width + tileWidth - 1) / tileWidth;
+        int rows = (bounds.height + tileHeight - 1) / tileHeight;
+        // enough bands in flight to keep all threads busy while the
+        // oldest one is written
+        int bandsAhead = Math.min(rows, (threads + columns - 1) / columns + 1);
+
+        PNGBandWriter png = new PNGBandWriter(out, bounds.width,
+            bounds.height, false, compressionLevel);
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+            new EMFBatchConverter.WorkerThreadFactory("EMFTileRenderer"));
+        try {
+            LinkedList<Band> bands = new LinkedList<Band>();
+            List<BufferedImage> free = new ArrayList<BufferedImage>();
+            int next = 0;
+            for (int row = 0; row < rows; row++) {
+                while (next < rows && next < row + bandsAhead) {
+                    BufferedImage image = free.isEmpty()
+                        ? new BufferedImage(bounds.width, tileHeight, BufferedImage.TYPE_INT_RGB)
+                        : free.remove(free.size() - 1);
+                    bands.add(submitBand(executor, bounds, image, next++));
+                }
+
+                Band band = bands.removeFirst();
+                for (Future<Object> tile : band.tiles) {
+                    get(tile);
+                }
+                png.writeRows(band.image, band.height);
+                free.add(band.image);
+            }
+            png.finish();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * schedules the tiles of a row
+     *
+     * @param image band image to paint onto
+     * @param row index of the row
+     */
+    private Band submitBand(ExecutorService executor, Rectangle bounds,
+            BufferedImage image, int row) {
+        Band band = new Band();
+        band.image = image;
+        int y = row * tileHeight;
+        band.height = Math.min(tileHeight, bounds.height - y);
+        for (int x = 0; x < bounds.width; x += tileWidth) {
+            // the tiles share the pixels of the band
+            final BufferedImage tile = image.getSubimage(x, 0,
+                Math.min(tileWidth, bounds.width - x), band.height);
+            final int tileX = x, tileY = y;
+            band.tiles.add(executor.submit(new Callable<Object>() {
+                public Object call() {
+                    paintTile(tile, tileX, tileY);
+                    return null;
+                }
+            }));
+        }
+        return band;
+    }
+
+    /**
+     * paints the records visible in a tile
+     *
+     * @param tile image of the tile
+     * @param x left edge of the tile in the image
+     * @param y top edge of the tile in the image
+     */
+    private void paintTile(BufferedImage tile, int x, int y) {
+        Rectangle bounds = getBounds();
+        int width = tile.getWidth();
+        int height = tile.getHeight();
+
+        Graphics2D g = tile.createGraphics();
+        try {
+            g.setColor(background);
+            g.fill(new Rectangle(0, 0, width, height));
+            g.clip(new Rectangle(0, 0, width, height));
+
+            AffineTransform at = AffineTransform.getTranslateInstance(
+                -bounds.x - x, -bounds.y - y);
+            g.setTransform(at);
+
+            // one pixel more on each side for antialiased edges
+            Rectangle viewport = new Rectangle(bounds.x + x - 1,
+                bounds.y + y - 1, width + 2, height + 2);
+            EMFRenderer renderer = new EMFRenderer(index, viewport);
+            renderer.setTextLayoutCache(textLayoutCache);
+            renderer.setCulling(true);
+            renderer.setInitialTransform(at);
+            renderer.paint(g);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /**
+     * waits for a tile
+     *
+     * @throws IOException if the tile failed or the thread is interrupted
+     */
+    private static void get(Future<Object> tile) throws IOException {
+        try {
+            tile.get();
+        } catch (ExecutionException e) {
+            IOException ioe = new IOException("could not paint tile");
+            ioe.initCause(e.getCause());
+            throw ioe;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            IOException ioe = new IOException("interrupted");
+            ioe.initCause(e);
+            throw ioe;
+        }
+    }
+}
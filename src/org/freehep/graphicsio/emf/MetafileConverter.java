@@ -0,0 +1,229 @@
+// Copyright 2007, FreeHEP.
+package org.freehep.graphicsio.emf;
+
+import java.awt.Dimension;
+import java.awt.geom.AffineTransform;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.apache.batik.transcoder.wmf.WMFConstants;
+import org.apache.batik.transcoder.wmf.tosvg.WMFPainter;
+import org.apache.batik.transcoder.wmf.tosvg.WMFRecordStore;
+import org.freehep.graphicsio.ImageConstants;
+import org.freehep.graphicsio.asf.SVGGraphics2D;
+
+/**
+ * Converts EMF and WMF files through the same SVG output. The format is
+ * detected from the first bytes of the input: EMF files are converted
+ * by {@link EMFConverter}, WMF files, with or without Aldus placeable
+ * header, are read and painted with the reader and painter of Batik's
+ * WMFTranscoder onto the SVGGraphics2D used for EMFs.
+ *
+ * @version $Id$
+ */
+public class MetafileConverter {
+
+    /**
+     * number of bytes needed to detect the format
+     */
+    public static final int HEADER_SIZE = 44;
+
+    /**
+     * " EMF" at offset 40 of the EMF header
+     */
+    private static final int EMF_SIGNATURE = 0x464D4520;
+
+    /**
+     * The WMF painter resets process wide textures, so WMFs are painted
+     * one at a time.
+     */
+    private static final Object wmfLock = new Object();
+
+    /**
+     * @param header first bytes of a file
+     * @param length number of valid bytes in header
+     * @return {@link ImageConstants#EMF}, {@link ImageConstants#WMF} or
+     *         null if the format is unknown
+     */
+    public static String getFormat(byte[] header, int length) {
+        // EMR_HEADER record with the EMF signature
+        if (length >= HEADER_SIZE && getInt(header, 0) == 1
+                && getInt(header, 40) == EMF_SIGNATURE) {
+            return ImageConstants.EMF;
+        }
+        // Aldus placeable WMF
+        if (length >= 4 && getInt(header, 0) == WMFConstants.META_ALDUS_APM) {
+            return ImageConstants.WMF;
+        }
+        // standard WMF: memory or disk file, 9 word header, Windows 2 or 3
+        if (length >= 6) {
+            int type = getShort(header, 0);
+            int headerSize = getShort(header, 2);
+            int version = getShort(header, 4);
+            if ((type == 1 || type == 2) && headerSize == 9
+                    && (version == 0x0100 || version == 0x0300)) {
+                return ImageConstants.WMF;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param file file to check
+     * @return {@link ImageConstants#EMF}, {@link ImageConstants#WMF} or
+     *         null if the format is unknown
+     * @throws IOException if the file cannot be read
+     */
+    public static String getFormat(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] header = new byte[HEADER_SIZE];
+            return getFormat(header, read(in, header));
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Detects the format without consuming the stream.
+     *
+     * @param in stream supporting mark and reset
+     * @return {@link ImageConstants#EMF}, {@link ImageConstants#WMF} or
+     *         null if the format is unknown
+     * @throws IOException if the stream cannot be read
+     */
+    public static String getFormat(InputStream in) throws IOException {
+        byte[] header = new byte[HEADER_SIZE];
+        in.mark(HEADER_SIZE);
+        int length = read(in, header);
+        in.reset();
+        return getFormat(header, length);
+    }
+
+    /**
+     * Converts an EMF or WMF stream. Errors are thrown to the caller,
+     * several conversions can run in parallel.
+     *
+     * @param type extension / file format to write, EMFs can be converted
+     *        to the formats of {@link EMFConverter#isSupported(String)},
+     *        WMFs only to {@link ImageConstants#SVG}
+     * @param in EMF or WMF stream, closed after reading
+     * @param out stream to write to, flushed but not closed
+     * @param streaming if true the SVG document is written while painting
+     * @param embedFonts if true the glyphs of the drawn characters are
+     *        embedded as SVG fonts
+     * @return the detected format
+     * @throws IOException if the format is unknown or reading or writing
+     *         fails
+     * @throws IllegalArgumentException if type is not supported for the
+     *         detected format, nothing is written then
+     */
+    public static String convert(String type, InputStream in, OutputStream out,
+            boolean streaming, boolean embedFonts) throws IOException {
+        if (!in.markSupported()) {
+            in = new BufferedInputStream(in);
+        }
+        String format = null;
+        boolean checked = false;
+        try {
+            if (!EMFConverter.isSupported(type)) {
+                throw new IllegalArgumentException("unsupported format: " + type);
+            }
+            format = getFormat(in);
+            if (ImageConstants.WMF.equals(format)
+                    && !ImageConstants.SVG.equalsIgnoreCase(type)) {
+                throw new IllegalArgumentException("WMFs can only be converted to SVG, not " + type);
+            }
+            checked = true;
+        } finally {
+            if (!checked) {
+                in.close();
+            }
+        }
+
+        if (ImageConstants.EMF.equals(format)) {
+            EMFConverter.convert(type, new EMFInputStream(in), out, streaming, embedFonts);
+        } else if (ImageConstants.WMF.equals(format)) {
+            convertWMF(in, out, streaming, embedFonts);
+        } else {
+            in.close();
+            throw new IOException("Neither an EMF nor a WMF");
+        }
+        return format;
+    }
+
+    /**
+     * Converts a WMF stream to SVG using the same SVGGraphics2D settings
+     * as EMFConverter. The size and origin are the ones WMFTranscoder
+     * uses for its viewBox.
+     *
+     * @param in WMF stream, closed after reading
+     * @param out stream to write to, flushed but not closed
+     * @param streaming if true the SVG document is written while painting
+     * @param embedFonts if true the glyphs of the drawn characters are
+     *        embedded as SVG fonts
+     * @throws IOException if reading or writing fails
+     */
+    public static void convertWMF(InputStream in, OutputStream out,
+            boolean streaming, boolean embedFonts) throws IOException {
+        WMFRecordStore store = new WMFRecordStore();
+        store.read(new DataInputStream(in));
+
+        float sizeFactor = store.getUnitsToPixels();
+        int vpX = (int) (store.getVpX() * sizeFactor);
+        int vpY = (int) (store.getVpY() * sizeFactor);
+        int vpW = (int) (store.getWidthUnits() * sizeFactor);
+        int vpH = (int) (store.getHeightUnits() * sizeFactor);
+
+        SVGGraphics2D g = EMFConverter.buildSVGGraphics2D(embedFonts);
+        g.setTransform(AffineTransform.getTranslateInstance(-vpX, -vpY));
+        g.setSVGCanvasSize(new Dimension(vpW, vpH));
+
+        Writer writer = new OutputStreamWriter(out, "UTF-8");
+        boolean useCSS = true;
+        synchronized (wmfLock) {
+            WMFPainter painter = new WMFPainter(store, 1);
+            if (streaming) {
+                g.startStream(writer, useCSS);
+                painter.paint(g);
+                g.endStream();
+            } else {
+                painter.paint(g);
+                g.stream(writer, useCSS);
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * @return number of bytes read into buffer, less than its length
+     *         only at the end of the stream
+     */
+    private static int read(InputStream in, byte[] buffer) throws IOException {
+        int length = 0;
+        while (length < buffer.length) {
+            int n = in.read(buffer, length, buffer.length - length);
+            if (n < 0) {
+                break;
+            }
+            length += n;
+        }
+        return length;
+    }
+
+    private static int getInt(byte[] b, int offset) {
+        return (b[offset] & 0xFF) | (b[offset + 1] & 0xFF) << 8
+            | (b[offset + 2] & 0xFF) << 16 | (b[offset + 3] & 0xFF) << 24;
+    }
+
+    private static int getShort(byte[] b, int offset) {
+        return (b[offset] & 0xFF) | (b[offset + 1] & 0xFF) << 8;
+    }
+}
@@ -0,0 +1,174 @@
+// Copyright 2007, FreeHEP.
+package org.freehep.graphicsio.emf;
+
+import java.awt.Font;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextLayout;
+import java.awt.geom.Rectangle2D;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used cache of the text layouts used by
+ * {@link EMFRenderer} to measure and outline text. EMFs often repeat the
+ * same strings in the same font, e.g. axis labels, which are laid out
+ * only once this way. The returned bounds and outlines are shared and
+ * must not be changed.
+ *
+ * @version $Id$
+ */
+public class TextLayoutCache {
+
+    /**
+     * default maximum number of layouts
+     */
+    public static final int DEFAULT_SIZE = 1024;
+
+    private static final class Key {
+
+        private final String text;
+
+        private final Font font;
+
+        private final FontRenderContext frc;
+
+        private final int hashCode;
+
+        private Key(String text, Font font, FontRenderContext frc) {
+            this.text = text;
+            this.font = font;
+            this.frc = frc;
+            this.hashCode = (31 * text.hashCode() + font.hashCode()) * 31
+                + frc.hashCode();
+        }
+
+        public int hashCode() {
+            return hashCode;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return hashCode == key.hashCode && text.equals(key.text)
+                && font.equals(key.font) && frc.equals(key.frc);
+        }
+    }
+
+    private static final class Entry {
+
+        private final TextLayout layout;
+
+        private Rectangle2D bounds;
+
+        private Shape outline;
+
+        private Entry(TextLayout layout) {
+            this.layout = layout;
+        }
+    }
+
+    private final Map<Key, Entry> entries;
+
+    private int hits;
+
+    private int misses;
+
+    /**
+     * Creates a cache of {@link #DEFAULT_SIZE} layouts.
+     */
+    public TextLayoutCache() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * @param maxSize maximum number of layouts kept
+     */
+    public TextLayoutCache(final int maxSize) {
+        entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @param text text to measure
+     * @param font font of the text
+     * @param frc context of the text
+     * @return bounds of the text as TextLayout.getBounds() returns them
+     */
+    public synchronized Rectangle2D getBounds(String text, Font font,
+            FontRenderContext frc) {
+        Entry entry = getEntry(text, font, frc);
+        if (entry.bounds == null) {
+            entry.bounds = entry.layout.getBounds();
+        }
+        return entry.bounds;
+    }
+
+    /**
+     * @param text text to outline
+     * @param font font of the text
+     * @param frc context of the text
+     * @return outline of the text at the origin
+     */
+    public synchronized Shape getOutline(String text, Font font,
+            FontRenderContext frc) {
+        Entry entry = getEntry(text, font, frc);
+        if (entry.outline == null) {
+            entry.outline = entry.layout.getOutline(null);
+        }
+        return entry.outline;
+    }
+
+    /**
+     * @return number of requests answered by a cached layout
+     */
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    /**
+     * @return number of layouts created
+     */
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return number of layouts kept
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * removes all layouts, the counters are kept
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    private Entry getEntry(String text, Font font, FontRenderContext frc) {
+        Key key = new Key(text, font, frc);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            hits++;
+        } else {
+            misses++;
+            entry = new Entry(new TextLayout(text, font, frc));
+            entries.put(key, entry);
+        }
+        return entry;
+    }
+
+    public synchronized String toString() {
+        return entries.size() + " text layouts, " + hits + " hits, " + misses
+            + " misses";
+    }
+}
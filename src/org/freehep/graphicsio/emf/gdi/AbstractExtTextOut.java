@@ -50,6 +50,13 @@ public abstract class AbstractExtTextOut extends EMFTag implements EMFConstants
 
     public abstract Text getText();
 
+    /**
+     * @return bounds of the record in device units
+     */
+    public Rectangle getBounds() {
+        return bounds;
+    }
+
     public String toString() {
         return super.toString() +
             "\n  bounds: " + bounds +
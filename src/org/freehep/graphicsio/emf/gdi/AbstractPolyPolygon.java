@@ -6,8 +6,6 @@ import org.freehep.graphicsio.emf.EMFRenderer;
 
 import java.awt.Point;
 import java.awt.Rectangle;
-import java.awt.geom.AffineTransform;
-import java.awt.geom.GeneralPath;
 
 /**
  * abstract parent for PolyPolygon drawing
@@ -21,7 +19,10 @@ public abstract class AbstractPolyPolygon extends EMFTag {
 
     private int[] numberOfPoints;
 
-    private Point[][] points;
+    /**
+     * packed coordinates of all polygons x0, y0, x1, y1, ...
+     */
+    private int[] coordinates;
 
     /**
      * Constructs a EMFTag.
@@ -38,10 +39,53 @@ public abstract class AbstractPolyPolygon extends EMFTag {
         int[] numberOfPoints,
         Point[][] points) {
 
+        this(id, version, bounds, numberOfPoints, toCoordinates(points));
+    }
+
+    /**
+     * Constructs a EMFTag.
+     *
+     * @param id      id of the element
+     * @param version emf version in which this element was first supported
+     * @param bounds bounds of figure
+     * @param numberOfPoints number of points
+     * @param coordinates packed coordinates of all polygons
+     */
+    protected AbstractPolyPolygon(
+        int id, int version,
+        Rectangle bounds,
+        int[] numberOfPoints,
+        int[] coordinates) {
+
         super(id, version);
         this.bounds = bounds;
         this.numberOfPoints = numberOfPoints;
-        this.points = points;
+        this.coordinates = coordinates;
+    }
+
+    /**
+     * @param points points of all polygons
+     * @return x0, y0, x1, y1, ... or null if points is null
+     */
+    private static int[] toCoordinates(Point[][] points) {
+        if (points == null) {
+            return null;
+        }
+
+        int n = 0;
+        for (int i = 0; i < points.length; i++) {
+            n += points[i].length;
+        }
+
+        int[] coordinates = new int[2 * n];
+        int c = 0;
+        for (int i = 0; i < points.length; i++) {
+            for (int j = 0; j < points[i].length; j++) {
+                coordinates[c++] = points[i][j].x;
+                coordinates[c++] = points[i][j].y;
+            }
+        }
+        return coordinates;
     }
 
     public String toString() {
@@ -50,7 +94,10 @@ public abstract class AbstractPolyPolygon extends EMFTag {
             "\n  #polys: " + numberOfPoints.length;
     }
 
-    protected Rectangle getBounds() {
+    /**
+     * @return bounds of the record in device units
+     */
+    public Rectangle getBounds() {
         return bounds;
     }
 
@@ -58,8 +105,23 @@ public abstract class AbstractPolyPolygon extends EMFTag {
         return numberOfPoints;
     }
 
-    protected Point[][] getPoints() {
-        return points;
+    /**
+     * @return packed coordinates of all polygons
+     */
+    protected int[] getCoordinates() {
+        return coordinates;
+    }
+
+    /**
+     * @param polygon index of a polygon
+     * @return index of the first point of the polygon in the coordinates
+     */
+    protected int getOffset(int polygon) {
+        int offset = 0;
+        for (int i = 0; i < polygon; i++) {
+            offset += numberOfPoints[i];
+        }
+        return offset;
     }
 
     /**
@@ -79,34 +141,11 @@ public abstract class AbstractPolyPolygon extends EMFTag {
      * @param closePath if true the path is closed and filled
      */
     protected void render(EMFRenderer renderer, boolean closePath) {
-        // create a GeneralPath containing GeneralPathes
-        GeneralPath path = new GeneralPath(
+        // a single shape containing all polygons
+        PackedPolygon path = new PackedPolygon(
+            coordinates, numberOfPoints, closePath, false,
             renderer.getWindingRule());
 
-        // iterate the polgons
-        Point p;
-        for (int polygon = 0; polygon < numberOfPoints.length; polygon++) {
-
-            // create a new member of path
-            GeneralPath gp = new GeneralPath(
-                renderer.getWindingRule());
-            for (int point = 0; point < numberOfPoints[polygon]; point ++) {
-                // add a point to gp
-                p = points[polygon][point];
-                if (point > 0) {
-                    gp.lineTo((float) p.getX(),  (float)p.getY());
-                } else {
-                    gp.moveTo((float) p.getX(),  (float)p.getY());
-                }
-            }
-
-            // close the member, add it to path
-            if (closePath) {
-                gp.closePath();
-            }            
-            path.append(gp, false);            
-        }
-                   
         if (closePath) {
             renderer.fillAndDrawOrAppend(path);
         } else {
@@ -25,6 +25,16 @@ public abstract class AbstractPolyPolyline extends AbstractPolyPolygon {
         super(id, version, bounds, numberOfPoints, points);
     }
 
+    protected AbstractPolyPolyline(
+        int id,
+        int version,
+        Rectangle bounds,
+        int[] numberOfPoints,
+        int[] coordinates) {
+
+        super(id, version, bounds, numberOfPoints, coordinates);
+    }
+
     /**
      * displays the tag using the renderer. The default behavior
      * is not to close the polygons and not to fill them.
@@ -18,35 +18,58 @@ public abstract class AbstractPolygon extends EMFTag {
 
     private int numberOfPoints;
 
-    private Point[] points;
+    /**
+     * packed coordinates x0, y0, x1, y1, ...
+     */
+    private int[] coordinates;
 
     protected AbstractPolygon(int id, int version) {
         super(id, version);
     }
 
     protected AbstractPolygon(int id, int version, Rectangle bounds, int numberOfPoints, Point[] points) {
+        this(id, version, bounds, numberOfPoints, toCoordinates(points));
+    }
+
+    protected AbstractPolygon(int id, int version, Rectangle bounds, int numberOfPoints, int[] coordinates) {
         super(id, version);
         this.bounds = bounds;
         this.numberOfPoints = numberOfPoints;
-        this.points = points;      
+        this.coordinates = coordinates;
     }
 
+    /**
+     * @param points points to pack
+     * @return x0, y0, x1, y1, ... or null if points is null
+     */
+    protected static int[] toCoordinates(Point[] points) {
+        if (points == null) {
+            return null;
+        }
+
+        int[] coordinates = new int[2 * points.length];
+        for (int i = 0; i < points.length; i++) {
+            coordinates[2 * i] = points[i].x;
+            coordinates[2 * i + 1] = points[i].y;
+        }
+        return coordinates;
+    }
 
     public void write(int tagID, EMFOutputStream emf) throws IOException {
         emf.writeRECTL(bounds);
         emf.writeDWORD(numberOfPoints);
-        emf.writePOINTL(numberOfPoints, points);
+        emf.writePOINTL(numberOfPoints, coordinates);
     }
 
     public String toString() {
         String result = super.toString() +
             "\n  bounds: " + bounds +
             "\n  #points: " + numberOfPoints;
-        if (points != null) {
+        if (coordinates != null) {
             result += "\n  points: ";
-            for (int i = 0; i < points.length; i++) {
-                result += "[" + points[i].x + "," + points[i].y + "]";
-                if (i < points.length - 1) {
+            for (int i = 0; i < coordinates.length; i += 2) {
+                result += "[" + coordinates[i] + "," + coordinates[i + 1] + "]";
+                if (i < coordinates.length - 2) {
                     result += ", ";
                 }
             }
@@ -54,7 +77,10 @@ public abstract class AbstractPolygon extends EMFTag {
         return result;
     }
 
-    protected Rectangle getBounds() {
+    /**
+     * @return bounds of the record in device units
+     */
+    public Rectangle getBounds() {
         return bounds;
     }
 
@@ -62,7 +88,25 @@ public abstract class AbstractPolygon extends EMFTag {
         return numberOfPoints;
     }
 
+    /**
+     * @return packed coordinates x0, y0, x1, y1, ...
+     */
+    protected int[] getCoordinates() {
+        return coordinates;
+    }
+
+    /**
+     * @return the coordinates as new Point objects
+     */
     protected Point[] getPoints() {
+        if (coordinates == null) {
+            return null;
+        }
+
+        Point[] points = new Point[coordinates.length / 2];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new Point(coordinates[2 * i], coordinates[2 * i + 1]);
+        }
         return points;
     }
 }
@@ -10,11 +10,11 @@ import java.io.IOException;
 
 import org.freehep.graphicsio.ImageGraphics2D;
 import org.freehep.graphicsio.ImageConstants;
+import org.freehep.graphicsio.emf.EMFBitmap;
 import org.freehep.graphicsio.emf.EMFConstants;
 import org.freehep.graphicsio.emf.EMFInputStream;
 import org.freehep.graphicsio.emf.EMFOutputStream;
 import org.freehep.graphicsio.emf.EMFTag;
-import org.freehep.graphicsio.emf.EMFImageLoader;
 import org.freehep.graphicsio.emf.EMFRenderer;
 import org.freehep.util.io.NoCloseOutputStream;
 
@@ -46,6 +46,11 @@ public class AlphaBlend extends EMFTag implements EMFConstants {
 
     private BufferedImage image;
 
+    /**
+     * undecoded image data of a read record
+     */
+    private EMFBitmap bitmap;
+
     public AlphaBlend() {
         super(114, 1);
     }
@@ -104,7 +109,8 @@ public class AlphaBlend extends EMFTag implements EMFConstants {
         // FIXME: this size can differ and can be placed somewhere else
         tag.bmi = (bmiSize > 0) ? new BitmapInfo(emf) : null;
 
-        tag.image = EMFImageLoader.readImage(
+        // decoded on demand by render()
+        tag.bitmap = new EMFBitmap(
             tag.bmi.getHeader(),
             tag.width,
             tag.height,
@@ -116,6 +122,9 @@ public class AlphaBlend extends EMFTag implements EMFConstants {
     }
 
     public void write(int tagID, EMFOutputStream emf) throws IOException {
+        // a read record is decoded on demand
+        BufferedImage image = getImage();
+
         emf.writeRECTL(bounds);
         emf.writeLONG(x);
         emf.writeLONG(y);
@@ -177,6 +186,24 @@ public class AlphaBlend extends EMFTag implements EMFConstants {
             "\n" + ((bmi != null) ? bmi.toString() : "  bitmap: null");
     }
 
+    /**
+     * @return the image of the record, a read bitmap is decoded on
+     *         first use
+     */
+    public BufferedImage getImage() {
+        if (image == null && bitmap != null) {
+            return bitmap.getImage();
+        }
+        return image;
+    }
+
+    /**
+     * @return undecoded bitmap of a read record or null
+     */
+    public EMFBitmap getBitmap() {
+        return bitmap;
+    }
+
     /**
      * displays the tag using the renderer
      *
@@ -184,6 +211,7 @@ public class AlphaBlend extends EMFTag implements EMFConstants {
      */
     public void render(EMFRenderer renderer) {
         // This function displays bitmaps that have transparent or semitransparent pixels.
+        BufferedImage image = getImage();
         if (image != null) {
             renderer.drawImage(image, x, y, width, height);
         }
@@ -12,11 +12,11 @@ import java.io.IOException;
 
 import org.freehep.graphicsbase.util.UserProperties;
 import org.freehep.graphicsio.ImageGraphics2D;
+import org.freehep.graphicsio.emf.EMFBitmap;
 import org.freehep.graphicsio.emf.EMFConstants;
 import org.freehep.graphicsio.emf.EMFInputStream;
 import org.freehep.graphicsio.emf.EMFOutputStream;
 import org.freehep.graphicsio.emf.EMFTag;
-import org.freehep.graphicsio.emf.EMFImageLoader;
 import org.freehep.graphicsio.emf.EMFRenderer;
 import org.freehep.graphicsio.raw.RawImageWriteParam;
 import org.freehep.util.io.NoCloseOutputStream;
@@ -51,6 +51,11 @@ public class BitBlt extends EMFTag implements EMFConstants {
 
     private BufferedImage image;
 
+    /**
+     * undecoded image data of a read record
+     */
+    private EMFBitmap bitmap;
+
     public BitBlt() {
         super(76, 1);
     }
@@ -106,21 +111,25 @@ public class BitBlt extends EMFTag implements EMFConstants {
         BlendFunction fakebf = new BlendFunction(AC_SRC_OVER, 0, 0xFF, AC_SRC_ALPHA);
 
         
+        // decoded on demand by render()
         if (bitmapSize > 0 && tag.bmi != null) {
-            tag.image = EMFImageLoader.readImage(
+            tag.bitmap = new EMFBitmap(
                 tag.bmi.getHeader(),
                 tag.width,
                 tag.height,
                 emf,
                 bitmapSize, fakebf);
         } else {
-            tag.image = null;
+            tag.bitmap = null;
         }
 
         return tag;
     }
 
     public void write(int tagID, EMFOutputStream emf) throws IOException {
+        // a read record is decoded on demand
+        BufferedImage image = getImage();
+
         emf.writeRECTL(bounds);
         emf.writeLONG(x);
         emf.writeLONG(y);
@@ -171,12 +180,31 @@ public class BitBlt extends EMFTag implements EMFConstants {
             "\n" + ((bmi != null) ? bmi.toString() : "  bitmap: null");
     }
 
+    /**
+     * @return the image of the record, a read bitmap is decoded on
+     *         first use
+     */
+    public BufferedImage getImage() {
+        if (image == null && bitmap != null) {
+            return bitmap.getImage();
+        }
+        return image;
+    }
+
+    /**
+     * @return undecoded bitmap of a read record or null
+     */
+    public EMFBitmap getBitmap() {
+        return bitmap;
+    }
+
     /**
      * displays the tag using the renderer
      *
      * @param renderer EMFRenderer storing the drawing session data
      */
     public void render(EMFRenderer renderer) {
+        BufferedImage image = getImage();
         if (image != null) {
             renderer.drawImage(image, transform);
         }
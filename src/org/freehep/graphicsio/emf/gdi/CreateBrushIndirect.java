@@ -67,4 +67,11 @@ public class CreateBrushIndirect extends EMFTag {
         // );
         renderer.storeGDIObject(index, brush);
     }
+
+    /**
+     * @return index of the object in the handle table
+     */
+    public int getIndex() {
+        return index;
+    }
 }
\ No newline at end of file
@@ -99,4 +99,11 @@ public class CreateDIBPatternBrushPt extends EMFTag {
             }
         });
     }
+
+    /**
+     * @return index of the object in the handle table
+     */
+    public int getIndex() {
+        return index;
+    }
 }
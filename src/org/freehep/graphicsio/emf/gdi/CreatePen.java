@@ -69,4 +69,11 @@ public class CreatePen extends EMFTag {
         //);
         renderer.storeGDIObject(index, pen);        
     }
+
+    /**
+     * @return index of the object in the handle table
+     */
+    public int getIndex() {
+        return index;
+    }
 }
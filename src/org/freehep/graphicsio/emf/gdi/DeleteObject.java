@@ -50,4 +50,11 @@ public class DeleteObject extends EMFTag {
     public void render(EMFRenderer renderer) {
         renderer.storeGDIObject(index, null);
     }
+
+    /**
+     * @return index of the object in the handle table
+     */
+    public int getIndex() {
+        return index;
+    }
 }
@@ -3,7 +3,6 @@ package org.freehep.graphicsio.emf.gdi;
 
 import java.awt.Point;
 import java.awt.Rectangle;
-import java.awt.geom.GeneralPath;
 import java.io.IOException;
 
 import org.freehep.graphicsio.emf.EMFInputStream;
@@ -19,23 +18,31 @@ import org.freehep.graphicsio.emf.EMFRenderer;
 public class EMFPolygon extends AbstractPolygon {
 
     public EMFPolygon() {
-        super(3, 1, null, 0, null);
+        super(3, 1, null, 0, (int[]) null);
     }
 
     public EMFPolygon(Rectangle bounds, int numberOfPoints, Point[] points) {
         super(3, 1, bounds, numberOfPoints, points);
     }
 
+    public EMFPolygon(Rectangle bounds, int numberOfPoints, int[] coordinates) {
+        super(3, 1, bounds, numberOfPoints, coordinates);
+    }
+
     protected EMFPolygon (int id, int version, Rectangle bounds, int numberOfPoints, Point[] points) {
         super(id, version, bounds, numberOfPoints, points);
     }
 
+    protected EMFPolygon (int id, int version, Rectangle bounds, int numberOfPoints, int[] coordinates) {
+        super(id, version, bounds, numberOfPoints, coordinates);
+    }
+
     public EMFTag read(int tagID, EMFInputStream emf, int len)
             throws IOException {
 
         Rectangle r = emf.readRECTL();
         int n = emf.readDWORD();
-        return new EMFPolygon(r, n, emf.readPOINTL(n));
+        return new EMFPolygon(r, n, emf.readPOINTLArray(n));
     }
 
     /**
@@ -44,18 +51,13 @@ public class EMFPolygon extends AbstractPolygon {
      * @param renderer EMFRenderer storing the drawing session data
      */
     public void render(EMFRenderer renderer) {
-        Point[] points = getPoints();
+        int[] coordinates = getCoordinates();
 
         // Safety check.
-        if (points.length > 1) {
-            GeneralPath path = new GeneralPath(
-                renderer.getWindingRule());
-            path.moveTo((float)points[0].getX(), (float)points[0].getY());
-            for (int i = 1; i < points.length; i++) {
-                path.lineTo((float)points[i].getX(), (float)points[i].getY());
-            }
-            path.closePath();
-            renderer.fillAndDrawOrAppend(path);
+        if (coordinates.length > 2) {
+            renderer.fillAndDrawOrAppend(new PackedPolygon(
+                coordinates, coordinates.length / 2, true, false,
+                renderer.getWindingRule()));
         }
     }
 }
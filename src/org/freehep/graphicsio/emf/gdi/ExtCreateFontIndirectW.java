@@ -80,4 +80,11 @@ public class ExtCreateFontIndirectW extends EMFTag {
     	else
     		renderer.storeGDIObject(index, panoseFont);
     }
+
+    /**
+     * @return index of the object in the handle table
+     */
+    public int getIndex() {
+        return index;
+    }
 }
@@ -112,4 +112,11 @@ public class ExtCreatePen extends EMFTag {
     public void render(EMFRenderer renderer) {
         renderer.storeGDIObject(index, pen);
     }
+
+    /**
+     * @return index of the object in the handle table
+     */
+    public int getIndex() {
+        return index;
+    }
 }
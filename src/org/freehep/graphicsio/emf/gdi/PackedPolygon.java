@@ -0,0 +1,310 @@
+// Copyright 2007, FreeHEP.
+package org.freehep.graphicsio.emf.gdi;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.FlatteningPathIterator;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * Shape for one or more polygons, polylines or bezier curves. The
+ * coordinates are kept in a packed int array (x0, y0, x1, y1, ...) as
+ * read from the EMF record, the path iterator reads them without
+ * copying. A GeneralPath is only created if contains() or intersects()
+ * are called.
+ *
+ * @version $Id$
+ */
+public class PackedPolygon implements Shape {
+
+    /**
+     * packed coordinates of all figures
+     */
+    private int[] coordinates;
+
+    /**
+     * number of points for each figure
+     */
+    private int[] numberOfPoints;
+
+    /**
+     * if true, each figure is closed
+     */
+    private boolean closed;
+
+    /**
+     * if true, the points after the first one are interpreted as
+     * control and end points of cubic bezier curves
+     */
+    private boolean bezier;
+
+    /**
+     * winding rule of the path, e.g. {@link PathIterator#WIND_NON_ZERO}
+     */
+    private int windingRule;
+
+    /**
+     * bounds, calculated on demand
+     */
+    private Rectangle2D bounds;
+
+    /**
+     * path used for contains() and intersects(), created on demand
+     */
+    private GeneralPath path;
+
+    /**
+     * Creates a shape containing a single figure.
+     *
+     * @param coordinates packed coordinates x0, y0, x1, y1, ...
+     * @param numberOfPoints number of points to use
+     * @param closed if true the figure is closed
+     * @param bezier if true bezier curves are created instead of lines
+     * @param windingRule winding rule of the path
+     */
+    public PackedPolygon(int[] coordinates, int numberOfPoints,
+            boolean closed, boolean bezier, int windingRule) {
+        this(coordinates, new int[] {numberOfPoints}, closed, bezier, windingRule);
+    }
+
+    /**
+     * Creates a shape containing several figures.
+     *
+     * @param coordinates packed coordinates of all figures
+     * @param numberOfPoints number of points for each figure
+     * @param closed if true every figure is closed
+     * @param bezier if true bezier curves are created instead of lines
+     * @param windingRule winding rule of the path
+     */
+    public PackedPolygon(int[] coordinates, int[] numberOfPoints,
+            boolean closed, boolean bezier, int windingRule) {
+        this.coordinates = coordinates;
+        this.numberOfPoints = numberOfPoints;
+        this.closed = closed;
+        this.bezier = bezier;
+        this.windingRule = windingRule;
+    }
+
+    /**
+     * @param count number of points in a figure
+     * @return number of points which are used to build segments
+     */
+    private int usedPoints(int count) {
+        if (bezier && count > 0) {
+            return 1 + 3 * ((count - 1) / 3);
+        }
+        return count;
+    }
+
+    public Rectangle getBounds() {
+        return getBounds2D().getBounds();
+    }
+
+    public Rectangle2D getBounds2D() {
+        if (bounds == null) {
+            int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+            int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+
+            int offset = 0;
+            for (int figure = 0; figure < numberOfPoints.length; figure++) {
+                int used = usedPoints(numberOfPoints[figure]);
+                for (int i = 2 * offset; i < 2 * (offset + used); i += 2) {
+                    minX = Math.min(minX, coordinates[i]);
+                    maxX = Math.max(maxX, coordinates[i]);
+                    minY = Math.min(minY, coordinates[i + 1]);
+                    maxY = Math.max(maxY, coordinates[i + 1]);
+                }
+                offset += numberOfPoints[figure];
+            }
+
+            if (minX > maxX) {
+                bounds = new Rectangle2D.Float();
+            } else {
+                bounds = new Rectangle2D.Float(
+                    minX, minY, (float) maxX - minX, (float) maxY - minY);
+            }
+        }
+        return bounds;
+    }
+
+    /**
+     * @return a GeneralPath with the same outline
+     */
+    private GeneralPath getPath() {
+        if (path == null) {
+            path = new GeneralPath(this);
+        }
+        return path;
+    }
+
+    public boolean contains(double x, double y) {
+        return getBounds2D().contains(x, y) && getPath().contains(x, y);
+    }
+
+    public boolean contains(Point2D p) {
+        return contains(p.getX(), p.getY());
+    }
+
+    public boolean intersects(double x, double y, double w, double h) {
+        return getBounds2D().intersects(x, y, w, h)
+            && getPath().intersects(x, y, w, h);
+    }
+
+    public boolean intersects(Rectangle2D r) {
+        return intersects(r.getX(), r.getY(), r.getWidth(), r.getHeight());
+    }
+
+    public boolean contains(double x, double y, double w, double h) {
+        return getBounds2D().contains(x, y, w, h)
+            && getPath().contains(x, y, w, h);
+    }
+
+    public boolean contains(Rectangle2D r) {
+        return contains(r.getX(), r.getY(), r.getWidth(), r.getHeight());
+    }
+
+    public PathIterator getPathIterator(AffineTransform at) {
+        return new PackedPathIterator(at);
+    }
+
+    public PathIterator getPathIterator(AffineTransform at, double flatness) {
+        return new FlatteningPathIterator(getPathIterator(at), flatness);
+    }
+
+    /**
+     * iterates the packed coordinates figure by figure
+     */
+    private class PackedPathIterator implements PathIterator {
+
+        private AffineTransform at;
+
+        /**
+         * current figure
+         */
+        private int figure = -1;
+
+        /**
+         * index of the first point of the current figure
+         */
+        private int offset = 0;
+
+        /**
+         * number of points of the current figure
+         */
+        private int count = 0;
+
+        /**
+         * current segment in the figure
+         */
+        private int segment;
+
+        /**
+         * number of segments in the figure including the closing one
+         */
+        private int segments;
+
+        private PackedPathIterator(AffineTransform at) {
+            this.at = at;
+            nextFigure();
+        }
+
+        /**
+         * moves to the next figure containing at least one point
+         */
+        private void nextFigure() {
+            segment = 0;
+            segments = 0;
+            while (segments == 0 && ++figure < numberOfPoints.length) {
+                offset += count;
+                count = numberOfPoints[figure];
+
+                int used = usedPoints(count);
+                if (used > 0) {
+                    segments = used;
+                    if (bezier) {
+                        segments = 1 + (used - 1) / 3;
+                    }
+                    if (closed) {
+                        segments++;
+                    }
+                }
+            }
+        }
+
+        public int getWindingRule() {
+            return windingRule;
+        }
+
+        public boolean isDone() {
+            return figure >= numberOfPoints.length;
+        }
+
+        public void next() {
+            if (++segment >= segments) {
+                nextFigure();
+            }
+        }
+
+        /**
+         * @return index of the first point of the current segment
+         */
+        private int currentPoint() {
+            if (segment == 0) {
+                return offset;
+            } else if (bezier) {
+                return offset + 1 + 3 * (segment - 1);
+            }
+            return offset + segment;
+        }
+
+        /**
+         * @return type of the current segment
+         */
+        private int currentType() {
+            if (segment == 0) {
+                return SEG_MOVETO;
+            } else if (closed && segment == segments - 1) {
+                return SEG_CLOSE;
+            }
+            return bezier ? SEG_CUBICTO : SEG_LINETO;
+        }
+
+        public int currentSegment(float[] coords) {
+            int type = currentType();
+            if (type == SEG_CLOSE) {
+                return type;
+            }
+
+            int n = (type == SEG_CUBICTO) ? 3 : 1;
+            int point = currentPoint();
+            for (int i = 0; i < 2 * n; i++) {
+                coords[i] = coordinates[2 * point + i];
+            }
+            if (at != null) {
+                at.transform(coords, 0, coords, 0, n);
+            }
+            return type;
+        }
+
+        public int currentSegment(double[] coords) {
+            int type = currentType();
+            if (type == SEG_CLOSE) {
+                return type;
+            }
+
+            int n = (type == SEG_CUBICTO) ? 3 : 1;
+            int point = currentPoint();
+            for (int i = 0; i < 2 * n; i++) {
+                coords[i] = coordinates[2 * point + i];
+            }
+            if (at != null) {
+                at.transform(coords, 0, coords, 0, n);
+            }
+            return type;
+        }
+    }
+}
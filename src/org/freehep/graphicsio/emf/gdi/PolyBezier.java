@@ -3,7 +3,6 @@ package org.freehep.graphicsio.emf.gdi;
 
 import java.awt.Point;
 import java.awt.Rectangle;
-import java.awt.geom.GeneralPath;
 import java.io.IOException;
 
 import org.freehep.graphicsio.emf.EMFInputStream;
@@ -19,23 +18,31 @@ import org.freehep.graphicsio.emf.EMFRenderer;
 public class PolyBezier extends AbstractPolygon {
 
     public PolyBezier() {
-        super(2, 1, null, 0, null);
+        super(2, 1, null, 0, (int[]) null);
     }
 
     public PolyBezier(Rectangle bounds, int numberOfPoints, Point[] points) {
         super(2, 1, bounds, numberOfPoints, points);
     }
 
+    public PolyBezier(Rectangle bounds, int numberOfPoints, int[] coordinates) {
+        super(2, 1, bounds, numberOfPoints, coordinates);
+    }
+
     protected PolyBezier (int id, int version, Rectangle bounds, int numberOfPoints, Point[] points) {
         super(id, version, bounds, numberOfPoints, points);
     }
 
+    protected PolyBezier (int id, int version, Rectangle bounds, int numberOfPoints, int[] coordinates) {
+        super(id, version, bounds, numberOfPoints, coordinates);
+    }
+
     public EMFTag read(int tagID, EMFInputStream emf, int len)
             throws IOException {
 
         Rectangle r = emf.readRECTL();
         int n = emf.readDWORD();
-        return new PolyBezier(r, n, emf.readPOINTL(n));
+        return new PolyBezier(r, n, emf.readPOINTLArray(n));
     }
 
     /**
@@ -44,28 +51,13 @@ public class PolyBezier extends AbstractPolygon {
      * @param renderer EMFRenderer storing the drawing session data
      */
     public void render(EMFRenderer renderer) {
-        Point[] points = getPoints();
+        int[] coordinates = getCoordinates();
         int numberOfPoints = getNumberOfPoints();
 
-        if (points != null && points.length > 0) {
-            GeneralPath gp = new GeneralPath(
-                renderer.getWindingRule());
-            Point p = points[0];
-            gp.moveTo((float) p.getX(),  (float)p.getY());
-
-            for (int point = 1; point < numberOfPoints; point = point + 3) {
-                // add a point to gp
-                Point p1 = points[point];
-                Point p2 = points[point + 1];
-                Point p3 = points[point + 2];
-                if (point > 0) {
-                    gp.curveTo(
-                        (float)p1.getX(), (float)p1.getY(),
-                        (float)p2.getX(), (float)p2.getY(),
-                        (float)p3.getX(), (float)p3.getY());
-                }
-            }
-            renderer.fillAndDrawOrAppend(gp);
+        if (coordinates != null && coordinates.length > 0) {
+            renderer.fillAndDrawOrAppend(new PackedPolygon(
+                coordinates, numberOfPoints, false, true,
+                renderer.getWindingRule()));
         }
     }
 }
@@ -18,24 +18,28 @@ import org.freehep.graphicsio.emf.EMFTag;
 public class PolyBezier16 extends PolyBezier {
 
     public PolyBezier16() {
-        super(85, 1, null, 0, null);
+        super(85, 1, null, 0, (int[]) null);
     }
 
     public PolyBezier16(Rectangle bounds, int numberOfPoints, Point[] points) {
         super(85, 1, bounds, numberOfPoints, points);
     }
 
+    public PolyBezier16(Rectangle bounds, int numberOfPoints, int[] coordinates) {
+        super(85, 1, bounds, numberOfPoints, coordinates);
+    }
+
     public EMFTag read(int tagID, EMFInputStream emf, int len)
             throws IOException {
 
         Rectangle r = emf.readRECTL();
         int n = emf.readDWORD();
-        return new PolyBezier16(r, n, emf.readPOINTS(n));
+        return new PolyBezier16(r, n, emf.readPOINTSArray(n));
     }
 
     public void write(int tagID, EMFOutputStream emf) throws IOException {
         emf.writeRECTL(getBounds());
         emf.writeDWORD(getNumberOfPoints());
-        emf.writePOINTS(getNumberOfPoints(), getPoints());
+        emf.writePOINTS(getNumberOfPoints(), getCoordinates());
     }
 }
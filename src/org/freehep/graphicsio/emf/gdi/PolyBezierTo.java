@@ -21,7 +21,7 @@ public class PolyBezierTo extends AbstractPolygon {
 	private Rectangle bounds;
 	
     public PolyBezierTo() {
-        super(5, 1, null, 0, null);
+        super(5, 1, null, 0, (int[]) null);
     }
 
     public PolyBezierTo(Rectangle bounds, int numberOfPoints, Point[] points) {
@@ -29,17 +29,27 @@ public class PolyBezierTo extends AbstractPolygon {
         this.bounds = bounds;
     }
 
+    public PolyBezierTo(Rectangle bounds, int numberOfPoints, int[] coordinates) {
+        super(5, 1, bounds, numberOfPoints, coordinates);
+        this.bounds = bounds;
+    }
+
     protected PolyBezierTo (int id, int version, Rectangle bounds, int numberOfPoints, Point[] points) {
         super(id, version, bounds, numberOfPoints, points);
         this.bounds = bounds;
     }
 
+    protected PolyBezierTo (int id, int version, Rectangle bounds, int numberOfPoints, int[] coordinates) {
+        super(id, version, bounds, numberOfPoints, coordinates);
+        this.bounds = bounds;
+    }
+
     public EMFTag read(int tagID, EMFInputStream emf, int len)
             throws IOException {
 
     	bounds = emf.readRECTL();
         int n = emf.readDWORD();
-        return new PolyBezierTo(bounds, n, emf.readPOINTL(n));
+        return new PolyBezierTo(bounds, n, emf.readPOINTLArray(n));
     }
 
     /**
@@ -48,25 +58,21 @@ public class PolyBezierTo extends AbstractPolygon {
      * @param renderer EMFRenderer storing the drawing session data
      */
     public void render(EMFRenderer renderer) {
-        Point[] points = getPoints();
+        int[] c = getCoordinates();
         int numberOfPoints = getNumberOfPoints();
         GeneralPath currentFigure = renderer.getFigure();
         boolean nodraw = false;
         
         
         if (nodraw == false) {
-        if (points != null && points.length > 0) {
+        if (c != null && c.length > 0) {
 
-            Point p1, p2, p3;
-            for (int point = 0; point < numberOfPoints; point = point + 3) {
+            for (int point = 0; point < 2 * numberOfPoints; point = point + 6) {
                 // add a point to gp
-                p1 = points[point];
-                p2 = points[point + 1];
-                p3 = points[point + 2];
                 currentFigure.curveTo(
-                    (float)p1.getX(), (float)p1.getY(),
-                    (float)p2.getX(), (float)p2.getY(),
-                    (float)p3.getX(), (float)p3.getY());                
+                    (float)c[point], (float)c[point + 1],
+                    (float)c[point + 2], (float)c[point + 3],
+                    (float)c[point + 4], (float)c[point + 5]);
             }
 /*            currentFigure.lineTo(points[points.length-1].getX(),
             		points[points.length-1].getY());
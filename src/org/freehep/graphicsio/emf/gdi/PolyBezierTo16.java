@@ -18,25 +18,29 @@ import org.freehep.graphicsio.emf.EMFTag;
 public class PolyBezierTo16 extends PolyBezierTo {
 
     public PolyBezierTo16() {
-        super(88, 1, null, 0, null);
+        super(88, 1, null, 0, (int[]) null);
     }
 
     public PolyBezierTo16(Rectangle bounds, int numberOfPoints, Point[] points) {
         super(88, 1, bounds, numberOfPoints, points);
     }
 
+    public PolyBezierTo16(Rectangle bounds, int numberOfPoints, int[] coordinates) {
+        super(88, 1, bounds, numberOfPoints, coordinates);
+    }
+
     public EMFTag read(int tagID, EMFInputStream emf, int len)
         throws IOException {
 
         Rectangle r = emf.readRECTL();
         int n = emf.readDWORD();            
-        Point p [] = emf.readPOINTS(n);
+        int[] p = emf.readPOINTSArray(n);
         return new PolyBezierTo16(r, n, p);
     }
 
     public void write(int tagID, EMFOutputStream emf) throws IOException {
         emf.writeRECTL(getBounds());
         emf.writeDWORD(getNumberOfPoints());
-        emf.writePOINTS(getNumberOfPoints(), getPoints());
+        emf.writePOINTS(getNumberOfPoints(), getCoordinates());
     }
 }
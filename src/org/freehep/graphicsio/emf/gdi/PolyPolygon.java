@@ -20,7 +20,7 @@ public class PolyPolygon extends AbstractPolyPolygon {
     private int start, end;
 
     public PolyPolygon() {
-        super(8, 1, null, null, null);
+        super(8, 1, null, null, (int[]) null);
     }
 
     public PolyPolygon(
@@ -35,27 +35,36 @@ public class PolyPolygon extends AbstractPolyPolygon {
         this.end = end;
     }
 
+    public PolyPolygon(
+        Rectangle bounds,
+        int start,
+        int end,
+        int[] numberOfPoints,
+        int[] coordinates) {
+
+        super(8, 1, bounds, numberOfPoints, coordinates);
+        this.start = start;
+        this.end = end;
+    }
+
     public EMFTag read(int tagID, EMFInputStream emf, int len)
             throws IOException {
 
         Rectangle bounds = emf.readRECTL();
         int np = emf.readDWORD();
         /* int totalNumberOfPoints = */ emf.readDWORD();
-        int[] pc = new int[np];
-        Point[][] points = new Point[np][];
+        int[] pc = emf.readDWORD(np);
+        int total = 0;
         for (int i = 0; i < np; i++) {
-            pc[i] = emf.readDWORD();
-            points[i] = new Point[pc[i]];
-        }
-        for (int i = 0; i < np; i++) {
-            points[i] = emf.readPOINTL(pc[i]);
+            total += pc[i];
         }
+        int[] points = emf.readPOINTLArray(total);
         return new PolyPolygon(bounds, 0, np - 1, pc, points);
     }
 
     public void write(int tagID, EMFOutputStream emf) throws IOException {
         int[] numberOfPoints = getNumberOfPoints();
-        Point[][] points = getPoints();
+        int[] coordinates = getCoordinates();
 
         emf.writeRECTL(getBounds());
         emf.writeDWORD(end - start + 1);
@@ -67,8 +76,9 @@ public class PolyPolygon extends AbstractPolyPolygon {
         for (int i = start; i < end + 1; i++) {
             emf.writeDWORD(numberOfPoints[i]);
         }
-        for (int i = start; i < end + 1; i++) {
-            emf.writePOINTL(numberOfPoints[i], points[i]);
+        int offset = getOffset(start);
+        for (int i = 2 * offset; i < 2 * (offset + c); i++) {
+            emf.writeLONG(coordinates[i]);
         }
     }
 }
@@ -20,7 +20,7 @@ public class PolyPolygon16 extends AbstractPolyPolygon {
     private int numberOfPolys;
 
     public PolyPolygon16() {
-        super(91, 1, null, null, null);
+        super(91, 1, null, null, (int[]) null);
     }
 
     public PolyPolygon16(
@@ -33,30 +33,35 @@ public class PolyPolygon16 extends AbstractPolyPolygon {
         this.numberOfPolys = numberOfPolys;
     }
 
+    public PolyPolygon16(
+        Rectangle bounds,
+        int numberOfPolys,
+        int[] numberOfPoints,
+        int[] coordinates) {
+
+        super(91, 1, bounds, numberOfPoints, coordinates);
+        this.numberOfPolys = numberOfPolys;
+    }
+
     public EMFTag read(int tagID, EMFInputStream emf, int len)
             throws IOException {
 
         Rectangle bounds = emf.readRECTL();
         int np = emf.readDWORD();
         /* int totalNumberOfPoints = */ emf.readDWORD();
-        int[] pc = new int[np];
-        Point[][] points = new Point[np][];
-
+        int[] pc = emf.readDWORD(np);
+        int total = 0;
         for (int i = 0; i < np; i++) {
-            pc[i] = emf.readDWORD();
-            points[i] = new Point[pc[i]];
-        }
-
-        for (int i = 0; i < np; i++) {
-            points[i] = emf.readPOINTS(pc[i]);
+            total += pc[i];
         }
+        int[] points = emf.readPOINTSArray(total);
 
         return new PolyPolygon16(bounds, np, pc, points);
     }
 
     public void write(int tagID, EMFOutputStream emf) throws IOException {
         int[] numberOfPoints = getNumberOfPoints();
-        Point[][] points = getPoints();
+        int[] coordinates = getCoordinates();
 
         emf.writeRECTL(getBounds());
         emf.writeDWORD(numberOfPolys);
@@ -68,8 +73,6 @@ public class PolyPolygon16 extends AbstractPolyPolygon {
         for (int i = 0; i < numberOfPolys; i++) {
             emf.writeDWORD(numberOfPoints[i]);
         }
-        for (int i = 0; i < numberOfPolys; i++) {
-            emf.writePOINTS(numberOfPoints[i], points[i]);
-        }
+        emf.writePOINTS(c, coordinates);
     }
 }
@@ -20,7 +20,7 @@ public class PolyPolyline extends AbstractPolyPolyline {
     private int start, end;
 
     public PolyPolyline() {
-        super(7, 1, null, null, null);
+        super(7, 1, null, null, (int[]) null);
     }
 
     public PolyPolyline(
@@ -36,6 +36,19 @@ public class PolyPolyline extends AbstractPolyPolyline {
         this.end = Math.min(end, numberOfPoints.length - 1);
     }
 
+    public PolyPolyline(
+        Rectangle bounds,
+        int start,
+        int end,
+        int[] numberOfPoints,
+        int[] coordinates) {
+
+        super(7, 1, bounds, numberOfPoints, coordinates);
+
+        this.start = start;
+        this.end = Math.min(end, numberOfPoints.length - 1);
+    }
+
     public EMFTag read(
         int tagID,
         EMFInputStream emf,
@@ -45,21 +58,18 @@ public class PolyPolyline extends AbstractPolyPolyline {
         Rectangle bounds = emf.readRECTL();
         int np = emf.readDWORD();
         /* int totalNumberOfPoints = */ emf.readDWORD();
-        int[] pc = new int[np];
-        Point[][] points = new Point[np][];
+        int[] pc = emf.readDWORD(np);
+        int total = 0;
         for (int i = 0; i < np; i++) {
-            pc[i] = emf.readDWORD();
-            points[i] = new Point[pc[i]];
-        }
-        for (int i = 0; i < np; i++) {
-            points[i] = emf.readPOINTL(pc[i]);
+            total += pc[i];
         }
+        int[] points = emf.readPOINTLArray(total);
         return new PolyPolyline(bounds, 0, np - 1, pc, points);
     }
 
     public void write(int tagID, EMFOutputStream emf) throws IOException {
         int[] numberOfPoints = getNumberOfPoints();
-        Point[][] points = getPoints();
+        int[] coordinates = getCoordinates();
 
         emf.writeRECTL(getBounds());
         emf.writeDWORD(end - start + 1);
@@ -71,8 +81,9 @@ public class PolyPolyline extends AbstractPolyPolyline {
         for (int i = start; i < end + 1; i++) {
             emf.writeDWORD(numberOfPoints[i]);
         }
-        for (int i = start; i < end + 1; i++) {
-            emf.writePOINTL(numberOfPoints[i], points[i]);
+        int offset = getOffset(start);
+        for (int i = 2 * offset; i < 2 * (offset + c); i++) {
+            emf.writeLONG(coordinates[i]);
         }
     }
 }
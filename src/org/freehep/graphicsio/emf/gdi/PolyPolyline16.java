@@ -20,7 +20,7 @@ public class PolyPolyline16 extends AbstractPolyPolyline {
     private int numberOfPolys;
 
     public PolyPolyline16() {
-        super(90, 1, null, null, null);
+        super(90, 1, null, null, (int[]) null);
     }
 
     public PolyPolyline16(
@@ -33,27 +33,34 @@ public class PolyPolyline16 extends AbstractPolyPolyline {
         this.numberOfPolys = numberOfPolys;
     }
 
+    public PolyPolyline16(
+        Rectangle bounds,
+        int numberOfPolys,
+        int[] numberOfPoints,
+        int[] coordinates) {
+
+        super(90, 1, bounds, numberOfPoints, coordinates);
+        this.numberOfPolys = numberOfPolys;
+    }
+
     public EMFTag read(int tagID, EMFInputStream emf, int len)
             throws IOException {
 
         Rectangle bounds = emf.readRECTL();
         int np = emf.readDWORD();
         /* int totalNumberOfPoints = */ emf.readDWORD();
-        int[] pc = new int[np];
-        Point[][] points = new Point[np][];
-        for (int i = 0; i < np; i++) {
-            pc[i] = emf.readDWORD();
-            points[i] = new Point[pc[i]];
-        }
+        int[] pc = emf.readDWORD(np);
+        int total = 0;
         for (int i = 0; i < np; i++) {
-            points[i] = emf.readPOINTS(pc[i]);
+            total += pc[i];
         }
+        int[] points = emf.readPOINTSArray(total);
         return new PolyPolyline16(bounds, np, pc, points);
     }
 
     public void write(int tagID, EMFOutputStream emf) throws IOException {
         int[] numberOfPoints = getNumberOfPoints();
-        Point[][] points = getPoints();
+        int[] coordinates = getCoordinates();
         
         emf.writeRECTL(getBounds());
         emf.writeDWORD(numberOfPolys);
@@ -65,8 +72,6 @@ public class PolyPolyline16 extends AbstractPolyPolyline {
         for (int i = 0; i < numberOfPolys; i++) {
             emf.writeDWORD(numberOfPoints[i]);
         }
-        for (int i = 0; i < numberOfPolys; i++) {
-            emf.writePOINTS(numberOfPoints[i], points[i]);
-        }
+        emf.writePOINTS(c, coordinates);
     }
 }
@@ -18,24 +18,28 @@ import org.freehep.graphicsio.emf.EMFTag;
 public class Polygon16 extends EMFPolygon {
 
     public Polygon16() {
-        super(86, 1, null, 0, null);
+        super(86, 1, null, 0, (int[]) null);
     }
 
     public Polygon16(Rectangle bounds, int numberOfPoints, Point[] points) {
         super(86, 1, bounds, numberOfPoints, points);
     }
 
+    public Polygon16(Rectangle bounds, int numberOfPoints, int[] coordinates) {
+        super(86, 1, bounds, numberOfPoints, coordinates);
+    }
+
     public EMFTag read(int tagID, EMFInputStream emf, int len)
             throws IOException {
 
         Rectangle r = emf.readRECTL();
         int n = emf.readDWORD();
-        return new Polygon16(r, n, emf.readPOINTS(n));
+        return new Polygon16(r, n, emf.readPOINTSArray(n));
     }
 
     public void write(int tagID, EMFOutputStream emf) throws IOException {
         emf.writeRECTL(getBounds());
         emf.writeDWORD(getNumberOfPoints());
-        emf.writePOINTS(getNumberOfPoints(), getPoints());
+        emf.writePOINTS(getNumberOfPoints(), getCoordinates());
     }
 }
@@ -3,7 +3,6 @@ package org.freehep.graphicsio.emf.gdi;
 
 import java.awt.Point;
 import java.awt.Rectangle;
-import java.awt.geom.GeneralPath;
 import java.io.IOException;
 
 import org.freehep.graphicsio.emf.EMFInputStream;
@@ -19,23 +18,31 @@ import org.freehep.graphicsio.emf.EMFRenderer;
 public class Polyline extends AbstractPolygon {
 
     public Polyline() {
-        super(4, 1, null, 0, null);
+        super(4, 1, null, 0, (int[]) null);
     }
 
     public Polyline(Rectangle bounds, int numberOfPoints, Point[] points) {
         super(4, 1, bounds, numberOfPoints, points);
     }
 
+    public Polyline(Rectangle bounds, int numberOfPoints, int[] coordinates) {
+        super(4, 1, bounds, numberOfPoints, coordinates);
+    }
+
     protected Polyline (int id, int version, Rectangle bounds, int numberOfPoints, Point[] points) {
         super(id, version, bounds, numberOfPoints, points);
     }
 
+    protected Polyline (int id, int version, Rectangle bounds, int numberOfPoints, int[] coordinates) {
+        super(id, version, bounds, numberOfPoints, coordinates);
+    }
+
     public EMFTag read(int tagID, EMFInputStream emf, int len)
             throws IOException {
 
         Rectangle r = emf.readRECTL();
         int n = emf.readDWORD();
-        return new Polyline(r, n, emf.readPOINTL(n));
+        return new Polyline(r, n, emf.readPOINTLArray(n));
     }
 
     /**
@@ -44,23 +51,13 @@ public class Polyline extends AbstractPolygon {
      * @param renderer EMFRenderer storing the drawing session data
      */
     public void render(EMFRenderer renderer) {
-        Point[] points = getPoints();
+        int[] coordinates = getCoordinates();
         int numberOfPoints = getNumberOfPoints();
 
-        if (points != null && points.length > 0) {
-            GeneralPath gp = new GeneralPath(
-                renderer.getWindingRule());
-            Point p;
-            for (int point = 0; point < numberOfPoints; point ++) {
-                // add a point to gp
-                p = points[point];
-                if (point > 0) {
-                    gp.lineTo((float) p.getX(),  (float)p.getY());
-                } else {
-                    gp.moveTo((float) p.getX(),  (float)p.getY());
-                }
-            }
-            renderer.drawOrAppend(gp);
+        if (coordinates != null && coordinates.length > 0) {
+            renderer.drawOrAppend(new PackedPolygon(
+                coordinates, numberOfPoints, false, false,
+                renderer.getWindingRule()));
         }
     }
 }
@@ -18,24 +18,28 @@ import org.freehep.graphicsio.emf.EMFTag;
 public class Polyline16 extends Polyline {
 
     public Polyline16() {
-        super(87, 1, null, 0, null);
+        super(87, 1, null, 0, (int[]) null);
     }
 
     public Polyline16(Rectangle bounds, int numberOfPoints, Point[] points) {
         super(87, 1, bounds, numberOfPoints, points);
     }
 
+    public Polyline16(Rectangle bounds, int numberOfPoints, int[] coordinates) {
+        super(87, 1, bounds, numberOfPoints, coordinates);
+    }
+
     public EMFTag read(int tagID, EMFInputStream emf, int len)
             throws IOException {
 
         Rectangle r = emf.readRECTL();
         int n = emf.readDWORD();
-        return new Polyline16(r, n, emf.readPOINTS(n));
+        return new Polyline16(r, n, emf.readPOINTSArray(n));
     }
 
     public void write(int tagID, EMFOutputStream emf) throws IOException {
         emf.writeRECTL(getBounds());
         emf.writeDWORD(getNumberOfPoints());
-        emf.writePOINTS(getNumberOfPoints(), getPoints());
+        emf.writePOINTS(getNumberOfPoints(), getCoordinates());
     }
 }
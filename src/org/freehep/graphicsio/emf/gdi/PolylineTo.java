@@ -20,23 +20,31 @@ import org.freehep.graphicsio.emf.EMFTag;
 public class PolylineTo extends AbstractPolygon {
 
     public PolylineTo() {
-        super(6, 1, null, 0, null);
+        super(6, 1, null, 0, (int[]) null);
     }
 
     public PolylineTo(Rectangle bounds, int numberOfPoints, Point[] points) {
         this(6, 1, bounds, numberOfPoints, points);
     }
 
+    public PolylineTo(Rectangle bounds, int numberOfPoints, int[] coordinates) {
+        this(6, 1, bounds, numberOfPoints, coordinates);
+    }
+
     protected PolylineTo (int id, int version, Rectangle bounds, int numberOfPoints, Point[] points) {
         super(id, version, bounds, numberOfPoints, points);
     }
 
+    protected PolylineTo (int id, int version, Rectangle bounds, int numberOfPoints, int[] coordinates) {
+        super(id, version, bounds, numberOfPoints, coordinates);
+    }
+
     public EMFTag read(int tagID, EMFInputStream emf, int len)
             throws IOException {
 
         Rectangle r = emf.readRECTL();
         int n = emf.readDWORD();
-        return new PolylineTo(r, n, emf.readPOINTL(n));
+        return new PolylineTo(r, n, emf.readPOINTLArray(n));
     }
 
     /**
@@ -45,16 +53,16 @@ public class PolylineTo extends AbstractPolygon {
      * @param renderer EMFRenderer storing the drawing session data
      */
     public void render(EMFRenderer renderer) {
-        Point[] points = getPoints();
+        int[] coordinates = getCoordinates();
         int numberOfPoints = getNumberOfPoints();
         GeneralPath currentFigure = renderer.getFigure();
 
-        if (points != null) {
-            for (int point = 0; point < numberOfPoints; point ++) {
+        if (coordinates != null) {
+            for (int point = 0; point < 2 * numberOfPoints; point += 2) {
                 // add a point to gp
                 currentFigure.lineTo(
-                    (float) points[point].getX(),
-                    (float) points[point].getY());
+                    (float) coordinates[point],
+                    (float) coordinates[point + 1]);
             }
         }
       /*  AffineTransform at = new AffineTransform ();	
@@ -18,24 +18,28 @@ import org.freehep.graphicsio.emf.EMFTag;
 public class PolylineTo16 extends PolylineTo {
 
     public PolylineTo16() {
-        super(89, 1, null, 0, null);
+        super(89, 1, null, 0, (int[]) null);
     }
 
     public PolylineTo16(Rectangle bounds, int numberOfPoints, Point[] points) {
         super(89, 1, bounds, numberOfPoints, points);
     }
 
+    public PolylineTo16(Rectangle bounds, int numberOfPoints, int[] coordinates) {
+        super(89, 1, bounds, numberOfPoints, coordinates);
+    }
+
     public EMFTag read(int tagID, EMFInputStream emf, int len)
             throws IOException {
 
         Rectangle r = emf.readRECTL();
         int n = emf.readDWORD();
-        return new PolylineTo16(r, n, emf.readPOINTS(n));
+        return new PolylineTo16(r, n, emf.readPOINTSArray(n));
     }
 
     public void write(int tagID, EMFOutputStream emf) throws IOException {
         emf.writeRECTL(getBounds());
         emf.writeDWORD(getNumberOfPoints());
-        emf.writePOINTS(getNumberOfPoints(), getPoints());
+        emf.writePOINTS(getNumberOfPoints(), getCoordinates());
     }
 }
@@ -63,4 +63,11 @@ public class SelectObject extends EMFTag {
             logger.warning("gdi object with index " + index + " not found");
         }
     }
+
+    /**
+     * @return index of the object in the handle table
+     */
+    public int getIndex() {
+        return index;
+    }
 }
@@ -9,11 +9,11 @@ import java.io.IOException;
 
 import org.freehep.graphicsio.ImageGraphics2D;
 import org.freehep.graphicsio.ImageConstants;
+import org.freehep.graphicsio.emf.EMFBitmap;
 import org.freehep.graphicsio.emf.EMFConstants;
 import org.freehep.graphicsio.emf.EMFInputStream;
 import org.freehep.graphicsio.emf.EMFOutputStream;
 import org.freehep.graphicsio.emf.EMFTag;
-import org.freehep.graphicsio.emf.EMFImageLoader;
 import org.freehep.graphicsio.emf.EMFRenderer;
 import org.freehep.util.io.NoCloseOutputStream;
 
@@ -45,6 +45,11 @@ public class StretchDIBits extends EMFTag implements EMFConstants {
 
 	private BufferedImage image;
 
+	/**
+	 * undecoded image data of a read record
+	 */
+	private EMFBitmap bitmap;
+
 	public StretchDIBits() {
 		super(81, 1);
 	}
@@ -110,13 +115,17 @@ public class StretchDIBits extends EMFTag implements EMFConstants {
 		tag.bmi = new BitmapInfo(emf);
 		bytesread = pinit - emf.getLength();
 
-		tag.image = EMFImageLoader.readImage(tag.bmi.getHeader(), tag.width,
+		// decoded on demand by render()
+		tag.bitmap = new EMFBitmap(tag.bmi.getHeader(), tag.width,
 				tag.height, emf, len - 72 - BitmapInfoHeader.size, blend);
 
 		return tag;
 	}
 
 	public void write(int tagID, EMFOutputStream emf) throws IOException {
+		// a read record is decoded on demand
+		BufferedImage image = getImage();
+
 		emf.writeRECTL(bounds);
 		emf.writeLONG(x);
 		emf.writeLONG(y);
@@ -172,6 +181,31 @@ public class StretchDIBits extends EMFTag implements EMFConstants {
 				+ bmi.toString();
 	}
 
+	/**
+	 * @return bounds of the record in device units
+	 */
+	public Rectangle getBounds() {
+		return bounds;
+	}
+
+	/**
+	 * @return the image of the record, a read bitmap is decoded on
+	 *         first use
+	 */
+	public BufferedImage getImage() {
+		if (image == null && bitmap != null) {
+			return bitmap.getImage();
+		}
+		return image;
+	}
+
+	/**
+	 * @return undecoded bitmap of a read record or null
+	 */
+	public EMFBitmap getBitmap() {
+		return bitmap;
+	}
+
 	/**
 	 * displays the tag using the renderer
 	 *
@@ -190,6 +224,7 @@ public class StretchDIBits extends EMFTag implements EMFConstants {
 		// than the source rectangle, this function compresses the rows and
 		// columns by using
 		// the specified raster operation.
+		BufferedImage image = getImage();
 		if (image != null) {
 			renderer.drawImage(image, x, y, widthSrc, heightSrc);
 		}
@@ -2,8 +2,15 @@
 package org.freehep.graphicsio.pdf;
 
 import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
+import java.awt.image.SinglePixelPackedSampleModel;
 import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -13,6 +20,11 @@ import java.util.Map;
 /**
  * Delay <tt>Image</tt> objects for writing XObjects to the pdf file when the
  * pageStream is complete. Caches identical images to only write them once.
+ * Buffered images are identified by a digest of their pixels, so an image
+ * decoded several times, e.g. by every StretchDIBits record of an EMF, is
+ * written as a single XObject for all pages. The digest is only computed
+ * for images that have the size, alpha, background and encoding of another
+ * image.
  * 
  * @author Simon Fischer
  * @author Mark Donszelmann
@@ -33,6 +45,11 @@ public class PDFImageDelayQueue {
 
         private boolean written;
 
+        /**
+         * digest of the pixels of a buffered image, null until needed
+         */
+        private byte[] digest;
+
         private Entry(RenderedImage image, Color bkg, String writeAs) {
             this.image = image;
             this.bkg = bkg;
@@ -47,8 +64,77 @@ public class PDFImageDelayQueue {
         }
     }
 
+    /**
+     * Size, alpha, background and encoding of a buffered image and
+     * optionally the digest of its pixels
+     */
+    private static class Key {
+        private int width, height;
+
+        private boolean alpha;
+
+        private Color bkg;
+
+        private String writeAs;
+
+        private byte[] digest;
+
+        private int hashCode;
+
+        private Key(BufferedImage image, Color bkg, String writeAs) {
+            this.width = image.getWidth();
+            this.height = image.getHeight();
+            // images with alpha get an SMask unless bkg is set
+            this.alpha = image.getColorModel().hasAlpha();
+            this.bkg = bkg;
+            this.writeAs = writeAs;
+            this.hashCode = (width * 31 + height) * 2 + (alpha ? 1 : 0);
+        }
+
+        private Key(Key key, byte[] digest) {
+            this.width = key.width;
+            this.height = key.height;
+            this.alpha = key.alpha;
+            this.bkg = key.bkg;
+            this.writeAs = key.writeAs;
+            this.digest = digest;
+            this.hashCode = key.hashCode * 31 + Arrays.hashCode(digest);
+        }
+
+        public int hashCode() {
+            return hashCode;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return width == key.width && height == key.height
+                    && alpha == key.alpha
+                    && Arrays.equals(digest, key.digest)
+                    && (bkg == null ? key.bkg == null : bkg.equals(key.bkg))
+                    && (writeAs == null ? key.writeAs == null : writeAs
+                            .equals(key.writeAs));
+        }
+    }
+
     private Map/* <RenderedImage,Entry> */<RenderedImage, Entry>imageMap;
 
+    /**
+     * first buffered image of each size, alpha, background and encoding,
+     * its pixels are only digested when a second one is delayed
+     */
+    private Map/* <Key,Entry> */<Key, Entry>firstMap;
+
+    private Map/* <Key,Entry> */<Key, Entry>digestMap;
+
+    private MessageDigest messageDigest;
+
+    private byte[] row = new byte[4];
+
+    private int reusedCount;
+
     private List/* <entry> */<Entry>imageList;
 
     private PDFWriter pdf;
@@ -56,20 +142,134 @@ public class PDFImageDelayQueue {
     public PDFImageDelayQueue(PDFWriter pdf) {
         this.pdf = pdf;
         this.imageMap = new HashMap<RenderedImage, Entry>();
+        this.firstMap = new HashMap<Key, Entry>();
+        this.digestMap = new HashMap<Key, Entry>();
         this.imageList = new LinkedList<Entry>();
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform has to support SHA-256, images are then
+            // only shared by identity
+            messageDigest = null;
+        }
     }
 
     public PDFName delayImage(RenderedImage image, Color bkg, String writeAs) {
         Entry entry = imageMap.get(image);
         if (entry == null) {
-            entry = new Entry(image, bkg, writeAs);
+            if ((image instanceof BufferedImage) && (messageDigest != null)) {
+                entry = delayBufferedImage((BufferedImage) image, bkg, writeAs);
+            } else {
+                entry = new Entry(image, bkg, writeAs);
+                imageList.add(entry);
+            }
             imageMap.put(image, entry);
-            imageList.add(entry);
         }
 
         return pdf.name(entry.name);
     }
 
+    /**
+     * @return entry of an equal image delayed before or a new entry
+     */
+    private Entry delayBufferedImage(BufferedImage image, Color bkg,
+            String writeAs) {
+        Key key = new Key(image, bkg, writeAs);
+        Entry first = firstMap.get(key);
+        if (first == null) {
+            // no other image could be equal, no need for a digest yet
+            Entry entry = new Entry(image, bkg, writeAs);
+            imageList.add(entry);
+            firstMap.put(key, entry);
+            return entry;
+        }
+
+        if (first.digest == null) {
+            first.digest = digest((BufferedImage) first.image);
+            digestMap.put(new Key(key, first.digest), first);
+        }
+        Key digestKey = new Key(key, digest(image));
+        Entry entry = digestMap.get(digestKey);
+        if (entry == null) {
+            entry = new Entry(image, bkg, writeAs);
+            entry.digest = digestKey.digest;
+            imageList.add(entry);
+            digestMap.put(digestKey, entry);
+        } else {
+            reusedCount++;
+        }
+        return entry;
+    }
+
+    /**
+     * @return number of images which were equal to an image delayed before
+     *         and are written only once
+     */
+    public int getReusedCount() {
+        return reusedCount;
+    }
+
+    /**
+     * @return SHA-256 digest of the size and the ARGB pixels of image
+     */
+    private byte[] digest(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (row.length < 4 * width) {
+            row = new byte[4 * width];
+        }
+
+        messageDigest.reset();
+        updateInt(width);
+        updateInt(height);
+
+        Raster raster = image.getRaster();
+        if ((image.getType() == BufferedImage.TYPE_INT_ARGB
+                || image.getType() == BufferedImage.TYPE_INT_RGB)
+                && raster.getDataBuffer() instanceof DataBufferInt
+                && raster.getSampleModel() instanceof SinglePixelPackedSampleModel) {
+            // packed pixels are read without conversion, the type is part of
+            // the digest since the unused alpha bits of RGB are undefined
+            updateInt(image.getType());
+            DataBufferInt dataBuffer = (DataBufferInt) raster.getDataBuffer();
+            int[] data = dataBuffer.getData();
+            int stride = ((SinglePixelPackedSampleModel) raster
+                    .getSampleModel()).getScanlineStride();
+            int offset = dataBuffer.getOffset()
+                    - raster.getSampleModelTranslateY() * stride
+                    - raster.getSampleModelTranslateX();
+            for (int y = 0; y < height; y++) {
+                updateRow(data, offset + y * stride, width);
+            }
+        } else {
+            int[] pixels = new int[width];
+            for (int y = 0; y < height; y++) {
+                image.getRGB(0, y, width, 1, pixels, 0, width);
+                updateRow(pixels, 0, width);
+            }
+        }
+        return messageDigest.digest();
+    }
+
+    private void updateInt(int value) {
+        row[0] = (byte) (value >>> 24);
+        row[1] = (byte) (value >>> 16);
+        row[2] = (byte) (value >>> 8);
+        row[3] = (byte) value;
+        messageDigest.update(row, 0, 4);
+    }
+
+    private void updateRow(int[] pixels, int offset, int width) {
+        for (int i = 0, j = 0; i < width; i++) {
+            int pixel = pixels[offset + i];
+            row[j++] = (byte) (pixel >>> 24);
+            row[j++] = (byte) (pixel >>> 16);
+            row[j++] = (byte) (pixel >>> 8);
+            row[j++] = (byte) pixel;
+        }
+        messageDigest.update(row, 0, 4 * width);
+    }
+
     /** Creates a stream for every delayed image that is not written yet. */
     public void processAll() throws IOException {
         for (Iterator<Entry> i = imageList.iterator(); i.hasNext();) {
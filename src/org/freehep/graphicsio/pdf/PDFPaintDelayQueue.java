@@ -8,16 +8,19 @@ import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 
 /**
  * Delay <tt>Paint</tt> objects (gradient/texture, not color) for writing
  * pattern/shading/function dictionaries to the pdf file when the pageStream is
- * complete.<br>
- * TODO: - reuse pattern dictionaries if possible - cyclic function not working
- * yet (ps calculation)
+ * complete. Equal gradient and texture paints with the same transformation
+ * share one pattern, also across pages.<br>
+ * TODO: - cyclic function not working yet (ps calculation)
  * 
  * @author Simon Fischer
  * @version $Id: freehep-graphicsio-pdf/src/main/java/org/freehep/graphicsio/pdf/PDFPaintDelayQueue.java 2fa79ac3a135 2007/01/09 18:18:57 duns $
@@ -46,8 +49,31 @@ public class PDFPaintDelayQueue {
         }
     }
 
+    /**
+     * Identifies a pattern by the values of its paint, the transformations
+     * and the encoding. Texture images are compared by identity, as
+     * BufferedImage does not override equals.
+     */
+    private static class Key {
+        private Object[] values;
+
+        private Key(Object[] values) {
+            this.values = values;
+        }
+
+        public int hashCode() {
+            return Arrays.hashCode(values);
+        }
+
+        public boolean equals(Object o) {
+            return (o instanceof Key) && Arrays.equals(values, ((Key) o).values);
+        }
+    }
+
     private List<Entry> paintList;
 
+    private Map<Key, Entry> paintMap;
+
     private PDFWriter pdf;
 
 //    private PDFImageDelayQueue imageDelayQueue;
@@ -58,6 +84,7 @@ public class PDFPaintDelayQueue {
     public PDFPaintDelayQueue(PDFWriter pdf, PDFImageDelayQueue imageDelayQueue) {
         this.pdf = pdf;
         this.paintList = new LinkedList<Entry>();
+        this.paintMap = new HashMap<Key, Entry>();
 //        this.imageDelayQueue = imageDelayQueue;
         this.pageMatrix = new AffineTransform();
     }
@@ -74,11 +101,41 @@ public class PDFPaintDelayQueue {
 
     public PDFName delayPaint(Paint paint, AffineTransform transform,
             String writeAs) {
-        Entry e = new Entry(paint, transform, writeAs);
-        paintList.add(e);
+        Key key = createKey(paint, transform, writeAs);
+        Entry e = (key != null) ? paintMap.get(key) : null;
+        if (e == null) {
+            e = new Entry(paint, transform, writeAs);
+            paintList.add(e);
+            if (key != null) {
+                paintMap.put(key, e);
+            }
+        }
         return pdf.name(e.name);
     }
 
+    /**
+     * The page matrix is part of the key since the pattern matrix is
+     * written relative to the page it is first used on.
+     *
+     * @return key of the pattern or null if the paint cannot be shared
+     */
+    private Key createKey(Paint paint, AffineTransform transform,
+            String writeAs) {
+        if (paint instanceof GradientPaint) {
+            GradientPaint gp = (GradientPaint) paint;
+            return new Key(new Object[] { GradientPaint.class,
+                    gp.getPoint1(), gp.getPoint2(), gp.getColor1(),
+                    gp.getColor2(), Boolean.valueOf(gp.isCyclic()),
+                    new AffineTransform(transform), pageMatrix, writeAs });
+        } else if (paint instanceof TexturePaint) {
+            TexturePaint tp = (TexturePaint) paint;
+            return new Key(new Object[] { TexturePaint.class,
+                    tp.getImage(), tp.getAnchorRect(),
+                    new AffineTransform(transform), pageMatrix, writeAs });
+        }
+        return null;
+    }
+
     /** Creates a stream for every delayed image. */
     public void processAll() throws IOException {
         ListIterator<Entry> i = paintList.listIterator();
@@ -0,0 +1,210 @@
+// Copyright 2007, FreeHEP.
+package org.freehep.graphicsio.png;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a PNG image row band by row band, so the whole image never has
+ * to be in memory. The image is written as 8 bit RGB or RGBA, each row
+ * with the sub filter. Compressed data is written in IDAT chunks of
+ * {@link #CHUNK_SIZE} bytes as soon as a chunk is full.
+ *
+ * Usage: create the writer, call {@link #writeRows} until all rows are
+ * written from top to bottom, then {@link #finish}.
+ *
+ * @version $Id$
+ */
+public class PNGBandWriter {
+
+    /**
+     * maximum size of an IDAT chunk
+     */
+    public static final int CHUNK_SIZE = 0x10000;
+
+    private static final byte[] SIGNATURE = {
+        (byte) 137, 80, 78, 71, 13, 10, 26, 10
+    };
+
+    private OutputStream out;
+
+    private int width, height;
+
+    private boolean encodeAlpha;
+
+    private int bytesPerPixel;
+
+    private int rowsWritten;
+
+    private Deflater deflater;
+
+    private CRC32 crc = new CRC32();
+
+    /**
+     * filter byte and filtered samples of one row
+     */
+    private byte[] row;
+
+    /**
+     * ARGB pixels of one row
+     */
+    private int[] pixels;
+
+    /**
+     * compressed data of the next IDAT chunk
+     */
+    private byte[] chunk = new byte[CHUNK_SIZE];
+
+    private int chunkLength;
+
+    /**
+     * Writes the signature and header of the image.
+     *
+     * @param out stream to write to, not closed
+     * @param width width of the image in pixels
+     * @param height height of the image in pixels
+     * @param encodeAlpha if true the alpha channel is written
+     * @param compressionLevel level of the Deflater, 0 to 9
+     * @throws IOException if writing fails
+     */
+    public PNGBandWriter(OutputStream out, int width, int height,
+            boolean encodeAlpha, int compressionLevel) throws IOException {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("empty image: " + width + "x" + height);
+        }
+        this.out = out;
+        this.width = width;
+        this.height = height;
+        this.encodeAlpha = encodeAlpha;
+        this.bytesPerPixel = encodeAlpha ? 4 : 3;
+        this.deflater = new Deflater(compressionLevel);
+        this.row = new byte[1 + width * bytesPerPixel];
+        this.pixels = new int[width];
+
+        out.write(SIGNATURE);
+        byte[] header = new byte[13];
+        setInt(header, 0, width);
+        setInt(header, 4, height);
+        header[8] = 8; // bit depth
+        header[9] = (byte) (encodeAlpha ? 6 : 2); // RGBA or RGB
+        header[10] = 0; // deflate
+        header[11] = 0; // adaptive filtering
+        header[12] = 0; // no interlace
+        writeChunk("IHDR", header, header.length);
+    }
+
+    /**
+     * @return number of rows written so far
+     */
+    public int getRowsWritten() {
+        return rowsWritten;
+    }
+
+    /**
+     * Writes the next rows of the image.
+     *
+     * @param band image at least as wide as the PNG, its rows 0 to
+     *        rows - 1 are written
+     * @param rows number of rows to write
+     * @throws IOException if writing fails
+     */
+    public void writeRows(BufferedImage band, int rows) throws IOException {
+        if (rowsWritten + rows > height) {
+            throw new IllegalStateException("more than " + height + " rows");
+        }
+        // the pixels of int images are taken without color conversion
+        boolean direct = band.getType() == BufferedImage.TYPE_INT_RGB
+            || band.getType() == BufferedImage.TYPE_INT_ARGB;
+        for (int y = 0; y < rows; y++) {
+            if (direct) {
+                band.getRaster().getDataElements(0, y, width, 1, pixels);
+            } else {
+                band.getRGB(0, y, width, 1, pixels, 0, width);
+            }
+            filterRow();
+            deflater.setInput(row);
+            while (!deflater.needsInput()) {
+                deflate();
+            }
+        }
+        rowsWritten += rows;
+    }
+
+    /**
+     * Writes the remaining compressed data and the end of the image.
+     *
+     * @throws IOException if writing fails or not all rows were written
+     */
+    public void finish() throws IOException {
+        if (rowsWritten != height) {
+            throw new IOException(rowsWritten + " of " + height + " rows written");
+        }
+        deflater.finish();
+        while (!deflater.finished()) {
+            deflate();
+        }
+        if (chunkLength > 0) {
+            writeChunk("IDAT", chunk, chunkLength);
+        }
+        deflater.end();
+        writeChunk("IEND", chunk, 0);
+        out.flush();
+    }
+
+    /**
+     * converts pixels to row using the sub filter
+     */
+    private void filterRow() {
+        row[0] = PNGEncoder.FILTER_SUB;
+        int previous = 0;
+        for (int x = 0, i = 1; x < width; x++) {
+            int pixel = pixels[x];
+            row[i++] = (byte) ((pixel >> 16) - (previous >> 16));
+            row[i++] = (byte) ((pixel >> 8) - (previous >> 8));
+            row[i++] = (byte) (pixel - previous);
+            if (encodeAlpha) {
+                row[i++] = (byte) ((pixel >>> 24) - (previous >>> 24));
+            }
+            previous = pixel;
+        }
+    }
+
+    /**
+     * compresses into chunk and writes it when full
+     */
+    private void deflate() throws IOException {
+        chunkLength += deflater.deflate(chunk, chunkLength, chunk.length - chunkLength);
+        if (chunkLength == chunk.length) {
+            writeChunk("IDAT", chunk, chunkLength);
+            chunkLength = 0;
+        }
+    }
+
+    private void writeChunk(String type, byte[] data, int length)
+            throws IOException {
+        byte[] header = new byte[8];
+        setInt(header, 0, length);
+        for (int i = 0; i < 4; i++) {
+            header[4 + i] = (byte) type.charAt(i);
+        }
+        crc.reset();
+        crc.update(header, 4, 4);
+        crc.update(data, 0, length);
+
+        out.write(header);
+        out.write(data, 0, length);
+        byte[] trailer = new byte[4];
+        setInt(trailer, 0, (int) crc.getValue());
+        out.write(trailer);
+    }
+
+    private static void setInt(byte[] b, int offset, int value) {
+        b[offset] = (byte) (value >>> 24);
+        b[offset + 1] = (byte) (value >>> 16);
+        b[offset + 2] = (byte) (value >>> 8);
+        b[offset + 3] = (byte) value;
+    }
+}
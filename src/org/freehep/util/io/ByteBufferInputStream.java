@@ -0,0 +1,61 @@
+// Copyright 2007, FreeHEP.
+package org.freehep.util.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * The ByteBufferInputStream reads from position to limit of a ByteBuffer.
+ * The position of the buffer is moved while reading, use
+ * ByteBuffer.duplicate() to keep the original position.
+ * 
+ * @version $Id$
+ */
+public class ByteBufferInputStream extends InputStream {
+
+	private ByteBuffer buffer;
+
+	/**
+	 * Creates a ByteBuffer Input Stream.
+	 * 
+	 * @param buffer
+	 *            buffer to read from
+	 */
+	public ByteBufferInputStream(ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!buffer.hasRemaining()) {
+			return -1;
+		}
+		return buffer.get() & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (!buffer.hasRemaining()) {
+			return -1;
+		}
+		len = Math.min(len, buffer.remaining());
+		buffer.get(b, off, len);
+		return len;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		int skip = (int) Math.max(0, Math.min(n, buffer.remaining()));
+		buffer.position(buffer.position() + skip);
+		return skip;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return buffer.remaining();
+	}
+}
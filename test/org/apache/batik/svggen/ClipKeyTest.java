@@ -0,0 +1,104 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.svggen;
+
+import java.awt.Rectangle;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Rectangle2D;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks that ClipKey compares clips by value and keys axis aligned
+ * rectangles on their bounds, however they are given.
+ *
+ * @version $Id$
+ */
+public class ClipKeyTest extends TestCase {
+
+    private static GeneralPath path(double[] xy, boolean returnToStart) {
+        GeneralPath path = new GeneralPath();
+        path.moveTo((float)xy[0], (float)xy[1]);
+        for (int i = 2; i < xy.length; i += 2) {
+            path.lineTo((float)xy[i], (float)xy[i + 1]);
+        }
+        if (returnToStart) {
+            path.lineTo((float)xy[0], (float)xy[1]);
+        }
+        path.closePath();
+        return path;
+    }
+
+    private static void assertKeysEqual(ClipKey a, ClipKey b) {
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+    }
+
+    public void testEqualPaths() {
+        Ellipse2D ellipse = new Ellipse2D.Double(1, 2, 30, 40);
+        assertKeysEqual(new ClipKey(ellipse),
+                        new ClipKey(new Ellipse2D.Double(1, 2, 30, 40)));
+        assertFalse(new ClipKey(ellipse).equals(
+            new ClipKey(new Ellipse2D.Double(1, 2, 30, 41))));
+    }
+
+    public void testRectangleShapes() {
+        ClipKey key = new ClipKey(new Rectangle(10, 20, 30, 40));
+        assertKeysEqual(key, new ClipKey(new Rectangle2D.Double(10, 20, 30, 40)));
+        assertKeysEqual(key, new ClipKey(new Rectangle2D.Float(10, 20, 30, 40)));
+    }
+
+    public void testRectanglePaths() {
+        ClipKey key = new ClipKey(new Rectangle2D.Double(10, 20, 30, 40));
+        // counter clockwise, three lines and the close
+        assertKeysEqual(key, new ClipKey(path(new double[] {
+            10, 20, 10, 60, 40, 60, 40, 20 }, false)));
+        // clockwise from the opposite corner, returning to the start
+        assertKeysEqual(key, new ClipKey(path(new double[] {
+            40, 60, 10, 60, 10, 20, 40, 20 }, true)));
+        // vertical edge first
+        assertKeysEqual(key, new ClipKey(path(new double[] {
+            40, 20, 40, 60, 10, 60, 10, 20 }, false)));
+    }
+
+    public void testNoRectangle() {
+        ClipKey key = new ClipKey(new Rectangle2D.Double(0, 0, 10, 10));
+        // parallelogram with the same corner points in its bounds
+        assertFalse(key.equals(new ClipKey(path(new double[] {
+            0, 0, 5, 10, 10, 10, 5, 0 }, false))));
+        // a fourth line that does not return to the start
+        assertFalse(key.equals(new ClipKey(path(new double[] {
+            0, 0, 10, 0, 10, 10, 0, 10, 0, 5 }, false))));
+        // open figure
+        GeneralPath open = new GeneralPath();
+        open.moveTo(0, 0);
+        open.lineTo(10, 0);
+        open.lineTo(10, 10);
+        open.lineTo(0, 10);
+        assertFalse(key.equals(new ClipKey(open)));
+    }
+
+    public void testDoublePrecision() {
+        double x = 1000;
+        double y = x + Math.ulp((float)x) / 4;
+        assertFalse(new ClipKey(new Rectangle2D.Double(x, 0, 10, 10)).equals(
+            new ClipKey(new Rectangle2D.Double(y, 0, 10, 10))));
+    }
+}
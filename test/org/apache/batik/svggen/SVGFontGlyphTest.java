@@ -0,0 +1,86 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.svggen;
+
+import java.awt.Color;
+import java.awt.Font;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import junit.framework.TestCase;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Checks that embedded SVG fonts get a glyph for every character drawn,
+ * also when the graphic context conversion of an element is reused
+ * because the graphic context did not change.
+ *
+ * @version $Id$
+ */
+public class SVGFontGlyphTest extends TestCase {
+
+    private static final String[] STRINGS = { "AB", "CD", "EF", "GH" };
+
+    private Font font = new Font("Dialog", Font.PLAIN, 12);
+
+    private SVGGraphics2D createGraphics() throws Exception {
+        Document document = DocumentBuilderFactory.newInstance()
+            .newDocumentBuilder().getDOMImplementation()
+            .createDocument(SVGSyntax.SVG_NAMESPACE_URI, SVGSyntax.SVG_SVG_TAG, null);
+        SVGGeneratorContext ctx = SVGGeneratorContext.createDefault(document);
+        ctx.setEmbeddedFontsOn(true);
+        SVGGraphics2D g = new SVGGraphics2D(ctx, false);
+        g.setFont(font);
+        g.setPaint(Color.black);
+        return g;
+    }
+
+    private static String getGlyphs(SVGGraphics2D g) {
+        NodeList glyphs = g.getRoot().getElementsByTagNameNS(
+            SVGSyntax.SVG_NAMESPACE_URI, SVGSyntax.SVG_GLYPH_TAG);
+        StringBuffer unicodes = new StringBuffer();
+        for (int i = 0; i < glyphs.getLength(); i++) {
+            unicodes.append(((Element) glyphs.item(i))
+                .getAttributeNS(null, SVGSyntax.SVG_UNICODE_ATTRIBUTE));
+        }
+        return unicodes.toString();
+    }
+
+    public void testStringsInOneFont() throws Exception {
+        SVGGraphics2D g = createGraphics();
+        for (int i = 0; i < STRINGS.length; i++) {
+            g.drawString(STRINGS[i], 10, 20 * (i + 1));
+        }
+        assertEquals("ABCDEFGH", getGlyphs(g));
+    }
+
+    public void testStringsWithEqualFontAndPaint() throws Exception {
+        SVGGraphics2D g = createGraphics();
+        for (int i = 0; i < STRINGS.length; i++) {
+            // equal values do not modify the graphic context
+            g.setFont(new Font("Dialog", Font.PLAIN, 12));
+            g.setPaint(new Color(0, 0, 0));
+            g.drawString(STRINGS[i], 10, 20 * (i + 1));
+        }
+        assertEquals("ABCDEFGH", getGlyphs(g));
+    }
+}
@@ -0,0 +1,66 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.svggen;
+
+import java.awt.Font;
+import java.util.Iterator;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import junit.framework.TestCase;
+
+import org.apache.batik.ext.awt.g2d.GraphicContext;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Checks that SVGGraphicContextConverter runs the font converter again
+ * for an unmodified GraphicContext when new characters were drawn.
+ *
+ * @version $Id$
+ */
+public class SVGGraphicContextConverterTest extends TestCase {
+
+    public void testNewCharactersOfUnmodifiedFont() throws Exception {
+        Document document = DocumentBuilderFactory.newInstance()
+            .newDocumentBuilder().getDOMImplementation()
+            .createDocument(SVGSyntax.SVG_NAMESPACE_URI, SVGSyntax.SVG_SVG_TAG, null);
+        SVGGeneratorContext ctx = SVGGeneratorContext.createDefault(document);
+        ctx.setEmbeddedFontsOn(true);
+        SVGGraphicContextConverter converter = new SVGGraphicContextConverter(ctx);
+        SVGFont fontConverter = converter.getFontConverter();
+
+        Font font = new Font("Dialog", Font.PLAIN, 12);
+        GraphicContext gc = new GraphicContext();
+        gc.setFont(font);
+
+        fontConverter.recordFontUsage("AB", font);
+        converter.toSVG(gc);
+        fontConverter.recordFontUsage("CD", font);
+        converter.toSVG(gc);
+
+        int glyphs = 0;
+        for (Iterator i = fontConverter.getDefinitionSet().iterator(); i.hasNext();) {
+            Element fontDef = (Element) i.next();
+            glyphs += fontDef.getElementsByTagNameNS(SVGSyntax.SVG_NAMESPACE_URI,
+                SVGSyntax.SVG_GLYPH_TAG).getLength();
+        }
+        assertEquals(new Integer(4), new Integer(glyphs));
+    }
+}
@@ -0,0 +1,174 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.svggen;
+
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.PathIterator;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import junit.framework.TestCase;
+
+import org.w3c.dom.Document;
+
+/**
+ * Checks the segments written by SVGPathSimplifier for collinear
+ * vertices, snapping to the grid and runs of lines after a close.
+ *
+ * @version $Id$
+ */
+public class SVGPathSimplifierTest extends TestCase {
+
+    private SVGGeneratorContext createContext() throws Exception {
+        Document document = DocumentBuilderFactory.newInstance()
+            .newDocumentBuilder().getDOMImplementation()
+            .createDocument(SVGSyntax.SVG_NAMESPACE_URI, SVGSyntax.SVG_SVG_TAG, null);
+        return SVGGeneratorContext.createDefault(document);
+    }
+
+    /**
+     * @return segments of shape as "M x y", "L x y", "C ..." and "Z",
+     *         separated by blanks
+     */
+    private static String toString(Shape shape) {
+        StringBuffer sb = new StringBuffer();
+        float[] seg = new float[6];
+        for (PathIterator pi = shape.getPathIterator(null); !pi.isDone(); pi.next()) {
+            int n = 0;
+            switch (pi.currentSegment(seg)) {
+            case PathIterator.SEG_MOVETO:
+                sb.append(" M");
+                n = 1;
+                break;
+            case PathIterator.SEG_LINETO:
+                sb.append(" L");
+                n = 1;
+                break;
+            case PathIterator.SEG_QUADTO:
+                sb.append(" Q");
+                n = 2;
+                break;
+            case PathIterator.SEG_CUBICTO:
+                sb.append(" C");
+                n = 3;
+                break;
+            case PathIterator.SEG_CLOSE:
+                sb.append(" Z");
+                break;
+            }
+            for (int i = 0; i < 2 * n; i++) {
+                sb.append(' ');
+                sb.append(Math.round(seg[i]));
+            }
+        }
+        return sb.substring(1);
+    }
+
+    public void testCollinear() throws Exception {
+        SVGGeneratorContext ctx = createContext();
+        ctx.setPathTolerance(0.5);
+        GeneralPath path = new GeneralPath();
+        path.moveTo(0, 0);
+        path.lineTo(5, 0);
+        path.lineTo(10, 0);
+        path.lineTo(10, 5);
+        path.lineTo(10, 10);
+        path.lineTo(5, 10.2f);
+        path.lineTo(0, 10);
+        path.closePath();
+        Shape simplified = new SVGPathSimplifier(ctx).simplify(
+            path, new AffineTransform());
+        assertEquals("M 0 0 L 10 0 L 10 10 L 0 10 Z", toString(simplified));
+    }
+
+    public void testReversalKept() throws Exception {
+        SVGGeneratorContext ctx = createContext();
+        ctx.setPathTolerance(0.5);
+        GeneralPath path = new GeneralPath();
+        path.moveTo(0, 0);
+        path.lineTo(10, 0);
+        path.lineTo(5, 0);
+        Shape simplified = new SVGPathSimplifier(ctx).simplify(
+            path, new AffineTransform());
+        assertEquals("M 0 0 L 10 0 L 5 0", toString(simplified));
+    }
+
+    public void testGridInDeviceSpace() throws Exception {
+        SVGGeneratorContext ctx = createContext();
+        ctx.setPathGrid(1);
+        GeneralPath path = new GeneralPath();
+        path.moveTo(0.1f, 0.2f);
+        path.lineTo(4.9f, 0.3f);
+        path.curveTo(5.1f, 2.2f, 6.8f, 3.9f, 7.2f, 8.1f);
+        // device space is scaled by 10, user space coordinates snap to 0.1
+        Shape simplified = new SVGPathSimplifier(ctx).simplify(
+            path, AffineTransform.getScaleInstance(10, 10));
+        float[] seg = new float[6];
+        PathIterator pi = simplified.getPathIterator(null);
+        pi.currentSegment(seg);
+        assertEquals(0.1, seg[0], 1e-6);
+        assertEquals(0.2, seg[1], 1e-6);
+        pi.next();
+        pi.next();
+        assertEquals(PathIterator.SEG_CUBICTO, pi.currentSegment(seg));
+        assertEquals(5.1, seg[0], 1e-6);
+        assertEquals(8.1, seg[5], 1e-6);
+
+        // without scale the points snap to whole numbers
+        simplified = new SVGPathSimplifier(ctx).simplify(
+            path, new AffineTransform());
+        assertEquals("M 0 0 L 5 0 C 5 2 7 4 7 8", toString(simplified));
+    }
+
+    public void testLinesAfterClose() throws Exception {
+        SVGGeneratorContext ctx = createContext();
+        ctx.setPathTolerance(0.5);
+        GeneralPath path = new GeneralPath();
+        path.moveTo(0, 0);
+        path.lineTo(10, 0);
+        path.lineTo(10, 10);
+        path.closePath();
+        // continues from the start of the closed subpath
+        path.lineTo(0, 5);
+        path.lineTo(0, 10);
+        path.lineTo(0, 20);
+        path.moveTo(30, 30);
+        path.lineTo(31, 30);
+        path.lineTo(32, 30);
+        path.closePath();
+        Shape simplified = new SVGPathSimplifier(ctx).simplify(
+            path, new AffineTransform());
+        assertEquals("M 0 0 L 10 0 L 10 10 Z L 0 20 M 30 30 L 32 30 Z",
+                     toString(simplified));
+    }
+
+    public void testUnchangedShape() throws Exception {
+        SVGGeneratorContext ctx = createContext();
+        ctx.setPathTolerance(0.5);
+        GeneralPath path = new GeneralPath();
+        path.moveTo(0, 0);
+        path.lineTo(10, 0);
+        path.lineTo(10, 10);
+        path.closePath();
+        assertSame(path, new SVGPathSimplifier(ctx).simplify(
+            path, new AffineTransform()));
+    }
+}
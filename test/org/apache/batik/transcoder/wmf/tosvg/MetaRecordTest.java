@@ -0,0 +1,113 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+package org.apache.batik.transcoder.wmf.tosvg;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks that the records of a file share one MetaRecord.Parameters
+ * arena and keep their own values when they are filled in turns.
+ *
+ * @version $Id$
+ */
+public class MetaRecordTest extends TestCase {
+
+    private static void add(MetaRecord record, int first, int n) {
+        for (int i = 0; i < n; i++) {
+            record.addElement(first + i);
+        }
+    }
+
+    private static void assertValues(MetaRecord record, int first, int n) {
+        assertEquals(n, record.size());
+        for (int i = 0; i < n; i++) {
+            assertEquals(first + i, record.elementAt(i));
+        }
+    }
+
+    public void testSequentialRecords() {
+        MetaRecord.Parameters parameters = new MetaRecord.Parameters(4);
+        MetaRecord a = new MetaRecord(parameters);
+        MetaRecord b = new MetaRecord.StringRecord(parameters, "text");
+        MetaRecord c = new MetaRecord.ByteRecord(parameters, new byte[1]);
+        add(a, 100, 3);
+        add(b, 200, 5);
+        add(c, 300, 10);
+        assertValues(a, 100, 3);
+        assertValues(b, 200, 5);
+        assertValues(c, 300, 10);
+        // the values are appended without gaps, also when the arena grows
+        assertEquals(18, parameters.size);
+        assertTrue(parameters.values.length >= 18);
+    }
+
+    public void testInterleavedRecords() {
+        MetaRecord.Parameters parameters = new MetaRecord.Parameters(8);
+        MetaRecord a = new MetaRecord(parameters);
+        MetaRecord b = new MetaRecord(parameters);
+        add(a, 100, 2);
+        add(b, 200, 2);
+        add(a, 102, 2);
+        add(b, 202, 1);
+        assertValues(a, 100, 4);
+        assertValues(b, 200, 3);
+        // a and b were moved to the end once each
+        assertEquals(11, parameters.size);
+    }
+
+    public void testEmptyRecord() {
+        MetaRecord.Parameters parameters = new MetaRecord.Parameters(8);
+        MetaRecord empty = new MetaRecord(parameters);
+        MetaRecord a = new MetaRecord(parameters);
+        add(a, 100, 2);
+        assertEquals(0, empty.size());
+        assertEquals(2, parameters.size);
+    }
+
+    public void testOwnArena() {
+        MetaRecord a = new MetaRecord();
+        MetaRecord b = new MetaRecord.StringRecord("text");
+        add(a, 100, 20);
+        add(b, 200, 3);
+        assertValues(a, 100, 20);
+        assertValues(b, 200, 3);
+        assertEquals(new Integer(119), a.ElementAt(19));
+    }
+
+    public void testIndexOutOfBounds() {
+        MetaRecord.Parameters parameters = new MetaRecord.Parameters(8);
+        MetaRecord a = new MetaRecord(parameters);
+        MetaRecord b = new MetaRecord(parameters);
+        add(a, 100, 2);
+        add(b, 200, 2);
+        // the value after the last one of a belongs to b
+        try {
+            a.elementAt(2);
+            fail("read a value of another record");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+        try {
+            b.elementAt(-1);
+            fail("read a value of another record");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+}
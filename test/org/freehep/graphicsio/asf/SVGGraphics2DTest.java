@@ -0,0 +1,136 @@
+/*
+
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+
+ */
+
+package org.freehep.graphicsio.asf;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Shape;
+import java.awt.geom.GeneralPath;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import junit.framework.TestCase;
+
+import org.apache.batik.svggen.SVGGeneratorContext;
+import org.apache.batik.svggen.SVGSyntax;
+import org.w3c.dom.Document;
+
+/**
+ * Checks which filled and drawn shapes SVGGraphics2D merges into one
+ * path element, in particular when the style changes between shapes.
+ *
+ * @version $Id$
+ */
+public class SVGGraphics2DTest extends TestCase {
+
+    private SVGGraphics2D createGraphics(boolean mergeShapes) throws Exception {
+        Document document = DocumentBuilderFactory.newInstance()
+            .newDocumentBuilder().getDOMImplementation()
+            .createDocument(SVGSyntax.SVG_NAMESPACE_URI, SVGSyntax.SVG_SVG_TAG, null);
+        SVGGeneratorContext ctx = SVGGeneratorContext.createDefault(document);
+        ctx.setMergeShapes(mergeShapes);
+        SVGGraphics2D g = new SVGGraphics2D(ctx, false);
+        g.setPaint(Color.black);
+        return g;
+    }
+
+    /**
+     * @return triangle which is converted to a path element
+     */
+    private static Shape triangle(double x, double y) {
+        GeneralPath path = new GeneralPath();
+        path.moveTo((float)x, (float)y);
+        path.lineTo((float)x + 10, (float)y);
+        path.lineTo((float)x + 5, (float)y + 10);
+        path.closePath();
+        return path;
+    }
+
+    /**
+     * @return triangle i of a row of disjoint triangles
+     */
+    private static Shape triangle(int i) {
+        return triangle(20 * i, 0);
+    }
+
+    private static int getPaths(SVGGraphics2D g) {
+        return g.getRoot().getElementsByTagNameNS(
+            SVGSyntax.SVG_NAMESPACE_URI, SVGSyntax.SVG_PATH_TAG).getLength();
+    }
+
+    public void testMergeDisabled() throws Exception {
+        SVGGraphics2D g = createGraphics(false);
+        for (int i = 0; i < 4; i++) {
+            g.fill(triangle(i));
+        }
+        assertEquals(4, getPaths(g));
+    }
+
+    public void testDisjointShapes() throws Exception {
+        SVGGraphics2D g = createGraphics(true);
+        for (int i = 0; i < 4; i++) {
+            g.fill(triangle(i));
+        }
+        assertEquals(1, getPaths(g));
+    }
+
+    public void testOverlappingShapes() throws Exception {
+        SVGGraphics2D g = createGraphics(true);
+        g.fill(triangle(0));
+        g.fill(triangle(5, 5));
+        assertEquals(2, getPaths(g));
+    }
+
+    public void testPaintChange() throws Exception {
+        SVGGraphics2D g = createGraphics(true);
+        g.fill(triangle(0));
+        g.fill(triangle(1));
+        g.setPaint(Color.red);
+        g.fill(triangle(2));
+        g.fill(triangle(3));
+        g.setPaint(Color.black);
+        g.fill(triangle(4));
+        assertEquals(3, getPaths(g));
+    }
+
+    public void testStrokeChange() throws Exception {
+        SVGGraphics2D g = createGraphics(true);
+        g.draw(triangle(0));
+        g.draw(triangle(1));
+        g.setStroke(new BasicStroke(3));
+        g.draw(triangle(2));
+        assertEquals(2, getPaths(g));
+    }
+
+    public void testFillAfterDraw() throws Exception {
+        SVGGraphics2D g = createGraphics(true);
+        g.draw(triangle(0));
+        g.fill(triangle(1));
+        assertEquals(2, getPaths(g));
+    }
+
+    public void testTransformChange() throws Exception {
+        SVGGraphics2D g = createGraphics(true);
+        g.fill(triangle(0));
+        g.translate(0, 100);
+        g.fill(triangle(1));
+        assertEquals(2, getPaths(g));
+    }
+}
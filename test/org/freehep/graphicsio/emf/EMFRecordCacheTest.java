@@ -0,0 +1,201 @@
+// Copyright 2007, FreeHEP.
+package org.freehep.graphicsio.emf;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import junit.framework.TestCase;
+
+import org.freehep.graphicsio.emf.gdi.StretchDIBits;
+
+/**
+ * Stores the decoded bitmap of an EMF in an EMFRecordCache and checks
+ * that it is read back, and that corrupt entries are misses.
+ *
+ * @version $Id$
+ */
+public class EMFRecordCacheTest extends TestCase {
+
+    private static final int WIDTH = 3, HEIGHT = 2;
+
+    /**
+     * offset of the width of the first image in an entry
+     */
+    private static final int IMAGE_WIDTH = 48 + 4;
+
+    private File directory;
+
+    protected void setUp() throws Exception {
+        directory = File.createTempFile("emfcache", "");
+        directory.delete();
+    }
+
+    protected void tearDown() throws Exception {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (int i = 0; i < files.length; i++) {
+                files[i].delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /**
+     * @return EMF of a header, a StretchDIBits record with a 24 bit
+     *         bitmap of WIDTH x HEIGHT pixels and an EOF record
+     */
+    private static byte[] createEMF() {
+        int headerSize = 88;
+        int rowSize = (3 * WIDTH + 3) & ~3;
+        int bitsSize = rowSize * HEIGHT;
+        int dibSize = 80 + 40 + bitsSize;
+        int eofSize = 20;
+        int size = headerSize + dibSize + eofSize;
+        ByteBuffer emf = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+
+        emf.putInt(1).putInt(headerSize);
+        emf.putInt(0).putInt(0).putInt(WIDTH).putInt(HEIGHT); // bounds
+        emf.putInt(0).putInt(0).putInt(100).putInt(100); // frame
+        emf.putInt(0x464D4520); // " EMF"
+        emf.putInt(0x10000).putInt(size).putInt(3);
+        emf.putShort((short) 1).putShort((short) 0); // handles, reserved
+        emf.putInt(0).putInt(0).putInt(0); // description, palette
+        emf.putInt(1024).putInt(768).putInt(320).putInt(240);
+
+        emf.putInt(81).putInt(dibSize);
+        emf.putInt(0).putInt(0).putInt(WIDTH - 1).putInt(HEIGHT - 1); // bounds
+        emf.putInt(0).putInt(0); // x, y
+        emf.putInt(0).putInt(0).putInt(WIDTH).putInt(HEIGHT); // source
+        emf.putInt(80).putInt(40).putInt(120).putInt(bitsSize);
+        emf.putInt(EMFConstants.DIB_RGB_COLORS).putInt(EMFConstants.SRCCOPY);
+        emf.putInt(WIDTH).putInt(HEIGHT); // destination size
+        emf.putInt(40).putInt(WIDTH).putInt(HEIGHT);
+        emf.putShort((short) 1).putShort((short) 24);
+        emf.putInt(EMFConstants.BI_RGB).putInt(bitsSize);
+        emf.putInt(0).putInt(0).putInt(0).putInt(0);
+        for (int i = 0; i < bitsSize; i++) {
+            emf.put((byte) (37 * i));
+        }
+
+        emf.putInt(14).putInt(eofSize);
+        emf.putInt(0).putInt(0x10).putInt(eofSize);
+        return emf.array();
+    }
+
+    private static StretchDIBits getRecord(EMFRecordIndex index) {
+        for (int i = 0; i < index.size(); i++) {
+            if (index.getTag(i) instanceof StretchDIBits) {
+                return (StretchDIBits) index.getTag(i);
+            }
+        }
+        fail("no StretchDIBits record");
+        return null;
+    }
+
+    private File getEntry() {
+        File[] files = directory.listFiles();
+        assertEquals(1, files.length);
+        return files[0];
+    }
+
+    /**
+     * parses the EMF and stores it with its decoded bitmap
+     *
+     * @return the decoded bitmap
+     */
+    private BufferedImage store(EMFRecordCache cache, byte[] emf)
+            throws IOException {
+        EMFRecordIndex index = cache.getIndex(emf);
+        // rendering decodes the bitmap
+        BufferedImage image = getRecord(index).getBitmap().getImage();
+        assertNotNull(image);
+        cache.store(index);
+        return image;
+    }
+
+    public void testNothingDecoded() throws IOException {
+        EMFRecordCache cache = new EMFRecordCache(directory, 1 << 20);
+        cache.store(cache.getIndex(createEMF()));
+        assertEquals(0, directory.listFiles().length);
+        assertEquals(1, cache.getMisses());
+    }
+
+    public void testRoundTrip() throws IOException {
+        EMFRecordCache cache = new EMFRecordCache(directory, 1 << 20);
+        byte[] emf = createEMF();
+        BufferedImage expected = store(cache, emf);
+        getEntry();
+
+        EMFRecordIndex index = cache.getIndex(emf);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        EMFBitmap bitmap = getRecord(index).getBitmap();
+        assertTrue(bitmap.hasPixels());
+        BufferedImage image = bitmap.getImage();
+        assertFalse(bitmap.isDecoded());
+        assertEquals(WIDTH, image.getWidth());
+        assertEquals(HEIGHT, image.getHeight());
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                assertEquals(expected.getRGB(x, y), image.getRGB(x, y));
+            }
+        }
+    }
+
+    public void testOtherEMF() throws IOException {
+        EMFRecordCache cache = new EMFRecordCache(directory, 1 << 20);
+        byte[] emf = createEMF();
+        store(cache, emf);
+        // same length, other pixels
+        emf[emf.length - 21] ^= 1;
+        EMFRecordIndex index = cache.getIndex(emf);
+        assertEquals(0, cache.getHits());
+        assertFalse(getRecord(index).getBitmap().hasPixels());
+    }
+
+    public void testNegativeWidth() throws IOException {
+        EMFRecordCache cache = new EMFRecordCache(directory, 1 << 20);
+        byte[] emf = createEMF();
+        store(cache, emf);
+        RandomAccessFile entry = new RandomAccessFile(getEntry(), "rw");
+        try {
+            entry.seek(IMAGE_WIDTH);
+            entry.write(new byte[] { -1, -1, -1, -1 });
+        } finally {
+            entry.close();
+        }
+
+        EMFRecordIndex index = cache.getIndex(emf);
+        assertEquals(0, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertFalse(getRecord(index).getBitmap().hasPixels());
+    }
+
+    public void testTruncatedEntry() throws IOException {
+        EMFRecordCache cache = new EMFRecordCache(directory, 1 << 20);
+        byte[] emf = createEMF();
+        store(cache, emf);
+        File file = getEntry();
+        RandomAccessFile entry = new RandomAccessFile(file, "rw");
+        try {
+            // the last pixel is missing
+            entry.setLength(file.length() - 4);
+        } finally {
+            entry.close();
+        }
+
+        EMFRecordIndex index = cache.getIndex(emf);
+        assertEquals(0, cache.getHits());
+        assertFalse(getRecord(index).getBitmap().hasPixels());
+
+        // the bitmap is decoded again and the entry replaced
+        getRecord(index).getBitmap().getImage();
+        cache.store(index);
+        cache.getIndex(emf);
+        assertEquals(1, cache.getHits());
+    }
+}
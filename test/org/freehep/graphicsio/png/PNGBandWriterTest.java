@@ -0,0 +1,105 @@
+// Copyright 2007, FreeHEP.
+package org.freehep.graphicsio.png;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import junit.framework.TestCase;
+
+/**
+ * Writes images band by band with PNGBandWriter and checks that
+ * ImageIO reads back the same pixels.
+ *
+ * @version $Id$
+ */
+public class PNGBandWriterTest extends TestCase {
+
+    /**
+     * @return image of random pixels, which do not compress, so the
+     *         data is split into several IDAT chunks
+     */
+    private static BufferedImage createImage(int type, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Random random = new Random(width * height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Writes image in bands of one to bandHeight rows.
+     */
+    private static byte[] write(BufferedImage image, boolean encodeAlpha,
+                                int bandHeight) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PNGBandWriter writer = new PNGBandWriter(out, width, height, encodeAlpha, 6);
+        for (int y = 0, rows = 1; y < height; y += rows, rows = rows % bandHeight + 1) {
+            rows = Math.min(rows, height - y);
+            writer.writeRows(image.getSubimage(0, y, width, rows), rows);
+        }
+        assertEquals(height, writer.getRowsWritten());
+        writer.finish();
+        return out.toByteArray();
+    }
+
+    private static void assertPixels(BufferedImage expected, byte[] png,
+                                     boolean alpha) throws IOException {
+        BufferedImage actual = ImageIO.read(new ByteArrayInputStream(png));
+        assertNotNull(actual);
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        int mask = alpha ? 0xFFFFFFFF : 0xFFFFFF;
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals("pixel " + x + "," + y,
+                             expected.getRGB(x, y) & mask,
+                             actual.getRGB(x, y) & mask);
+            }
+        }
+    }
+
+    public void testRGBA() throws IOException {
+        BufferedImage image = createImage(BufferedImage.TYPE_INT_ARGB, 301, 257);
+        byte[] png = write(image, true, 17);
+        assertTrue(png.length > 2 * PNGBandWriter.CHUNK_SIZE);
+        assertPixels(image, png, true);
+    }
+
+    public void testRGB() throws IOException {
+        BufferedImage image = createImage(BufferedImage.TYPE_INT_RGB, 257, 301);
+        assertPixels(image, write(image, false, 5), false);
+    }
+
+    public void testConvertedBand() throws IOException {
+        // not an int image, the pixels are taken by getRGB
+        BufferedImage image = createImage(BufferedImage.TYPE_3BYTE_BGR, 64, 48);
+        assertPixels(image, write(image, false, 8), false);
+    }
+
+    public void testSinglePixel() throws IOException {
+        BufferedImage image = createImage(BufferedImage.TYPE_INT_ARGB, 1, 1);
+        assertPixels(image, write(image, true, 1), true);
+    }
+
+    public void testMissingRows() throws IOException {
+        PNGBandWriter writer = new PNGBandWriter(
+            new ByteArrayOutputStream(), 10, 10, false, 6);
+        writer.writeRows(createImage(BufferedImage.TYPE_INT_RGB, 10, 4), 4);
+        try {
+            writer.finish();
+            fail("finished after 4 of 10 rows");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}